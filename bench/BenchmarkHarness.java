@@ -0,0 +1,100 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Small hand-rolled measurement loop for the benchmarks in bench/. It is not JMH.
+ *
+ * Each benchmark is warmed up for bench.warmupMillis, then measured in
+ * bench.iterations timed iterations of bench.iterationMillis each. Results are
+ * reported as ns/op with the spread across iterations. Every operation returns a
+ * value that is folded into a sink, so the JIT cannot drop the work.
+ *
+ * The numbers are indicative only. All benchmarks share one JVM with no forks, so
+ * JIT profiles and GC state carry over from one benchmark to the next. There is no
+ * protection against constant folding or loop optimisations beyond the sink. Compare
+ * runs on the same machine and JVM; do not quote the numbers as absolute costs.
+ */
+public class BenchmarkHarness {
+    private static final long WARMUP_MILLIS = Long.getLong("bench.warmupMillis", 2000);
+    private static final long ITERATION_MILLIS = Long.getLong("bench.iterationMillis", 1000);
+    private static final int ITERATIONS = Integer.getInteger("bench.iterations", 5);
+
+    private static volatile long sink;
+    private static boolean noticePrinted = false;
+
+    public record Result(String name, double nsPerOp, double errorNsPerOp, long ops) {
+        public double opsPerSecond() {
+            return 1_000_000_000.0 / nsPerOp;
+        }
+    }
+
+    private final List<Result> results = new ArrayList<>();
+
+    /**
+     * Measure one operation; the returned value is consumed so the work stays live
+     */
+    public Result run(String name, LongSupplier operation) {
+        runFor(WARMUP_MILLIS, operation);
+
+        double[] nsPerOp = new double[ITERATIONS];
+        long totalOps = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            long ops = runFor(ITERATION_MILLIS, operation);
+            nsPerOp[i] = (System.nanoTime() - start) / (double) ops;
+            totalOps += ops;
+        }
+
+        double mean = Arrays.stream(nsPerOp).average().orElse(0);
+        double variance = Arrays.stream(nsPerOp).map(v -> (v - mean) * (v - mean)).sum() / Math.max(1, ITERATIONS - 1);
+        Result result = new Result(name, mean, Math.sqrt(variance), totalOps);
+        results.add(result);
+        System.out.printf("%-48s %14.1f ± %10.1f ns/op %14.1f ops/s%n",
+                name, result.nsPerOp(), result.errorNsPerOp(), result.opsPerSecond());
+        return result;
+    }
+
+    public List<Result> getResults() {
+        return results;
+    }
+
+    public static void printHeader(String title) {
+        if (!noticePrinted) {
+            noticePrinted = true;
+            System.out.println("Indicative numbers only (single JVM, no forks, not JMH); compare runs on the same machine.");
+        }
+        System.out.println();
+        System.out.println("== " + title + " ==");
+    }
+
+    /**
+     * Call the operation until the time is up; checks the clock every few calls so
+     * sub-microsecond operations are not dominated by nanoTime()
+     */
+    private static long runFor(long millis, LongSupplier operation) {
+        long deadline = System.nanoTime() + millis * 1_000_000;
+        long ops = 0;
+        long local = 0;
+        int batch = 1;
+        long batchStart = System.nanoTime();
+        while (true) {
+            for (int i = 0; i < batch; i++) {
+                local += operation.getAsLong();
+            }
+            ops += batch;
+            long now = System.nanoTime();
+            if (now >= deadline) {
+                break;
+            }
+            // Grow batches of fast operations, up to about 1 ms each
+            if (batch < 1024 && now - batchStart < 1_000_000) {
+                batch *= 2;
+            }
+            batchStart = now;
+        }
+        sink += local;
+        return ops;
+    }
+}
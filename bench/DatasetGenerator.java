@@ -0,0 +1,210 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Seeded, repeatable catalog data for the benchmarks: the same seed and size always
+ * give the same authors and books.
+ *
+ * Used in memory by LibraryBenchmarks, or written as CSV (the CatalogImporter
+ * format) to seed a benchmark database:
+ *
+ *   java DatasetGenerator <1k|100k|1m|count> <out.csv> [--seed <n>] [--load] [--user <userId>]
+ *
+ * --load imports the file right away, --user also fills that user's library.
+ */
+public class DatasetGenerator {
+    public static final long DEFAULT_SEED = 42;
+
+    private static final String[] NAMES = {"Orhan", "Elif", "Sabahattin", "Yaşar", "Ahmet", "Oğuz", "Nazım",
+            "Sait", "Peyami", "Halide", "Jane", "Fyodor", "Gabriel", "Virginia", "Italo", "Haruki", "Chimamanda",
+            "Jorge", "Toni", "Leo", "Franz", "Ursula", "Umberto", "Zadie", "Kazuo", "José", "Clarice", "Naguib"};
+    private static final String[] SURNAMES = {"Pamuk", "Şafak", "Ali", "Kemal", "Hamdi Tanpınar", "Atay", "Hikmet",
+            "Faik Abasıyanık", "Safa", "Edib Adıvar", "Austen", "Dostoevsky", "García Márquez", "Woolf", "Calvino",
+            "Murakami", "Adichie", "Borges", "Morrison", "Tolstoy", "Kafka", "Le Guin", "Eco", "Smith", "Ishiguro",
+            "Saramago", "Lispector", "Mahfouz"};
+    private static final String[] TITLE_WORDS = {"Silent", "Snow", "House", "Night", "Garden", "River", "Memory",
+            "Stranger", "Museum", "Innocence", "Black", "Book", "Time", "Clock", "Winter", "Journey", "Island",
+            "Mirror", "Letters", "City", "Shadow", "Forty", "Rules", "Love", "Red", "Name", "Castle", "Trial",
+            "Madonna", "Fur", "Coat", "Sea", "Light", "Glass", "Bridge", "Tower", "Road", "Dream", "Bird", "Sun"};
+    private static final String[] ABOUT_WORDS = {"a", "story", "of", "family", "war", "love", "loss", "exile",
+            "identity", "memory", "friendship", "across", "three", "generations", "in", "Istanbul", "Paris",
+            "an", "old", "town", "by", "the", "sea", "young", "woman", "man", "searching", "for", "truth"};
+
+    private final long seed;
+
+    public DatasetGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: java DatasetGenerator <1k|100k|1m|count> <out.csv> " +
+                    "[--seed <n>] [--load] [--user <userId>]");
+            System.exit(1);
+        }
+
+        int size = parseSize(args[0]);
+        Path out = Paths.get(args[1]);
+        long seed = DEFAULT_SEED;
+        boolean load = false;
+        int userId = 0;
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--load": load = true; break;
+                case "--user": userId = Integer.parseInt(args[++i]); break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            new DatasetGenerator(seed).writeCsv(out, size);
+            System.out.println("✅ Wrote " + size + " books to " + out + " in "
+                    + (System.currentTimeMillis() - start) + " ms");
+            if (load) {
+                CatalogImporter.ImportResult result = new CatalogImporter(out, userId,
+                        CatalogImporter.DEFAULT_CHUNK_SIZE).run(true);
+                System.out.println("✅ Loaded: " + result);
+            }
+        } catch (IOException | SQLException e) {
+            System.err.println("❌ " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * "1k", "100k", "1m" or a plain number of books
+     */
+    public static int parseSize(String size) {
+        String s = size.trim().toLowerCase();
+        if (s.endsWith("k")) {
+            return Integer.parseInt(s.substring(0, s.length() - 1)) * 1_000;
+        }
+        if (s.endsWith("m")) {
+            return Integer.parseInt(s.substring(0, s.length() - 1)) * 1_000_000;
+        }
+        return Integer.parseInt(s);
+    }
+
+    /**
+     * About one author per 20 books, at least 10
+     */
+    public static int authorCountFor(int books) {
+        return Math.max(10, books / 20);
+    }
+
+    public List<Author> authors(int count) {
+        Random random = new Random(seed);
+        List<Author> authors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = NAMES[random.nextInt(NAMES.length)];
+            // Suffix keeps (name, surname) unique beyond the word list
+            String surname = SURNAMES[random.nextInt(SURNAMES.length)] + (i < SURNAMES.length ? "" : " " + (i + 1));
+            authors.add(new Author(i + 1, name, surname, random.nextInt(4) == 0 ? "https://example.org/a" + (i + 1) : null));
+        }
+        return authors;
+    }
+
+    public List<Book> books(int count) {
+        List<Book> books = new ArrayList<>(count);
+        forEachBook(count, books::add);
+        return books;
+    }
+
+    /**
+     * Generate books one at a time (ids 1..count) without keeping them
+     */
+    public void forEachBook(int count, Consumer<Book> consumer) {
+        List<Author> authors = authors(authorCountFor(count));
+        Random random = new Random(seed * 31 + 7);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            Author author = authors.get(random.nextInt(authors.size()));
+
+            text.setLength(0);
+            int titleWords = 1 + random.nextInt(3);
+            for (int w = 0; w < titleWords; w++) {
+                text.append(w == 0 ? "" : " ").append(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]);
+            }
+            String title = text.append(' ').append(i + 1).toString();
+
+            text.setLength(0);
+            int aboutWords = 8 + random.nextInt(20);
+            for (int w = 0; w < aboutWords; w++) {
+                text.append(w == 0 ? "" : " ").append(ABOUT_WORDS[random.nextInt(ABOUT_WORDS.length)]);
+            }
+            String about = text.toString();
+
+            // Roughly: 40% not in library, 25% read, 20% reading, 15% want to read
+            int roll = random.nextInt(100);
+            int readStatus = roll < 40 ? 0 : roll < 65 ? 1 : roll < 85 ? 2 : 3;
+            int rating = readStatus == 1 ? random.nextInt(6) : 0;
+            String comments = readStatus != 0 && random.nextInt(5) == 0 ? "Notes on " + title : null;
+            Date releaseDate = readStatus == 3 && random.nextBoolean()
+                    ? new Date(System.currentTimeMillis() + random.nextInt(60) * 86_400_000L) : null;
+
+            consumer.accept(new Book(i + 1, author.getAuthorId(), title, author.getFullName(),
+                    1850 + random.nextInt(176), 80 + random.nextInt(1100), null, about,
+                    readStatus, rating, comments, releaseDate));
+        }
+    }
+
+    /**
+     * Write count books as CSV in the CatalogImporter format
+     */
+    public void writeCsv(Path file, int count) throws IOException {
+        List<Author> authors = authors(authorCountFor(count));
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("title,authorName,authorSurname,website,year,numberOfPages,about,readStatus,rating,comments\n");
+            IOException[] failure = new IOException[1];
+            StringBuilder line = new StringBuilder(256);
+            forEachBook(count, book -> {
+                if (failure[0] != null) {
+                    return;
+                }
+                Author author = authors.get(book.getAuthorId() - 1);
+                line.setLength(0);
+                appendCsv(line, book.getTitle()).append(',');
+                appendCsv(line, author.getName()).append(',');
+                appendCsv(line, author.getSurname()).append(',');
+                appendCsv(line, author.getWebsite()).append(',');
+                line.append(book.getYear()).append(',').append(book.getNumberOfPages()).append(',');
+                appendCsv(line, book.getAbout()).append(',');
+                line.append(book.getReadStatus()).append(',').append(book.getRating()).append(',');
+                appendCsv(line, book.getComments()).append('\n');
+                try {
+                    out.append(line);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+    }
+
+    private static StringBuilder appendCsv(StringBuilder line, String value) {
+        if (value == null) {
+            return line;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return line.append(value);
+        }
+        return line.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+}
@@ -0,0 +1,235 @@
+import java.lang.reflect.Proxy;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Benchmarks for the data layer and model hot paths, on a generated dataset.
+ *
+ * The in-memory suite needs no database: row mapping (DatabaseHelper.mapBook over a
+ * ResultSet stand-in backed by generated rows), the statistics the main frames used
+ * to compute with streams, Book formatting, and author search/typeahead lookups.
+ * With --db it also runs getAllBooks, getLibraryStatistics, searchAuthors and the
+ * addBookComplete write path against the configured MySQL database, seeded with
+ * DatasetGenerator first. The write benchmark rolls back every insert, so repeated
+ * runs leave the catalog and the counters as they were.
+ *
+ * Usage: java LibraryBenchmarks [--size 1k|100k|1m] [--seed <n>] [--db <username> <password>]
+ * Timing: -Dbench.warmupMillis, -Dbench.iterationMillis, -Dbench.iterations
+ * The numbers are indicative only; see BenchmarkHarness. For JMH measurements of the
+ * in-memory suite, build bench/pom.xml and run LibraryJmhBenchmarks.
+ */
+public class LibraryBenchmarks {
+    private static final String[] COLUMNS = {"bookId", "authorId", "title", "authorName", "year", "numberOfPages",
+            "cover", "about", "readStatus", "rating", "comments", "releaseDate"};
+
+    public static void main(String[] args) {
+        int size = 100_000;
+        long seed = DatasetGenerator.DEFAULT_SEED;
+        String username = null;
+        String password = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--size": size = DatasetGenerator.parseSize(args[++i]); break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--db":
+                    username = args[++i];
+                    password = args[++i];
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+        }
+
+        BenchmarkHarness harness = new BenchmarkHarness();
+        runInMemory(harness, size, seed);
+        if (username != null) {
+            runDatabase(harness, username, password);
+        }
+        System.exit(0);
+    }
+
+    private static void runInMemory(BenchmarkHarness harness, int size, long seed) {
+        DatasetGenerator generator = new DatasetGenerator(seed);
+        long start = System.currentTimeMillis();
+        List<Book> books = generator.books(size);
+        List<Author> authors = generator.authors(DatasetGenerator.authorCountFor(size));
+        System.out.println("Generated " + books.size() + " books and " + authors.size() + " authors in "
+                + (System.currentTimeMillis() - start) + " ms (seed " + seed + ")");
+
+        BenchmarkHarness.printHeader("Row mapping");
+        ResultSet rows = resultSetOver(books);
+        harness.run("mapBook, per row", () -> {
+            try {
+                if (!rows.next()) {
+                    rows.beforeFirst();
+                    rows.next();
+                }
+                return DatabaseHelper.mapBook(rows).getBookId();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        BenchmarkHarness.printHeader("Statistics over " + size + " books");
+        harness.run("stream statistics (frames before user_stats)", () -> streamStatistics(books).readBooks());
+        harness.run("single-pass statistics", () -> singlePassStatistics(books).readBooks());
+
+        BenchmarkHarness.printHeader("Formatting");
+        int[] cursor = {0};
+        harness.run("Book.getRatingStars", () -> books.get(next(cursor, size)).getRatingStars().length());
+        harness.run("Book.getDisplayInfo", () -> books.get(next(cursor, size)).getDisplayInfo().length());
+
+        BenchmarkHarness.printHeader("Author search over " + authors.size() + " authors");
+        SearchIndex authorIndex = new SearchIndex(1.0f, 1.0f);
+        TypeaheadIndex<Author> authorTypeahead = new TypeaheadIndex<>();
+        for (Author author : authors) {
+            authorIndex.put(author.getAuthorId(), author.getName(), author.getSurname());
+            authorTypeahead.put(author.getAuthorId(), author.getFullName(), author);
+        }
+        String[] queries = authorQueries(authors, seed);
+        int[] queryCursor = {0};
+        harness.run("SearchIndex.search (searchAuthors)", () ->
+                authorIndex.search(queries[next(queryCursor, queries.length)], 200).size());
+        harness.run("TypeaheadIndex.suggest (author field)", () ->
+                authorTypeahead.suggest(queries[next(queryCursor, queries.length)], 8).size());
+    }
+
+    private static void runDatabase(BenchmarkHarness harness, String username, String password) {
+        UserSession session = DatabaseHelper.login(username, password);
+        if (session == null) {
+            System.err.println("❌ Login failed for " + username);
+            return;
+        }
+        DatabaseHelper.warmUpConnectionPool();
+
+        BenchmarkHarness.printHeader("Database (" + session + ")");
+        harness.run("getAllBooksUncached (query + mapBook)", () -> DatabaseHelper.getAllBooksUncached(session).size());
+        harness.run("getAllBooks (catalog cache)", () -> DatabaseHelper.getAllBooks(session).size());
+        harness.run("getLibraryStatistics (user_stats)", () -> {
+            LibraryStatistics stats = DatabaseHelper.getLibraryStatistics(session);
+            return stats != null ? stats.readBooks() : 0;
+        });
+        String[] queries = {"pam", "orhan", "tolstoy", "ali 1", "mur", "borges"};
+        int[] cursor = {0};
+        harness.run("searchAuthors", () -> DatabaseHelper.searchAuthors(queries[next(cursor, queries.length)]).size());
+
+        List<Author> writeAuthors = DatabaseHelper.searchAuthors(queries[0]);
+        if (writeAuthors.isEmpty()) {
+            System.out.println("No author matches \"" + queries[0] + "\"; skipping the write benchmark");
+        } else {
+            int authorId = writeAuthors.get(0).getAuthorId();
+            long[] counter = {0};
+            harness.run("addBookComplete (new book + library row, rolled back)", () ->
+                    DatabaseHelper.addBookCompleteRolledBack(session, authorId, "Benchmark Book " + counter[0]++) ? 1 : 0);
+        }
+        System.out.println("Pool: " + DatabaseHelper.getPoolStats());
+    }
+
+    /**
+     * What the statistics panels computed from getAllBooks() before user_stats
+     */
+    static LibraryStatistics streamStatistics(List<Book> books) {
+        long total = books.size();
+        long authorsCount = books.stream().map(Book::getAuthorName).distinct().count();
+        long read = books.stream().filter(b -> b.getReadStatus() == 1).count();
+        long reading = books.stream().filter(b -> b.getReadStatus() == 2).count();
+        long want = books.stream().filter(b -> b.getReadStatus() == 3).count();
+        long unread = books.stream().filter(b -> b.getReadStatus() == 0).count();
+        long rated = books.stream().filter(b -> b.getRating() > 0).count();
+        double average = books.stream().filter(b -> b.getRating() > 0).mapToInt(Book::getRating).average().orElse(0);
+        long favorites = books.stream().filter(b -> b.getRating() >= 4).count();
+        long pages = books.stream().filter(b -> b.getReadStatus() == 1).mapToLong(Book::getNumberOfPages).sum();
+        return new LibraryStatistics(total, authorsCount, read, reading, want, unread, rated, average, favorites, pages);
+    }
+
+    static LibraryStatistics singlePassStatistics(List<Book> books) {
+        long read = 0, reading = 0, want = 0, unread = 0, rated = 0, ratingSum = 0, favorites = 0, pages = 0;
+        Set<Integer> authorIds = new HashSet<>();
+        for (Book book : books) {
+            authorIds.add(book.getAuthorId());
+            switch (book.getReadStatus()) {
+                case 1: read++; pages += book.getNumberOfPages(); break;
+                case 2: reading++; break;
+                case 3: want++; break;
+                default: unread++;
+            }
+            if (book.getRating() > 0) {
+                rated++;
+                ratingSum += book.getRating();
+            }
+            if (book.getRating() >= 4) {
+                favorites++;
+            }
+        }
+        return new LibraryStatistics(books.size(), authorIds.size(), read, reading, want, unread, rated,
+                rated > 0 ? ratingSum / (double) rated : 0, favorites, pages);
+    }
+
+    /**
+     * Typed prefixes and near misses of generated author names
+     */
+    static String[] authorQueries(List<Author> authors, long seed) {
+        Random random = new Random(seed);
+        String[] queries = new String[256];
+        for (int i = 0; i < queries.length; i++) {
+            Author author = authors.get(random.nextInt(authors.size()));
+            String word = random.nextBoolean() ? author.getName() : author.getSurname();
+            queries[i] = word.substring(0, Math.min(word.length(), 2 + random.nextInt(4)));
+        }
+        return queries;
+    }
+
+    private static int next(int[] cursor, int size) {
+        int value = cursor[0];
+        cursor[0] = value + 1 >= size ? 0 : value + 1;
+        return value;
+    }
+
+    /**
+     * A forward-only ResultSet over generated books with the columns mapBook reads.
+     * Only next(), beforeFirst() and the getters by column name are supported.
+     */
+    static ResultSet resultSetOver(List<Book> books) {
+        Object[][] data = new Object[books.size()][];
+        for (int i = 0; i < data.length; i++) {
+            Book b = books.get(i);
+            data[i] = new Object[]{b.getBookId(), b.getAuthorId(), b.getTitle(), b.getAuthorName(), b.getYear(),
+                    b.getNumberOfPages(), b.getCover(), b.getAbout(), b.getReadStatus(), b.getRating(),
+                    b.getComments(), b.getReleaseDate()};
+        }
+        Map<String, Integer> columnIndex = new HashMap<>();
+        for (int i = 0; i < COLUMNS.length; i++) {
+            columnIndex.put(COLUMNS[i], i);
+        }
+
+        int[] row = {-1};
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            return ++row[0] < data.length;
+                        case "beforeFirst":
+                            row[0] = -1;
+                            return null;
+                        case "getInt":
+                            return (Integer) data[row[0]][columnIndex.get((String) args[0])];
+                        case "getString":
+                            return (String) data[row[0]][columnIndex.get((String) args[0])];
+                        case "getDate":
+                            return (Date) data[row[0]][columnIndex.get((String) args[0])];
+                        case "close":
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,68 @@
+import java.util.List;
+
+/**
+ * Compares the old "load everything, filter in Java" read-status lists with
+ * DatabaseHelper.getBooksByStatus(session), which filters on user_books(userId, readStatus).
+ *
+ * Usage: java StatusFilterBenchmark <username> <password> [iterations]
+ * Needs config.properties pointing at a MySQL database with data for that user.
+ */
+public class StatusFilterBenchmark {
+    private static final int WARMUP_ITERATIONS = 5;
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: java StatusFilterBenchmark <username> <password> [iterations]");
+            System.exit(1);
+        }
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+
+        UserSession session = DatabaseHelper.login(args[0], args[1]);
+        if (session == null) {
+            System.err.println("❌ Login failed for " + args[0]);
+            System.exit(1);
+        }
+
+        System.out.printf("%-8s %-28s %10s %10s%n", "status", "variant", "avg ms", "rows");
+        for (int status = 1; status <= 3; status++) {
+            final int wanted = status;
+
+            run("stream filter (uncached)", wanted, iterations, () ->
+                    DatabaseHelper.getAllBooksUncached(session).stream()
+                            .filter(book -> book.getReadStatus() == wanted)
+                            .count());
+
+            run("stream filter (cached)", wanted, iterations, () ->
+                    DatabaseHelper.getAllBooks(session).stream()
+                            .filter(book -> book.getReadStatus() == wanted)
+                            .count());
+
+            run("getBooksByStatus", wanted, iterations, () -> {
+                List<Book> books = DatabaseHelper.getBooksByStatus(session, wanted);
+                return books.size();
+            });
+        }
+
+        System.out.println("Pool: " + DatabaseHelper.getPoolStats());
+        System.exit(0);
+    }
+
+    private interface Variant {
+        long run();
+    }
+
+    private static void run(String name, int status, int iterations, Variant variant) {
+        long rows = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            rows = variant.run();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            rows = variant.run();
+        }
+        double avgMillis = (System.nanoTime() - start) / 1_000_000.0 / iterations;
+
+        System.out.printf("%-8d %-28s %10.3f %10d%n", status, name, avgMillis, rows);
+    }
+}
@@ -0,0 +1,85 @@
+import mylibrary.jmh.LibraryWorkload;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * LibraryBenchmarks' in-memory suite as a LibraryWorkload, for LibraryJmhBenchmarks
+ */
+public class LibraryJmhWorkload implements LibraryWorkload {
+    private List<Book> books;
+    private ResultSet rows;
+    private SearchIndex authorIndex;
+    private TypeaheadIndex<Author> authorTypeahead;
+    private String[] queries;
+    private int bookCursor;
+    private int queryCursor;
+
+    @Override
+    public void generate(String size, long seed) {
+        DatasetGenerator generator = new DatasetGenerator(seed);
+        int count = DatasetGenerator.parseSize(size);
+        books = generator.books(count);
+        List<Author> authors = generator.authors(DatasetGenerator.authorCountFor(count));
+        rows = LibraryBenchmarks.resultSetOver(books);
+        authorIndex = new SearchIndex(1.0f, 1.0f);
+        authorTypeahead = new TypeaheadIndex<>();
+        for (Author author : authors) {
+            authorIndex.put(author.getAuthorId(), author.getName(), author.getSurname());
+            authorTypeahead.put(author.getAuthorId(), author.getFullName(), author);
+        }
+        queries = LibraryBenchmarks.authorQueries(authors, seed);
+    }
+
+    @Override
+    public Book mapBook() throws SQLException {
+        if (!rows.next()) {
+            rows.beforeFirst();
+            rows.next();
+        }
+        return DatabaseHelper.mapBook(rows);
+    }
+
+    @Override
+    public LibraryStatistics streamStatistics() {
+        return LibraryBenchmarks.streamStatistics(books);
+    }
+
+    @Override
+    public LibraryStatistics singlePassStatistics() {
+        return LibraryBenchmarks.singlePassStatistics(books);
+    }
+
+    @Override
+    public String ratingStars() {
+        return nextBook().getRatingStars();
+    }
+
+    @Override
+    public String displayInfo() {
+        return nextBook().getDisplayInfo();
+    }
+
+    @Override
+    public List<SearchIndex.Hit> searchAuthors() {
+        return authorIndex.search(nextQuery(), 200);
+    }
+
+    @Override
+    public List<Author> suggestAuthors() {
+        return authorTypeahead.suggest(nextQuery(), 8);
+    }
+
+    private Book nextBook() {
+        Book book = books.get(bookCursor);
+        bookCursor = bookCursor + 1 >= books.size() ? 0 : bookCursor + 1;
+        return book;
+    }
+
+    private String nextQuery() {
+        String query = queries[queryCursor];
+        queryCursor = queryCursor + 1 >= queries.length ? 0 : queryCursor + 1;
+        return query;
+    }
+}
@@ -0,0 +1,82 @@
+package mylibrary.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The in-memory suite of LibraryBenchmarks under JMH, on the same seeded dataset:
+ * row mapping over a ResultSet stand-in, stream vs single-pass statistics, Book
+ * formatting and author search/typeahead. Needs no database.
+ *
+ * Build and run with bench/pom.xml:
+ *   mvn -f bench/pom.xml package
+ *   java -jar bench/target/benchmarks.jar LibraryJmhBenchmarks -p size=1k
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LibraryJmhBenchmarks {
+    @Param({"1k", "100k"})
+    public String size;
+
+    @Param({"42"})
+    public long seed;
+
+    private LibraryWorkload workload;
+
+    @Setup(Level.Trial)
+    public void generate() throws ReflectiveOperationException {
+        workload = (LibraryWorkload) Class.forName("LibraryJmhWorkload").getDeclaredConstructor().newInstance();
+        workload.generate(size, seed);
+    }
+
+    @Benchmark
+    public Object mapBook() throws Exception {
+        return workload.mapBook();
+    }
+
+    @Benchmark
+    public Object streamStatistics() {
+        return workload.streamStatistics();
+    }
+
+    @Benchmark
+    public Object singlePassStatistics() {
+        return workload.singlePassStatistics();
+    }
+
+    @Benchmark
+    public Object ratingStars() {
+        return workload.ratingStars();
+    }
+
+    @Benchmark
+    public Object displayInfo() {
+        return workload.displayInfo();
+    }
+
+    @Benchmark
+    public Object searchAuthors() {
+        return workload.searchAuthors();
+    }
+
+    @Benchmark
+    public Object suggestAuthors() {
+        return workload.suggestAuthors();
+    }
+}
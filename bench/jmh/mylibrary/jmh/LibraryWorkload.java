@@ -0,0 +1,25 @@
+package mylibrary.jmh;
+
+/**
+ * The operations LibraryJmhBenchmarks measures. JMH only runs benchmarks in a named
+ * package, while the application classes live in the default package and cannot be
+ * imported from one; the implementation (LibraryJmhWorkload, default package) is
+ * loaded by name instead.
+ */
+public interface LibraryWorkload {
+    void generate(String size, long seed);
+
+    Object mapBook() throws Exception;
+
+    Object streamStatistics();
+
+    Object singlePassStatistics();
+
+    Object ratingStars();
+
+    Object displayInfo();
+
+    Object searchAuthors();
+
+    Object suggestAuthors();
+}
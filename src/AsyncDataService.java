@@ -0,0 +1,222 @@
+import javax.swing.*;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Runs DatabaseHelper calls off the Swing event dispatch thread.
+ *
+ * Tasks run on virtual threads on JDK 21+ and on a small thread pool otherwise, and
+ * results are handed back on the EDT. Whichever executor is used, every submission
+ * goes through the same limits: at most MAX_CONCURRENCY tasks run at once and at most
+ * MAX_QUEUED more wait; beyond that a submission fails with RejectedExecutionException. Requests submitted on a named
+ * channel supersede the previous request on that channel: it is cancelled if it has
+ * not started and its result is never delivered.
+ */
+public class AsyncDataService {
+    private static final int MAX_CONCURRENCY = Integer.getInteger("async.maxConcurrency", 8);
+    private static final int MAX_QUEUED = 1000;
+
+    // Unbounded on virtual threads; the two semaphores below apply the limits in both cases
+    private static final ExecutorService EXECUTOR = createExecutor();
+    // Tasks running at once
+    private static final Semaphore PERMITS = new Semaphore(MAX_CONCURRENCY);
+    // Tasks submitted and not yet finished or dropped, running or waiting
+    private static final Semaphore SLOTS = new Semaphore(MAX_CONCURRENCY + MAX_QUEUED);
+
+    private static final AtomicInteger inFlight = new AtomicInteger();
+    private static final AtomicLong sequence = new AtomicLong();
+    private static final Map<String, Long> latestSequence = new ConcurrentHashMap<>();
+    private static final Map<String, CompletableFuture<?>> latestByChannel = new ConcurrentHashMap<>();
+
+    /**
+     * Executor that runs callbacks on the event dispatch thread
+     */
+    public static final Executor EDT = command -> {
+        if (SwingUtilities.isEventDispatchThread()) {
+            command.run();
+        } else {
+            SwingUtilities.invokeLater(command);
+        }
+    };
+
+    /**
+     * Run a task in the background
+     */
+    public static <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        inFlight.incrementAndGet();
+        result.whenComplete((value, error) -> inFlight.decrementAndGet());
+
+        if (!SLOTS.tryAcquire()) {
+            result.completeExceptionally(new RejectedExecutionException(
+                    "More than " + (MAX_CONCURRENCY + MAX_QUEUED) + " background requests pending"));
+            return result;
+        }
+        // Whoever sets this owns the slot: the task when it starts, or the cancellation before that
+        AtomicBoolean claimed = new AtomicBoolean();
+
+        try {
+            Future<?> running = EXECUTOR.submit(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    return; // dropped before it started, slot already released
+                }
+                try {
+                    if (result.isDone()) {
+                        return; // cancelled or superseded before it started
+                    }
+                    PERMITS.acquire();
+                    try {
+                        if (!result.isDone()) {
+                            result.complete(task.call());
+                        }
+                    } finally {
+                        PERMITS.release();
+                    }
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                } finally {
+                    SLOTS.release();
+                }
+            });
+            // Dropping a queued task is enough; running JDBC calls are not interrupted
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled() && claimed.compareAndSet(false, true)) {
+                    running.cancel(false);
+                    SLOTS.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            // Executor shut down
+            SLOTS.release();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Run a task in the background, superseding the previous task on the same channel
+     */
+    public static <T> CompletableFuture<T> submitLatest(String channel, Callable<T> task) {
+        return submitLatest(channel, task, sequence.incrementAndGet());
+    }
+
+    private static <T> CompletableFuture<T> submitLatest(String channel, Callable<T> task, long requestNumber) {
+        latestSequence.put(channel, requestNumber);
+        CompletableFuture<T> result = submit(task);
+        CompletableFuture<?> previous = latestByChannel.put(channel, result);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        result.whenComplete((value, error) -> latestByChannel.remove(channel, result));
+        return result;
+    }
+
+    /**
+     * Run a task in the background and pass its result to onSuccess on the EDT
+     */
+    public static <T> CompletableFuture<T> load(Callable<T> task, Consumer<? super T> onSuccess) {
+        return load(task, onSuccess, null);
+    }
+
+    public static <T> CompletableFuture<T> load(Callable<T> task, Consumer<? super T> onSuccess,
+                                                Consumer<Throwable> onError) {
+        CompletableFuture<T> future = submit(task);
+        deliver(future, null, 0, onSuccess, onError);
+        return future;
+    }
+
+    /**
+     * Like load(), but only the most recent request on the channel delivers its result
+     */
+    public static <T> CompletableFuture<T> loadLatest(String channel, Callable<T> task, Consumer<? super T> onSuccess) {
+        return loadLatest(channel, task, onSuccess, null);
+    }
+
+    public static <T> CompletableFuture<T> loadLatest(String channel, Callable<T> task, Consumer<? super T> onSuccess,
+                                                      Consumer<Throwable> onError) {
+        long requestNumber = sequence.incrementAndGet();
+        CompletableFuture<T> future = submitLatest(channel, task, requestNumber);
+        deliver(future, channel, requestNumber, onSuccess, onError);
+        return future;
+    }
+
+    /**
+     * Supersede the request on the channel without starting a new one: it is cancelled
+     * if it has not started and its result is never delivered
+     */
+    public static void cancelLatest(String channel) {
+        latestSequence.put(channel, sequence.incrementAndGet());
+        CompletableFuture<?> previous = latestByChannel.remove(channel);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    /**
+     * Number of submitted requests that have not completed yet
+     */
+    public static int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    public static boolean isUsingVirtualThreads() {
+        return !(EXECUTOR instanceof ThreadPoolExecutor);
+    }
+
+    private static <T> void deliver(CompletableFuture<T> future, String channel, long requestNumber,
+                                    Consumer<? super T> onSuccess, Consumer<Throwable> onError) {
+        future.whenComplete((value, error) -> EDT.execute(() -> {
+            if (future.isCancelled()
+                    || (channel != null && latestSequence.getOrDefault(channel, 0L) != requestNumber)) {
+                return; // superseded by a newer request on the same channel
+            }
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                if (onError != null) {
+                    onError.accept(cause);
+                } else {
+                    System.err.println("Background request failed: " + cause.getMessage());
+                    cause.printStackTrace();
+                }
+            } else if (onSuccess != null) {
+                onSuccess.accept(value);
+            }
+        }));
+    }
+
+    private static ExecutorService createExecutor() {
+        // Executors.newVirtualThreadPerTaskExecutor() exists from JDK 21; look it up so older JDKs still work
+        try {
+            Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // SLOTS bounds the queue; a dropped task stays in it until a thread skips it
+            AtomicInteger threadCount = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_CONCURRENCY, MAX_CONCURRENCY,
+                    30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "data-service-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+}
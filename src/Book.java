@@ -34,6 +34,14 @@ public class Book {
     }
 
     // Getters and Setters
+    /**
+     * A separate copy, for changing a book that caches or tables still hold
+     */
+    public Book copy() {
+        return new Book(bookId, authorId, title, authorName, year, numberOfPages, cover, about,
+                readStatus, rating, comments, releaseDate);
+    }
+
     public int getBookId() { return bookId; }
     public void setBookId(int bookId) { this.bookId = bookId; }
 
@@ -0,0 +1,16 @@
+/**
+ * Told by DatabaseHelper about every book change it has committed, so views can update
+ * the affected row instead of reloading.
+ *
+ * Called on the thread that made the change, after the caches were invalidated;
+ * Swing listeners move to the EDT themselves.
+ */
+public interface BookChangeListener {
+    enum Type { INSERTED, UPDATED, DELETED }
+
+    /**
+     * @param userId the user whose view of the book changed, or -1 for catalog changes
+     *               every user sees
+     */
+    void bookChanged(int userId, int bookId, Type type);
+}
@@ -5,15 +5,21 @@ import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
 import javax.imageio.ImageIO;
 import java.io.File;
+import java.io.FileNotFoundException;
 
 public class BookCoverDisplayPanel extends JPanel {
+    static final int COVER_WIDTH = 280;
+    static final int COVER_HEIGHT = 380;
+
+    private final UserSession session;
     private JTextField bookIdField;
     private JButton displayButton;
     private JLabel imageLabel;
     private JLabel bookInfoLabel;
     private JScrollPane imageScrollPane;
 
-    public BookCoverDisplayPanel() {
+    public BookCoverDisplayPanel(UserSession session) {
+        this.session = session;
         setLayout(new BorderLayout());
         setBorder(BorderFactory.createTitledBorder("Book Cover Display"));
 
@@ -84,76 +90,65 @@ public class BookCoverDisplayPanel extends JPanel {
             return;
         }
 
+        int bookId;
         try {
-            int bookId = Integer.parseInt(bookIdText);
-            Book book = DatabaseHelper.getBookInfo(bookId);
-
-            if (book == null) {
-                showMessage("Book with ID " + bookId + " not found!", Color.RED);
-                return;
-            }
+            bookId = Integer.parseInt(bookIdText);
+        } catch (NumberFormatException e) {
+            showMessage("Please enter a valid number!", Color.RED);
+            return;
+        }
 
-            // Show book info
-            bookInfoLabel.setText(String.format(
-                    "<html><center><b>%s</b><br>by %s (%d)<br>%d pages</center></html>",
-                    book.getTitle(), book.getAuthorName(), book.getYear(), book.getNumberOfPages()
-            ));
+        // Only the most recently requested book is shown
+        AsyncDataService.loadLatest("cover.book", () -> DatabaseHelper.getBookInfo(session, bookId),
+                book -> showBook(bookId, book),
+                e -> showMessage("Error: " + e.getMessage(), Color.RED));
+    }
 
-            // Load image
-            String imagePath = book.getCover();
-            if (imagePath == null || imagePath.trim().isEmpty()) {
-                imagePath = "Book" + bookId + ".jpg";
-            }
+    private void showBook(int bookId, Book book) {
+        if (book == null) {
+            showMessage("Book with ID " + bookId + " not found!", Color.RED);
+            return;
+        }
 
-            loadImage(imagePath);
+        // Show book info
+        bookInfoLabel.setText(String.format(
+                "<html><center><b>%s</b><br>by %s (%d)<br>%d pages</center></html>",
+                book.getTitle(), book.getAuthorName(), book.getYear(), book.getNumberOfPages()
+        ));
 
-        } catch (NumberFormatException e) {
-            showMessage("Please enter a valid number!", Color.RED);
-        } catch (Exception e) {
-            showMessage("Error: " + e.getMessage(), Color.RED);
+        // Load image
+        String imagePath = book.getCover();
+        if (imagePath == null || imagePath.trim().isEmpty()) {
+            imagePath = "Book" + bookId + ".jpg";
         }
+
+        loadImage(imagePath);
     }
 
     private void loadImage(String imagePath) {
-        try {
-            File imageFile = new File(imagePath);
-
-            if (!imageFile.exists()) {
-                // Try alternative paths
-                String[] paths = {
-                        imagePath,
-                        "covers/" + imagePath,
-                        "images/" + imagePath
-                };
-
-                boolean found = false;
-                for (String path : paths) {
-                    File file = new File(path);
-                    if (file.exists()) {
-                        imageFile = file;
-                        found = true;
-                        break;
-                    }
-                }
-
-                if (!found) {
-                    showMessage("Image not found: " + imagePath, Color.ORANGE);
-                    return;
-                }
-            }
+        CoverImageLoader loader = CoverImageLoader.getShared();
+        BufferedImage cached = loader.getCached(imagePath, COVER_WIDTH, COVER_HEIGHT);
+        if (cached != null) {
+            showImage(cached);
+            return;
+        }
 
-            BufferedImage image = ImageIO.read(imageFile);
-            if (image != null) {
-                ImageIcon icon = new ImageIcon(image.getScaledInstance(280, 380, Image.SCALE_SMOOTH));
-                imageLabel.setIcon(icon);
-                imageLabel.setText("");
-            } else {
-                showMessage("Invalid image file", Color.RED);
-            }
+        // Decode and scale in the background; only the latest requested cover is shown
+        showImage(loader.getPlaceholder(COVER_WIDTH, COVER_HEIGHT));
+        AsyncDataService.loadLatest("cover.image", () -> loader.load(imagePath, COVER_WIDTH, COVER_HEIGHT),
+                this::showImage,
+                e -> {
+                    if (e instanceof FileNotFoundException) {
+                        showMessage(e.getMessage(), Color.ORANGE);
+                    } else {
+                        showMessage("Error loading image: " + e.getMessage(), Color.RED);
+                    }
+                });
+    }
 
-        } catch (Exception e) {
-            showMessage("Error loading image: " + e.getMessage(), Color.RED);
-        }
+    private void showImage(BufferedImage image) {
+        imageLabel.setIcon(new ImageIcon(image));
+        imageLabel.setText("");
     }
 
     private void showMessage(String message, Color color) {
@@ -0,0 +1,200 @@
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Bounded cache of single-book views (book + the user's user_books data), keyed
+ * by user and bookId.
+ *
+ * Seeded from the rows the books table already loaded, so selecting a row does not
+ * re-query it. Entries older than the TTL are still returned by peek() for immediate
+ * display, but get() treats them as missing so the caller refreshes them.
+ *
+ * A read brackets its query with beginLoad()/endLoad() and passes the start sequence
+ * to put(). Rows invalidated or changed after the load began are not stored, so a row
+ * read just before a write is never cached as fresh after it (as in CatalogCache).
+ */
+public class BookDetailCache {
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    // Least recently used evicted first. Guarded by "this".
+    private final LinkedHashMap<Long, Entry> entries;
+
+    // Sequence number of the latest invalidation, clear() or in-place change. Guarded by "this".
+    private long sequence = 0;
+    private long clearedAt = 0;
+    // Changes made while loads were in flight: user+book key / book id -> sequence
+    private final Map<Long, Long> changedAt = new HashMap<>();
+    private final Map<Integer, Long> bookChangedAt = new HashMap<>();
+    // Start sequence of each load in flight -> number of loads
+    private final TreeMap<Long, Integer> loadsInFlight = new TreeMap<>();
+
+    private long hits = 0;
+    private long misses = 0;
+
+    public BookDetailCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<Long, Entry>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > BookDetailCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Cached book if it is younger than the TTL, otherwise null
+     */
+    public synchronized Book get(int userId, int bookId) {
+        Entry entry = entries.get(key(userId, bookId));
+        if (entry == null || isExpired(entry)) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.book;
+    }
+
+    /**
+     * Cached book regardless of age, or null. Does not count as a hit or miss.
+     */
+    public synchronized Book peek(int userId, int bookId) {
+        Entry entry = entries.get(key(userId, bookId));
+        return entry != null ? entry.book : null;
+    }
+
+    public synchronized boolean isFresh(int userId, int bookId) {
+        Entry entry = entries.get(key(userId, bookId));
+        return entry != null && !isExpired(entry);
+    }
+
+    /**
+     * Call before querying rows to put(); returns the sequence to pass to put() and endLoad()
+     */
+    public synchronized long beginLoad() {
+        loadsInFlight.merge(sequence, 1, Integer::sum);
+        return sequence;
+    }
+
+    /**
+     * Call when the load started with beginLoad() is done, whether or not it succeeded
+     */
+    public synchronized void endLoad(long loadStart) {
+        loadsInFlight.computeIfPresent(loadStart, (start, count) -> count > 1 ? count - 1 : null);
+        if (loadsInFlight.isEmpty()) {
+            changedAt.clear();
+            bookChangedAt.clear();
+        } else {
+            // Changes no load in flight started before are of no use any more
+            long oldest = loadsInFlight.firstKey();
+            changedAt.values().removeIf(seq -> seq <= oldest);
+            bookChangedAt.values().removeIf(seq -> seq <= oldest);
+        }
+    }
+
+    /**
+     * Store a book read by the load that began at loadStart, unless it changed since
+     */
+    public synchronized void put(int userId, Book book, long loadStart) {
+        if (!changedSince(userId, book.getBookId(), loadStart)) {
+            entries.put(key(userId, book.getBookId()), new Entry(book, System.currentTimeMillis()));
+        }
+    }
+
+    public synchronized void putAll(int userId, Collection<Book> books, long loadStart) {
+        long now = System.currentTimeMillis();
+        for (Book book : books) {
+            if (!changedSince(userId, book.getBookId(), loadStart)) {
+                entries.put(key(userId, book.getBookId()), new Entry(book, now));
+            }
+        }
+    }
+
+    /**
+     * A book's data changed for every user (catalog fields, cover, deletion)
+     */
+    public synchronized void invalidateBook(int bookId) {
+        entries.values().removeIf(entry -> entry.book.getBookId() == bookId);
+        sequence++;
+        if (!loadsInFlight.isEmpty()) {
+            bookChangedAt.put(bookId, sequence);
+        }
+    }
+
+    /**
+     * One user's user_books row for a book changed
+     */
+    public synchronized void invalidate(int userId, int bookId) {
+        entries.remove(key(userId, bookId));
+        userBookChanged(userId, bookId);
+    }
+
+    /**
+     * Change the user's status and/or rating (null = unchanged) of a cached book in place,
+     * keeping its age; used for writes that reach the database later
+     */
+    public synchronized void applyUserValues(int userId, int bookId, Integer readStatus, Integer rating) {
+        // A load in flight read the row without this change
+        userBookChanged(userId, bookId);
+        Entry entry = entries.get(key(userId, bookId));
+        if (entry == null) {
+            return;
+        }
+        Book book = entry.book.copy();
+        if (readStatus != null) book.setReadStatus(readStatus);
+        if (rating != null) book.setRating(rating);
+        entries.put(key(userId, bookId), new Entry(book, entry.loadedAt));
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        clearedAt = ++sequence;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private void userBookChanged(int userId, int bookId) {
+        sequence++;
+        if (!loadsInFlight.isEmpty()) {
+            changedAt.put(key(userId, bookId), sequence);
+        }
+    }
+
+    private boolean changedSince(int userId, int bookId, long loadStart) {
+        return clearedAt > loadStart
+                || changedAt.getOrDefault(key(userId, bookId), 0L) > loadStart
+                || bookChangedAt.getOrDefault(bookId, 0L) > loadStart;
+    }
+
+    private boolean isExpired(Entry entry) {
+        return System.currentTimeMillis() - entry.loadedAt > ttlMillis;
+    }
+
+    private static long key(int userId, int bookId) {
+        return ((long) userId << 32) | (bookId & 0xFFFFFFFFL);
+    }
+
+    private static final class Entry {
+        final Book book;
+        final long loadedAt;
+
+        Entry(Book book, long loadedAt) {
+            this.book = book;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
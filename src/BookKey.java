@@ -0,0 +1,25 @@
+/**
+ * Position of a book in (title, bookId) order, used for keyset pagination.
+ */
+public class BookKey {
+    private final String title;
+    private final int bookId;
+
+    public BookKey(String title, int bookId) {
+        this.title = title;
+        this.bookId = bookId;
+    }
+
+    public static BookKey of(Book book) {
+        return new BookKey(book.getTitle(), book.getBookId());
+    }
+
+    public String getTitle() { return title; }
+
+    public int getBookId() { return bookId; }
+
+    @Override
+    public String toString() {
+        return title + " #" + bookId;
+    }
+}
@@ -0,0 +1,133 @@
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.util.List;
+
+/**
+ * Search box over titles, authors, descriptions and the user's comments.
+ * Results update as the user types (see DatabaseHelper.searchBooks).
+ */
+public class BookSearchPanel extends JPanel {
+    private static final int TYPING_DELAY_MS = 120;
+
+    private final UserSession session;
+
+    private JTextField searchField;
+    private JLabel resultLabel;
+    private JList<Book> resultList;
+    private JTextArea detailsArea;
+    private Timer typingTimer;
+
+    public BookSearchPanel(UserSession session) {
+        this.session = session;
+        setLayout(new BorderLayout());
+        setBorder(BorderFactory.createTitledBorder("🔍 Search Books"));
+
+        createComponents();
+        layoutComponents();
+        addListeners();
+    }
+
+    private void createComponents() {
+        searchField = new JTextField(30);
+        searchField.setToolTipText("Title, author, description or your comments");
+        resultLabel = new JLabel(" ");
+
+        resultList = new JList<>();
+        resultList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+
+        detailsArea = new JTextArea();
+        detailsArea.setEditable(false);
+        detailsArea.setLineWrap(true);
+        detailsArea.setWrapStyleWord(true);
+
+        // Wait for a short pause in typing before searching
+        typingTimer = new Timer(TYPING_DELAY_MS, e -> search());
+        typingTimer.setRepeats(false);
+    }
+
+    private void layoutComponents() {
+        JPanel topPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        topPanel.add(new JLabel("Search:"));
+        topPanel.add(searchField);
+        topPanel.add(resultLabel);
+
+        JScrollPane detailsScroll = new JScrollPane(detailsArea);
+        detailsScroll.setPreferredSize(new Dimension(350, 200));
+
+        JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT,
+                new JScrollPane(resultList), detailsScroll);
+        splitPane.setResizeWeight(0.6);
+
+        add(topPanel, BorderLayout.NORTH);
+        add(splitPane, BorderLayout.CENTER);
+    }
+
+    private void addListeners() {
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                typingTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                typingTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                typingTimer.restart();
+            }
+        });
+        searchField.addActionListener(e -> {
+            typingTimer.stop();
+            search();
+        });
+
+        resultList.addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) {
+                showDetails(resultList.getSelectedValue());
+            }
+        });
+    }
+
+    private void search() {
+        String query = searchField.getText();
+        if (query.trim().isEmpty()) {
+            // A search still running for the text that was cleared must not fill the list
+            AsyncDataService.cancelLatest("search.books");
+            resultList.setListData(new Book[0]);
+            resultLabel.setText(" ");
+            return;
+        }
+
+        // Only the latest query's results are shown
+        AsyncDataService.loadLatest("search.books", () -> DatabaseHelper.searchBooks(session, query), this::showResults);
+    }
+
+    private void showResults(List<Book> books) {
+        resultList.setListData(books.toArray(new Book[0]));
+        resultLabel.setText(books.isEmpty() ? "No matches" : books.size() + " match(es)");
+        detailsArea.setText("");
+    }
+
+    private void showDetails(Book book) {
+        if (book == null) {
+            detailsArea.setText("");
+            return;
+        }
+
+        detailsArea.setText(String.format(
+                "📚 %s\n✍️ %s (%d)\n📊 %s %s\n\n📝 %s\n\n💭 %s",
+                book.getTitle(),
+                book.getAuthorName(),
+                book.getYear(),
+                book.getReadStatusText(),
+                book.getRating() > 0 ? book.getRatingStars() : "",
+                book.getAbout() != null ? book.getAbout() : "No description available",
+                book.getComments() != null && !book.getComments().isEmpty() ? book.getComments() : "No comments"
+        ));
+    }
+}
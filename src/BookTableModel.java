@@ -0,0 +1,512 @@
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Table model for the books table that loads rows a page at a time.
+ *
+ * Pages are fetched with keyset pagination (DatabaseHelper.getBooksPage) when the
+ * JTable first asks for one of their rows, i.e. when the viewport scrolls to them.
+ * Only a bounded number of pages is kept; each loaded page fires one update event.
+ *
+ * Once attached to its table the model follows DatabaseHelper's book change events:
+ * a changed, added or moved book updates, inserts or moves just its row in the loaded
+ * pages, so selection and scroll position survive edits.
+ */
+public class BookTableModel extends AbstractTableModel implements BookChangeListener {
+    private static final String[] COLUMNS = {"ID", "Title", "Author", "Year", "Pages", "Status", "Rating"};
+    static final int DEFAULT_PAGE_SIZE = 200;
+    private static final int DEFAULT_MAX_PAGES = 50;
+
+    private final UserSession session;
+    private final int pageSize;
+    private final int maxPages;
+
+    private JTable table;
+    private String tableName = "books";
+    private int rowCount = 0;
+    private int generation = 0; // bumped on reload so late page loads and change events are dropped
+    private int requestCount = 0;
+    private int layoutVersion = 0; // bumped whenever rows may change position
+
+    // Loaded pages, least recently used evicted first
+    private final LinkedHashMap<Integer, List<Book>> pages;
+    // Key of the last row of each page seen so far, so the next page can be fetched by keyset
+    private final Map<Integer, BookKey> pageEndKeys = new HashMap<>();
+    // Page index -> request number of the load in flight; a page load is only used if it is still the one here
+    private final Map<Integer, Integer> loading = new HashMap<>();
+    // Books whose user values changed since the last refresh; guarded by itself
+    private final Set<Integer> changedUserBooks = new HashSet<>();
+
+    public BookTableModel(UserSession session) {
+        this(session, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+    }
+
+    public BookTableModel(UserSession session, int pageSize, int maxPages) {
+        this.session = session;
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+        this.pages = new LinkedHashMap<Integer, List<Book>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Book>> eldest) {
+                return size() > BookTableModel.this.maxPages;
+            }
+        };
+    }
+
+    /**
+     * Drop all loaded pages and re-count the catalog in the background. Call on the EDT.
+     */
+    public void reload() {
+        reload("books");
+    }
+
+    /**
+     * Same as reload(); the table name labels the TableReload flight recorder event
+     */
+    public void reload(String table) {
+        tableName = table;
+        layoutVersion++;
+        final int requestGeneration = ++generation;
+        pages.clear();
+        pageEndKeys.clear();
+        loading.clear();
+
+        LibraryEvents.TableReload event = new LibraryEvents.TableReload();
+        event.begin();
+        AsyncDataService.load(DatabaseHelper::getBookCount, count -> {
+            if (requestGeneration != generation) {
+                return;
+            }
+            rowCount = count;
+            fireTableDataChanged();
+
+            event.table = table;
+            event.rows = count;
+            event.commit();
+        });
+    }
+
+    /**
+     * Show a count and first page loaded elsewhere (LibrarySnapshot) without querying.
+     * Call on the EDT.
+     */
+    public void prime(int count, List<Book> firstPage) {
+        ++generation;
+        layoutVersion++;
+        pages.clear();
+        pageEndKeys.clear();
+        loading.clear();
+
+        rowCount = count;
+        List<Book> page = new ArrayList<>(firstPage.size() > pageSize ? firstPage.subList(0, pageSize) : firstPage);
+        pages.put(0, page);
+        if (!page.isEmpty()) {
+            pageEndKeys.put(0, BookKey.of(page.get(page.size() - 1)));
+        }
+        fireTableDataChanged();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false; // Read-only table
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Book book = getBookAt(row);
+        if (book == null) {
+            return column == 1 ? "Loading..." : null;
+        }
+
+        switch (column) {
+            case 0: return book.getBookId();
+            case 1: return book.getTitle();
+            case 2: return book.getAuthorName();
+            case 3: return book.getYear();
+            case 4: return book.getNumberOfPages();
+            case 5: return book.getReadStatusText();
+            case 6: return book.getRatingStars();
+            default: return null;
+        }
+    }
+
+    /**
+     * The book shown in a row, or null if its page has not been loaded yet
+     * (in which case loading is started).
+     */
+    public Book getBookAt(int row) {
+        Book book = peekBookAt(row);
+        if (book == null && row >= 0 && row < rowCount && !pages.containsKey(row / pageSize)) {
+            requestPage(row / pageSize);
+        }
+        return book;
+    }
+
+    /**
+     * The book shown in a row if its page is loaded; never starts a page load
+     */
+    private Book peekBookAt(int row) {
+        if (row < 0 || row >= rowCount) {
+            return null;
+        }
+        List<Book> page = pages.get(row / pageSize);
+        int offset = row % pageSize;
+        return page != null && offset < page.size() ? page.get(offset) : null;
+    }
+
+    /**
+     * Book ID shown in a row, or -1 if the row is not loaded yet
+     */
+    public int getBookIdAt(int row) {
+        Book book = getBookAt(row);
+        return book != null ? book.getBookId() : -1;
+    }
+
+    /**
+     * Book IDs of the given rows (ascending, as from JTable.getSelectedRows) without
+     * loading their pages: loaded rows are read from the pages, each run of other rows is
+     * read with one range query. Completes on the EDT, exceptionally if any row could not
+     * be resolved or the rows moved meanwhile, so callers never act on part of the rows.
+     * Call on the EDT.
+     */
+    public CompletableFuture<int[]> getBookIdsAt(int[] rows) {
+        int[] bookIds = new int[rows.length];
+        List<int[]> runs = new ArrayList<>(); // {index into rows, length} of rows that are not loaded
+        for (int i = 0; i < rows.length; i++) {
+            Book book = peekBookAt(rows[i]);
+            if (book != null) {
+                bookIds[i] = book.getBookId();
+                continue;
+            }
+            int[] run = runs.isEmpty() ? null : runs.get(runs.size() - 1);
+            if (run != null && run[0] + run[1] == i && rows[i - 1] == rows[i] - 1) {
+                run[1]++;
+            } else {
+                runs.add(new int[]{i, 1});
+            }
+        }
+        if (runs.isEmpty()) {
+            return CompletableFuture.completedFuture(bookIds);
+        }
+
+        final int version = layoutVersion;
+        List<CompletableFuture<List<Integer>>> lookups = new ArrayList<>();
+        for (int[] run : runs) {
+            int firstRow = rows[run[0]];
+            int count = run[1];
+            // Keyset from the row before the run when it is loaded, row offset otherwise
+            Book before = peekBookAt(firstRow - 1);
+            BookKey after = before != null ? BookKey.of(before) : null;
+            lookups.add(AsyncDataService.submit(() -> DatabaseHelper.getBookIdRange(after, firstRow, count)));
+        }
+        return CompletableFuture.allOf(lookups.toArray(new CompletableFuture<?>[0])).thenApplyAsync(ignored -> {
+            if (version != layoutVersion) {
+                throw new IllegalStateException("the table changed while the selection was read, please select again");
+            }
+            for (int k = 0; k < runs.size(); k++) {
+                int[] run = runs.get(k);
+                List<Integer> found = lookups.get(k).join();
+                if (found.size() != run[1]) {
+                    throw new IllegalStateException("some selected rows could not be read");
+                }
+                for (int i = 0; i < run[1]; i++) {
+                    bookIds[run[0] + i] = found.get(i);
+                }
+            }
+            return bookIds;
+        }, AsyncDataService.EDT);
+    }
+
+    /**
+     * Show this model in the table and follow book changes from DatabaseHelper. Call on the EDT.
+     */
+    public void attach(JTable table) {
+        this.table = table;
+        DatabaseHelper.addBookChangeListener(this);
+    }
+
+    /**
+     * Stop following book changes (when the table's window is disposed)
+     */
+    public void detach() {
+        DatabaseHelper.removeBookChangeListener(this);
+        table = null;
+    }
+
+    /**
+     * Replace the loaded row showing this book (matched by ID) and repaint only that row;
+     * a book on a page that is not loaded is picked up when the page is. Call on the EDT.
+     */
+    public void updateBook(Book book) {
+        int row = findRow(book.getBookId());
+        if (row >= 0) {
+            pages.get(row / pageSize).set(row % pageSize, book);
+            fireTableRowsUpdated(row, row);
+        }
+    }
+
+    /**
+     * Called by DatabaseHelper on the thread that made the change. The book is read in the
+     * background, then its row is updated, inserted, moved or removed on the EDT. Its new
+     * position is only counted in the database when it is not on a loaded page or its
+     * title changed.
+     */
+    @Override
+    public void bookChanged(int userId, int bookId, BookChangeListener.Type type) {
+        if (userId >= 0 && userId != session.getUserId()) {
+            return;
+        }
+        if (userId >= 0 && type == BookChangeListener.Type.UPDATED) {
+            // Status, rating or comments: the row does not move. Batches refetch their rows together.
+            boolean first;
+            synchronized (changedUserBooks) {
+                first = changedUserBooks.isEmpty();
+                changedUserBooks.add(bookId);
+            }
+            if (first) {
+                SwingUtilities.invokeLater(this::refreshChangedUserBooks);
+            }
+            return;
+        }
+        AsyncDataService.EDT.execute(() -> {
+            final int requestGeneration = generation;
+            if (type == BookChangeListener.Type.DELETED) {
+                bookRemoved(bookId);
+                return;
+            }
+            AsyncDataService.load(() -> DatabaseHelper.getBookInfo(session, bookId), book -> {
+                if (requestGeneration != generation) {
+                    return; // Reloaded meanwhile, which already shows the change
+                }
+                if (book == null) {
+                    bookRemoved(bookId);
+                    return;
+                }
+                int row = findRow(bookId);
+                if (row >= 0 && peekBookAt(row).getTitle().equals(book.getTitle())) {
+                    applyChange(book, row, type); // Loaded and the title is unchanged: same row
+                } else {
+                    locateChangedBook(book, type, requestGeneration);
+                }
+            }, e -> System.err.println("Error applying change to book " + bookId + ": " + e.getMessage()));
+        });
+    }
+
+    /**
+     * Count the changed book's new row in the background, for books that are new, moved,
+     * or not on a loaded page, then apply the change on the EDT
+     */
+    private void locateChangedBook(Book book, BookChangeListener.Type type, int requestGeneration) {
+        AsyncDataService.load(() -> DatabaseHelper.getBookRowIndex(BookKey.of(book)), row -> {
+            if (requestGeneration == generation && row >= 0) {
+                applyChange(book, row, type);
+            }
+        }, e -> System.err.println("Error locating book " + book.getBookId() + ": " + e.getMessage()));
+    }
+
+    /**
+     * Refetch the loaded rows among the books whose user values changed, in one query
+     */
+    private void refreshChangedUserBooks() {
+        List<Integer> bookIds;
+        synchronized (changedUserBooks) {
+            bookIds = new ArrayList<>(changedUserBooks);
+            changedUserBooks.clear();
+        }
+        bookIds.removeIf(bookId -> findRow(bookId) < 0); // The rest show the change when their page loads
+        if (bookIds.isEmpty()) {
+            return;
+        }
+
+        final int requestGeneration = generation;
+        AsyncDataService.load(() -> DatabaseHelper.getBooksInfo(session, bookIds), books -> {
+            if (requestGeneration == generation) {
+                books.forEach(this::updateBook);
+            }
+        }, e -> System.err.println("Error refreshing " + bookIds.size() + " changed books: " + e.getMessage()));
+    }
+
+    private void applyChange(Book book, int newRow, BookChangeListener.Type type) {
+        int row = findRow(book.getBookId());
+        if (row == newRow) {
+            pages.get(row / pageSize).set(row % pageSize, book);
+            fireTableRowsUpdated(row, row);
+        } else if (row >= 0) {
+            // Title changed: move the row, and its selection with it
+            boolean selected = table != null && table.isRowSelected(row);
+            removeRow(row);
+            insertRow(newRow, book);
+            if (selected) {
+                table.getSelectionModel().setSelectionInterval(newRow, newRow);
+            }
+        } else if (type == BookChangeListener.Type.INSERTED) {
+            insertRow(Math.min(newRow, rowCount), book);
+        } else if (pages.containsKey(newRow / pageSize)) {
+            reload(tableName); // Moved here from a page that is not loaded; its old row is unknown
+        }
+        // Otherwise the book is on no loaded page and shows up changed when its page loads
+    }
+
+    private void bookRemoved(int bookId) {
+        int row = findRow(bookId);
+        if (row >= 0) {
+            removeRow(row);
+        } else {
+            reload(tableName); // Cannot tell which row it was
+        }
+    }
+
+    /**
+     * Insert a row; each following loaded page passes its last row on to the next one,
+     * pages beyond the first unloaded one are dropped because their rows shifted
+     */
+    private void insertRow(int row, Book book) {
+        int pageIndex = row / pageSize;
+        int offset = row % pageSize;
+        int lastTouched = pageIndex - 1;
+        Book carried = book;
+        List<Book> page = pages.get(pageIndex);
+        while (page != null && carried != null) {
+            page.add(Math.min(offset, page.size()), carried);
+            carried = page.size() > pageSize ? page.remove(page.size() - 1) : null;
+            lastTouched = pageIndex;
+            offset = 0;
+            page = pages.get(++pageIndex);
+        }
+
+        rowCount++;
+        layoutVersion++;
+        pagesShifted(row / pageSize, lastTouched, false);
+        fireTableRowsInserted(row, row);
+    }
+
+    /**
+     * Remove a row; each following loaded page passes its first row back to the one before
+     */
+    private void removeRow(int row) {
+        int pageIndex = row / pageSize;
+        int lastTouched = pageIndex - 1;
+        List<Book> page = pages.get(pageIndex);
+        boolean touched = page != null;
+        if (touched) {
+            page.remove(row % pageSize);
+            lastTouched = pageIndex;
+            List<Book> next;
+            while ((next = pages.get(lastTouched + 1)) != null && !next.isEmpty()) {
+                page.add(next.remove(0));
+                page = next;
+                lastTouched++;
+            }
+        }
+
+        rowCount--;
+        layoutVersion++;
+        // The last touched page is a row short unless it ends the table
+        boolean lastShort = touched && (lastTouched + 1) * pageSize <= rowCount;
+        pagesShifted(row / pageSize, lastTouched, lastShort);
+        fireTableRowsDeleted(row, row);
+    }
+
+    /**
+     * Fix page bookkeeping after rows from firstPage on moved by one: pages up to
+     * lastTouched were updated in place, everything after them is dropped and reloaded
+     * when shown. A short last page is fetched again to fill its final row.
+     */
+    private void pagesShifted(int firstPage, int lastTouched, boolean lastShort) {
+        pages.keySet().removeIf(index -> index > lastTouched);
+        pageEndKeys.keySet().removeIf(index -> index >= firstPage);
+        loading.keySet().removeIf(index -> index >= firstPage);
+        for (int index = firstPage; index <= lastTouched; index++) {
+            List<Book> page = pages.get(index);
+            if (!page.isEmpty() && !(lastShort && index == lastTouched)) {
+                pageEndKeys.put(index, BookKey.of(page.get(page.size() - 1)));
+            }
+        }
+        if (lastShort) {
+            requestPage(lastTouched);
+        }
+    }
+
+    /**
+     * Row of a book on a loaded page, or -1
+     */
+    private int findRow(int bookId) {
+        for (Map.Entry<Integer, List<Book>> entry : pages.entrySet()) {
+            List<Book> page = entry.getValue();
+            for (int i = 0; i < page.size(); i++) {
+                if (page.get(i).getBookId() == bookId) {
+                    return entry.getKey() * pageSize + i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void requestPage(int pageIndex) {
+        if (loading.containsKey(pageIndex)) {
+            return;
+        }
+
+        final int request = ++requestCount;
+        loading.put(pageIndex, request);
+        final BookKey knownStart = pageIndex == 0 ? null : pageEndKeys.get(pageIndex - 1);
+
+        AsyncDataService.load(() -> {
+            BookKey after = knownStart;
+            if (pageIndex > 0 && after == null) {
+                // Jumped past pages we have never loaded: find the row just before this page
+                after = DatabaseHelper.getBookKeyAt(pageIndex * pageSize - 1);
+                if (after == null) {
+                    return List.<Book>of();
+                }
+            }
+            return DatabaseHelper.getBooksPage(session, after, pageSize);
+        }, page -> {
+            // Dropped by a reload, or rows shifted under this page while it loaded
+            if (!loading.remove(pageIndex, request)) {
+                return;
+            }
+            pageLoaded(pageIndex, page);
+        }, e -> {
+            loading.remove(pageIndex, request);
+            System.err.println("Error loading books page " + pageIndex + ": " + e.getMessage());
+        });
+    }
+
+    private void pageLoaded(int pageIndex, List<Book> page) {
+        page = new ArrayList<>(page); // Rows are inserted and removed in place by change events
+        pages.put(pageIndex, page);
+        if (!page.isEmpty()) {
+            pageEndKeys.put(pageIndex, BookKey.of(page.get(page.size() - 1)));
+        }
+
+        int first = pageIndex * pageSize;
+        int last = Math.min(rowCount, first + pageSize) - 1;
+        if (last >= first) {
+            fireTableRowsUpdated(first, last);
+        }
+    }
+}
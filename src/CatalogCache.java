@@ -0,0 +1,518 @@
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide cache behind DatabaseHelper.getAllBooks().
+ *
+ * The shared books/authors catalog is loaded once; each user gets a small overlay
+ * of their user_books rows (status, rating, comments, releaseDate). Book views are
+ * built by combining the two. Writes invalidate single entries, which are reloaded
+ * together on the next read.
+ */
+public class CatalogCache {
+
+    /**
+     * Supplies pooled connections (DatabaseHelper::getConnection)
+     */
+    public interface ConnectionSource {
+        Connection getConnection() throws SQLException;
+    }
+
+    private static final String CATALOG_SELECT =
+            "SELECT b.bookId, b.authorId, b.title, b.year, b.numberOfPages, b.cover, b.about, " +
+            "CONCAT(a.name, ' ', a.surname) as authorName " +
+            "FROM books b " +
+            "JOIN authors a ON b.authorId = a.authorId ";
+    private static final String SQL_CATALOG = CATALOG_SELECT + "ORDER BY b.title, b.bookId";
+    // Same order as SQL_CATALOG and the keyset pages, so the database's collation decides it everywhere
+    private static final String SQL_CATALOG_ORDER = "SELECT bookId FROM books ORDER BY title, bookId";
+    private static final String SQL_OVERLAY =
+            "SELECT bookId, readStatus, rating, comments, releaseDate FROM user_books WHERE userId = ?";
+    private static final String SQL_OVERLAY_ENTRIES =
+            "SELECT bookId, readStatus, rating, comments, releaseDate FROM user_books WHERE userId = ? AND bookId IN ";
+
+    static final int DEFAULT_MAX_CACHED_USERS = 1024;
+
+    private final ConnectionSource connections;
+    private final int maxCachedUsers;
+
+    // Held while querying the database, so concurrent readers don't run the same loads
+    // twice: one for the catalog and one per user, so a full catalog load never holds
+    // up a user's overlay. "this" is never held during a query, only to take a snapshot
+    // of what is stale and to publish the result; a load lock is always taken first.
+    private final Object catalogLoadLock = new Object();
+    private final Map<Integer, Object> overlayLoadLocks = new ConcurrentHashMap<>();
+
+    // Everything below is guarded by "this".
+
+    // Bumped by invalidateAll(); a load that started before it is discarded
+    private long generation = 0;
+    // Sequence number of the latest invalidation. A load only clears invalidations
+    // made before it started; later ones stay stale and are read again.
+    private long invalidations = 0;
+
+    // Catalog, null until loaded
+    private Catalog catalog = null;
+    private final Map<Integer, Long> staleBooks = new HashMap<>();
+
+    // Per-user overlays, least recently used evicted first
+    private final LinkedHashMap<Integer, UserOverlay> overlays =
+            new LinkedHashMap<Integer, UserOverlay>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, UserOverlay> eldest) {
+                    return size() > maxCachedUsers;
+                }
+            };
+
+    public CatalogCache(ConnectionSource connections) {
+        this(connections, DEFAULT_MAX_CACHED_USERS);
+    }
+
+    /**
+     * @param maxCachedUsers users whose overlay is kept; the least recently used one beyond
+     *                       that is dropped and loaded again on its next read
+     */
+    public CatalogCache(ConnectionSource connections, int maxCachedUsers) {
+        this.connections = connections;
+        this.maxCachedUsers = Math.max(1, maxCachedUsers);
+    }
+
+    /**
+     * All catalog books with the given user's personal data, in title order
+     */
+    public List<Book> getAllBooks(int userId) throws SQLException {
+        Catalog catalog = refreshCatalog();
+        Map<Integer, UserBookEntry> rows = refreshOverlay(userId);
+
+        List<Book> books = new ArrayList<>(catalog.inOrder.size());
+        for (CatalogEntry entry : catalog.inOrder) {
+            books.add(entry.toBook(rows.get(entry.bookId)));
+        }
+        return books;
+    }
+
+    /**
+     * Load the catalog itself (no user data) if it is not loaded yet, e.g. before the first login
+     */
+    public void preload() throws SQLException {
+        refreshCatalog();
+    }
+
+    /**
+     * The given books with the user's personal data, in the order of the ids.
+     * Ids not in the catalog are skipped.
+     */
+    public List<Book> getBooks(int userId, int... bookIds) throws SQLException {
+        Catalog catalog = refreshCatalog();
+        Map<Integer, UserBookEntry> rows = refreshOverlay(userId);
+
+        List<Book> books = new ArrayList<>(bookIds.length);
+        for (int bookId : bookIds) {
+            CatalogEntry entry = catalog.byId.get(bookId);
+            if (entry != null) {
+                books.add(entry.toBook(rows.get(bookId)));
+            }
+        }
+        return books;
+    }
+
+    /**
+     * The catalog entry for a book changed (new book, edited fields or cover)
+     */
+    public synchronized void invalidateBook(int bookId) {
+        // Recorded even while the catalog is not loaded, in case a load is running
+        staleBooks.put(bookId, ++invalidations);
+    }
+
+    /**
+     * A user's user_books row changed or was removed
+     */
+    public synchronized void invalidateUserBook(int userId, int bookId) {
+        UserOverlay overlay = overlays.get(userId);
+        if (overlay != null) {
+            overlay.stale.put(bookId, ++invalidations);
+        }
+    }
+
+    /**
+     * Change a user's status and/or rating (null = unchanged) in the cached overlay right
+     * away, for writes that reach the database later. An overlay that is not loaded, or a
+     * row already marked stale, is left alone: it is re-read from the database, and
+     * DatabaseHelper writes the user's queued changes before any such read.
+     */
+    public synchronized void applyUserBookValues(int userId, int bookId, Integer readStatus, Integer rating) {
+        UserOverlay overlay = overlays.get(userId);
+        if (overlay == null || overlay.stale.containsKey(bookId)) {
+            return;
+        }
+        if (overlay.rows == null) {
+            // Still loading; the load may have read the row before this write reaches the database
+            overlay.stale.put(bookId, ++invalidations);
+            return;
+        }
+        UserBookEntry old = overlay.rows.get(bookId);
+        UserBookEntry updated = new UserBookEntry(
+                readStatus != null ? readStatus : old != null ? old.readStatus : 0,
+                rating != null ? rating : old != null ? old.rating : 0,
+                old != null ? old.comments : null,
+                old != null ? old.releaseDate : null);
+        // Copy on write, like refreshOverlay(), so readers holding the old map are unaffected
+        Map<Integer, UserBookEntry> rows = new HashMap<>(overlay.rows);
+        rows.put(bookId, updated);
+        overlay.rows = rows;
+    }
+
+    /**
+     * Drop everything; the next read reloads the whole catalog
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        catalog = null;
+        staleBooks.clear();
+        overlays.clear();
+    }
+
+    public synchronized boolean isCatalogLoaded() {
+        return catalog != null;
+    }
+
+    /**
+     * The catalog with every stale entry re-read
+     */
+    private Catalog refreshCatalog() throws SQLException {
+        synchronized (this) {
+            if (catalog != null && staleBooks.isEmpty()) {
+                return catalog;
+            }
+        }
+
+        synchronized (catalogLoadLock) {
+            while (true) {
+                long startGeneration;
+                long startInvalidations;
+                Catalog base;
+                Set<Integer> stale;
+                synchronized (this) {
+                    if (catalog != null && staleBooks.isEmpty()) {
+                        return catalog;
+                    }
+                    startGeneration = generation;
+                    startInvalidations = invalidations;
+                    base = catalog;
+                    stale = new HashSet<>(staleBooks.keySet());
+                }
+
+                Catalog loaded = base == null ? loadCatalog() : reloadEntries(base, stale);
+
+                synchronized (this) {
+                    if (generation != startGeneration) {
+                        continue; // invalidateAll() ran during the load
+                    }
+                    catalog = loaded;
+                    staleBooks.values().removeIf(seq -> seq <= startInvalidations);
+                    return loaded;
+                }
+            }
+        }
+    }
+
+    private Catalog loadCatalog() throws SQLException {
+        List<CatalogEntry> entries = new ArrayList<>();
+        try (Connection conn = connections.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_CATALOG);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                entries.add(CatalogEntry.from(rs));
+            }
+        }
+        return new Catalog(entries);
+    }
+
+    private Catalog reloadEntries(Catalog base, Set<Integer> stale) throws SQLException {
+        List<CatalogEntry> inOrder = new ArrayList<>(base.inOrder);
+        boolean reorder = false;
+
+        try (Connection conn = connections.getConnection()) {
+            Map<Integer, CatalogEntry> fresh = readEntries(conn, new ArrayList<>(stale));
+            for (int bookId : stale) {
+                CatalogEntry old = base.byId.get(bookId);
+                CatalogEntry entry = fresh.get(bookId);
+                if (old == null && entry == null) {
+                    continue;
+                }
+                if (old == null || entry == null || !old.title.equals(entry.title)) {
+                    reorder = true;
+                    break;
+                }
+                inOrder.set(base.positions.get(bookId), entry);
+            }
+
+            if (reorder) {
+                Map<Integer, CatalogEntry> byId = new HashMap<>(base.byId);
+                for (int bookId : stale) {
+                    CatalogEntry entry = fresh.get(bookId);
+                    if (entry != null) {
+                        byId.put(bookId, entry);
+                    } else {
+                        byId.remove(bookId);
+                    }
+                }
+                // Ask the database for the order rather than sorting here, so the cache
+                // never disagrees with a full load or with the keyset pages
+                inOrder = new ArrayList<>(byId.size());
+                try (PreparedStatement stmt = conn.prepareStatement(SQL_CATALOG_ORDER);
+                     ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        // Books added since the entries were read are stale and come next time
+                        CatalogEntry entry = byId.get(rs.getInt("bookId"));
+                        if (entry != null) {
+                            inOrder.add(entry);
+                        }
+                    }
+                }
+            }
+        }
+        return new Catalog(inOrder);
+    }
+
+    /**
+     * The catalog entries of the given books, one padded IN (...) query per SqlLists.MAX_SIZE ids
+     */
+    private static Map<Integer, CatalogEntry> readEntries(Connection conn, List<Integer> bookIds) throws SQLException {
+        Map<Integer, CatalogEntry> entries = new HashMap<>();
+        for (int from = 0; from < bookIds.size(); from += SqlLists.MAX_SIZE) {
+            List<Integer> chunk = SqlLists.padded(bookIds.subList(from, Math.min(bookIds.size(), from + SqlLists.MAX_SIZE)));
+            String query = CATALOG_SELECT + "WHERE b.bookId IN (" + SqlLists.placeholders(chunk.size()) + ")";
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setInt(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        CatalogEntry entry = CatalogEntry.from(rs);
+                        entries.put(entry.bookId, entry);
+                    }
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * The user's rows with every stale entry re-read
+     */
+    private Map<Integer, UserBookEntry> refreshOverlay(int userId) throws SQLException {
+        synchronized (this) {
+            UserOverlay overlay = overlays.get(userId);
+            if (overlay != null && overlay.rows != null && overlay.stale.isEmpty()) {
+                return overlay.rows;
+            }
+        }
+
+        synchronized (overlayLoadLocks.computeIfAbsent(userId, id -> new Object())) {
+            while (true) {
+                long startGeneration;
+                long startInvalidations;
+                UserOverlay overlay;
+                Set<Integer> stale;
+                synchronized (this) {
+                    overlay = overlays.get(userId);
+                    if (overlay == null) {
+                        // Registered before loading so that invalidations during the load are kept
+                        overlay = new UserOverlay();
+                        overlays.put(userId, overlay);
+                    }
+                    if (overlay.rows != null && overlay.stale.isEmpty()) {
+                        return overlay.rows;
+                    }
+                    startGeneration = generation;
+                    startInvalidations = invalidations;
+                    stale = new HashSet<>(overlay.stale.keySet());
+                }
+
+                boolean full = overlay.rows == null;
+                Map<Integer, UserBookEntry> loaded = full ? loadOverlay(userId) : reloadOverlayEntries(userId, stale);
+
+                synchronized (this) {
+                    if (generation != startGeneration) {
+                        continue; // invalidateAll() ran during the load
+                    }
+                    Map<Integer, UserBookEntry> rows;
+                    if (full) {
+                        rows = loaded;
+                    } else {
+                        // Start from the current rows: applyUserBookValues() may have changed
+                        // other rows during the load
+                        rows = new HashMap<>(overlay.rows);
+                        for (Map.Entry<Integer, UserBookEntry> entry : loaded.entrySet()) {
+                            if (entry.getValue() != null) {
+                                rows.put(entry.getKey(), entry.getValue());
+                            } else {
+                                rows.remove(entry.getKey());
+                            }
+                        }
+                    }
+                    // Swap in a new map so readers holding the old one are unaffected. If the
+                    // overlay was evicted meanwhile, the rows are still right for this read.
+                    overlay.rows = rows;
+                    overlay.stale.values().removeIf(seq -> seq <= startInvalidations);
+                    return rows;
+                }
+            }
+        }
+    }
+
+    private Map<Integer, UserBookEntry> loadOverlay(int userId) throws SQLException {
+        Map<Integer, UserBookEntry> rows = new HashMap<>();
+        try (Connection conn = connections.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_OVERLAY)) {
+            stmt.setInt(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.put(rs.getInt("bookId"), UserBookEntry.from(rs));
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * The given rows as they are now; null for rows that no longer exist
+     */
+    private Map<Integer, UserBookEntry> reloadOverlayEntries(int userId, Set<Integer> stale) throws SQLException {
+        List<Integer> bookIds = new ArrayList<>(stale);
+        Map<Integer, UserBookEntry> rows = new HashMap<>();
+        for (int bookId : bookIds) {
+            rows.put(bookId, null);
+        }
+        try (Connection conn = connections.getConnection()) {
+            for (int from = 0; from < bookIds.size(); from += SqlLists.MAX_SIZE) {
+                List<Integer> chunk = SqlLists.padded(bookIds.subList(from, Math.min(bookIds.size(), from + SqlLists.MAX_SIZE)));
+                String query = SQL_OVERLAY_ENTRIES + "(" + SqlLists.placeholders(chunk.size()) + ")";
+                try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                    stmt.setInt(1, userId);
+                    for (int i = 0; i < chunk.size(); i++) {
+                        stmt.setInt(i + 2, chunk.get(i));
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            rows.put(rs.getInt("bookId"), UserBookEntry.from(rs));
+                        }
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Shared, user-independent part of a book
+     */
+    static final class CatalogEntry {
+        final int bookId;
+        final int authorId;
+        final String title;
+        final String authorName;
+        final int year;
+        final int numberOfPages;
+        final String cover;
+        final String about;
+
+        CatalogEntry(int bookId, int authorId, String title, String authorName, int year,
+                     int numberOfPages, String cover, String about) {
+            this.bookId = bookId;
+            this.authorId = authorId;
+            this.title = title;
+            this.authorName = authorName;
+            this.year = year;
+            this.numberOfPages = numberOfPages;
+            this.cover = cover;
+            this.about = about;
+        }
+
+        static CatalogEntry from(ResultSet rs) throws SQLException {
+            return new CatalogEntry(
+                    rs.getInt("bookId"),
+                    rs.getInt("authorId"),
+                    rs.getString("title"),
+                    rs.getString("authorName"),
+                    rs.getInt("year"),
+                    rs.getInt("numberOfPages"),
+                    rs.getString("cover"),
+                    rs.getString("about"));
+        }
+
+        Book toBook(UserBookEntry user) {
+            // Books outside the user's library read as status 0, rating 0 (same as the LEFT JOIN + COALESCE)
+            return new Book(bookId, authorId, title, authorName, year, numberOfPages, cover, about,
+                    user != null ? user.readStatus : 0,
+                    user != null ? user.rating : 0,
+                    user != null ? user.comments : null,
+                    user != null ? user.releaseDate : null);
+        }
+    }
+
+    /**
+     * One user's user_books row
+     */
+    static final class UserBookEntry {
+        final int readStatus;
+        final int rating;
+        final String comments;
+        final Date releaseDate;
+
+        UserBookEntry(int readStatus, int rating, String comments, Date releaseDate) {
+            this.readStatus = readStatus;
+            this.rating = rating;
+            this.comments = comments;
+            this.releaseDate = releaseDate;
+        }
+
+        static UserBookEntry from(ResultSet rs) throws SQLException {
+            return new UserBookEntry(
+                    rs.getInt("readStatus"),
+                    rs.getInt("rating"),
+                    rs.getString("comments"),
+                    rs.getDate("releaseDate"));
+        }
+    }
+
+    /**
+     * A loaded catalog; never changed once published
+     */
+    private static final class Catalog {
+        final List<CatalogEntry> inOrder;
+        final Map<Integer, CatalogEntry> byId;
+        // Book id -> index in inOrder
+        final Map<Integer, Integer> positions;
+
+        Catalog(List<CatalogEntry> inOrder) {
+            this.inOrder = inOrder;
+            this.byId = new HashMap<>(inOrder.size() * 2);
+            this.positions = new HashMap<>(inOrder.size() * 2);
+            for (int i = 0; i < inOrder.size(); i++) {
+                CatalogEntry entry = inOrder.get(i);
+                byId.put(entry.bookId, entry);
+                positions.put(entry.bookId, i);
+            }
+        }
+    }
+
+    private static final class UserOverlay {
+        // Null until the first load finishes
+        Map<Integer, UserBookEntry> rows = null;
+        // Book id -> sequence number of its latest invalidation
+        final Map<Integer, Long> stale = new HashMap<>();
+    }
+}
@@ -0,0 +1,500 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Bulk import of book catalogs from CSV, JSON array or JSON Lines files.
+ *
+ * Records are read one at a time and written in chunks: authors and books are
+ * resolved against in-memory maps loaded once at the start, new rows go in as
+ * batched multi-row INSERTs, and every chunk commits together with a checkpoint
+ * row in import_checkpoints. Running the same file again after a failure resumes
+ * after the last committed chunk; books already in the catalog are not added twice.
+ *
+ * Recognized fields (case and "_" are ignored): title, authorName + authorSurname
+ * (or a single "author"), year, numberOfPages (or "pages"), cover, about, website,
+ * and readStatus, rating, comments when importing into a user's library. A book
+ * already in that library keeps any of these the record leaves out or empty.
+ *
+ * Usage: java CatalogImporter <file> [--user <userId>] [--chunk <rows>] [--restart]
+ */
+public class CatalogImporter {
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+    private static final int MAX_WARNINGS = 20;
+
+    private static final String SQL_CREATE_CHECKPOINTS = "CREATE TABLE IF NOT EXISTS import_checkpoints (" +
+            "source VARCHAR(512) NOT NULL PRIMARY KEY, " +
+            "recordsDone BIGINT NOT NULL DEFAULT 0, " +
+            "updatedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP)";
+    private static final String SQL_READ_CHECKPOINT = "SELECT recordsDone FROM import_checkpoints WHERE source = ?";
+    private static final String SQL_SAVE_CHECKPOINT = "INSERT INTO import_checkpoints (source, recordsDone) VALUES (?, ?) " +
+            "ON DUPLICATE KEY UPDATE recordsDone = VALUES(recordsDone)";
+    private static final String SQL_DELETE_CHECKPOINT = "DELETE FROM import_checkpoints WHERE source = ?";
+
+    private static final String SQL_ALL_AUTHORS = "SELECT authorId, name, surname FROM authors";
+    private static final String SQL_ALL_BOOKS = "SELECT bookId, authorId, year, title FROM books";
+    private static final String SQL_INSERT_AUTHOR = "INSERT INTO authors (name, surname, website) VALUES (?, ?, ?)";
+    private static final String SQL_INSERT_BOOK = "INSERT INTO books (authorId, title, year, numberOfPages, cover, about) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+    // user_books columns a record may carry; only those it has are written
+    private static final String[] USER_COLUMNS = {"readStatus", "rating", "comments"};
+
+    /**
+     * Source of records; each record maps lower-cased field names to values
+     */
+    public interface RecordReader extends AutoCloseable {
+        /**
+         * The next record, or null at end of input
+         */
+        Map<String, String> next() throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    public record ImportResult(long recordsRead, long recordsSkipped, int booksAdded, int authorsAdded,
+                               int duplicates, int rejected, int addedToLibrary, long elapsedMillis) {
+        public double rowsPerSecond() {
+            return elapsedMillis == 0 ? 0 : (recordsRead - recordsSkipped) * 1000.0 / elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d records (%d resumed past), %d books and %d authors added, " +
+                            "%d already in catalog, %d rejected, %d added to library, %.1f s (%.0f rows/s)",
+                    recordsRead, recordsSkipped, booksAdded, authorsAdded, duplicates, rejected,
+                    addedToLibrary, elapsedMillis / 1000.0, rowsPerSecond());
+        }
+    }
+
+    private final Path file;
+    private final int userId;
+    private final int chunkSize;
+
+    // Catalog as of the last committed chunk
+    private final Map<String, Integer> authorIds = new HashMap<>();
+    private final Map<String, Integer> bookIds = new HashMap<>();
+
+    private long recordsRead = 0;
+    private int booksAdded = 0;
+    private int authorsAdded = 0;
+    private int duplicates = 0;
+    private int rejected = 0;
+    private int addedToLibrary = 0;
+
+    /**
+     * @param userId also add every imported book to this user's library, or 0 for catalog only
+     */
+    public CatalogImporter(Path file, int userId, int chunkSize) {
+        this.file = file;
+        this.userId = userId;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: java CatalogImporter <file.csv|file.json|file.jsonl> " +
+                    "[--user <userId>] [--chunk <rows>] [--restart]");
+            System.exit(1);
+        }
+
+        int userId = 0;
+        int chunkSize = DEFAULT_CHUNK_SIZE;
+        boolean restart = false;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--user": userId = Integer.parseInt(args[++i]); break;
+                case "--chunk": chunkSize = Integer.parseInt(args[++i]); break;
+                case "--restart": restart = true; break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+        }
+
+        try {
+            ImportResult result = new CatalogImporter(Paths.get(args[0]), userId, chunkSize).run(restart);
+            System.out.println("✅ Import finished: " + result);
+        } catch (IOException | SQLException e) {
+            System.err.println("❌ Import failed: " + e.getMessage());
+            System.err.println("Run the same command again to resume after the last committed chunk.");
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Import the file, resuming from its checkpoint unless restart is set
+     */
+    public ImportResult run(boolean restart) throws IOException, SQLException {
+        long start = System.currentTimeMillis();
+        String source = file.toAbsolutePath().normalize() + "|" + Files.size(file);
+
+        try (Connection conn = DatabaseHelper.openBulkConnection();
+             RecordReader reader = openReader(file)) {
+            createCheckpointTable(conn);
+            if (restart) {
+                deleteCheckpoint(conn, source);
+            }
+            long skip = readCheckpoint(conn, source);
+            if (skip > 0) {
+                System.out.println("⏩ Resuming " + file.getFileName() + " after record " + skip);
+            }
+            loadCatalog(conn);
+
+            conn.setAutoCommit(false);
+            List<Row> chunk = new ArrayList<>(chunkSize);
+            Map<String, String> record;
+            while ((record = reader.next()) != null) {
+                recordsRead++;
+                if (recordsRead <= skip) {
+                    continue;
+                }
+                Row row = parse(record);
+                if (row != null) {
+                    chunk.add(row);
+                }
+                if (recordsRead % chunkSize == 0) {
+                    writeChunk(conn, chunk, source);
+                    chunk.clear();
+                    printProgress(start, skip);
+                }
+            }
+            if (recordsRead > skip && recordsRead % chunkSize != 0) {
+                writeChunk(conn, chunk, source);
+            }
+
+            if (userId > 0 && addedToLibrary > 0) {
+                for (String drift : UserStats.rebuild(conn, userId)) {
+                    System.out.println("📊 " + drift);
+                }
+                conn.commit();
+            }
+
+            return new ImportResult(recordsRead, Math.min(skip, recordsRead), booksAdded, authorsAdded,
+                    duplicates, rejected, addedToLibrary, System.currentTimeMillis() - start);
+        } finally {
+            if (booksAdded > 0 || authorsAdded > 0 || addedToLibrary > 0) {
+                DatabaseHelper.invalidateCaches();
+            }
+        }
+    }
+
+    private static RecordReader openReader(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        try {
+            if (name.endsWith(".csv")) {
+                return new CsvRecordReader(in);
+            }
+            if (name.endsWith(".json") || name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+                return new JsonRecordReader(in);
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        in.close();
+        throw new IOException("Unsupported file type (expected .csv, .json or .jsonl): " + file.getFileName());
+    }
+
+    // ---- Parsing ----
+
+    /**
+     * A validated input record, or null (and counted as rejected) if it cannot be imported
+     */
+    private Row parse(Map<String, String> record) {
+        Map<String, String> fields = new HashMap<>();
+        for (Map.Entry<String, String> field : record.entrySet()) {
+            String value = field.getValue() == null ? "" : field.getValue().trim();
+            fields.put(field.getKey().replace("_", "").replace(" ", ""), value);
+        }
+
+        String title = fields.getOrDefault("title", "");
+        String name = fields.getOrDefault("authorname", "");
+        String surname = fields.getOrDefault("authorsurname", "");
+        if (name.isEmpty() && surname.isEmpty()) {
+            // A single "author" column: the last word is the surname
+            String author = fields.getOrDefault("author", "");
+            int split = author.lastIndexOf(' ');
+            name = split > 0 ? author.substring(0, split).trim() : author;
+            surname = split > 0 ? author.substring(split + 1) : "";
+        }
+        if (title.isEmpty() || name.isEmpty()) {
+            reject("missing title or author");
+            return null;
+        }
+
+        try {
+            Row row = new Row();
+            row.title = title;
+            row.name = name;
+            row.surname = surname;
+            row.website = fields.getOrDefault("website", "");
+            row.year = parseInt(fields.get("year"));
+            row.pages = parseInt(fields.containsKey("numberofpages") ? fields.get("numberofpages") : fields.get("pages"));
+            row.cover = fields.getOrDefault("cover", "");
+            row.about = fields.getOrDefault("about", "");
+            row.readStatus = parseInt(fields.get("readstatus"));
+            row.rating = parseInt(fields.get("rating"));
+            row.comments = fields.getOrDefault("comments", "");
+            // Bit i set = the record has a value for USER_COLUMNS[i]
+            row.userColumns = (isPresent(fields.get("readstatus")) ? 1 : 0)
+                    | (isPresent(fields.get("rating")) ? 2 : 0)
+                    | (isPresent(fields.get("comments")) ? 4 : 0);
+            if (row.year < 0 || row.pages < 0 || row.readStatus < 0 || row.readStatus > 3
+                    || row.rating < 0 || row.rating > 5) {
+                reject("value out of range");
+                return null;
+            }
+            return row;
+        } catch (NumberFormatException e) {
+            reject("not a number: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean isPresent(String value) {
+        return value != null && !value.isEmpty();
+    }
+
+    private static int parseInt(String value) {
+        return value == null || value.isEmpty() ? 0 : Integer.parseInt(value);
+    }
+
+    private void reject(String reason) {
+        rejected++;
+        if (rejected <= MAX_WARNINGS) {
+            System.err.println("⚠️ Skipping record " + recordsRead + ": " + reason);
+        } else if (rejected == MAX_WARNINGS + 1) {
+            System.err.println("⚠️ More records skipped; see the rejected count at the end");
+        }
+    }
+
+    // ---- Writing ----
+
+    private void loadCatalog(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(SQL_ALL_AUTHORS)) {
+            while (rs.next()) {
+                authorIds.put(authorKey(rs.getString("name"), rs.getString("surname")), rs.getInt("authorId"));
+            }
+        }
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(SQL_ALL_BOOKS)) {
+            while (rs.next()) {
+                bookIds.put(bookKey(rs.getInt("authorId"), rs.getInt("year"), rs.getString("title")), rs.getInt("bookId"));
+            }
+        }
+        System.out.println("📚 Catalog loaded: " + authorIds.size() + " authors, " + bookIds.size() + " books");
+    }
+
+    /**
+     * Write one chunk and its checkpoint in a single transaction. The in-memory maps
+     * only take the new ids once the commit succeeded.
+     */
+    private void writeChunk(Connection conn, List<Row> chunk, String source) throws SQLException {
+        Map<String, Integer> newAuthorIds = new HashMap<>();
+        Map<String, Integer> newBookIds = new HashMap<>();
+        int chunkDuplicates = 0;
+        try {
+            // Step 1: Authors not seen before, in first-seen order
+            Map<String, Row> newAuthors = new LinkedHashMap<>();
+            for (Row row : chunk) {
+                String key = authorKey(row.name, row.surname);
+                if (!authorIds.containsKey(key)) {
+                    newAuthors.putIfAbsent(key, row);
+                }
+            }
+            if (!newAuthors.isEmpty()) {
+                try (PreparedStatement stmt = conn.prepareStatement(SQL_INSERT_AUTHOR, Statement.RETURN_GENERATED_KEYS)) {
+                    for (Row row : newAuthors.values()) {
+                        stmt.setString(1, row.name);
+                        stmt.setString(2, row.surname);
+                        stmt.setString(3, row.website.isEmpty() ? null : row.website);
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                    readGeneratedKeys(stmt, new ArrayList<>(newAuthors.keySet()), newAuthorIds);
+                }
+            }
+
+            // Step 2: Books not in the catalog yet (nor earlier in this chunk)
+            Set<String> insertedBookKeys = new LinkedHashSet<>();
+            try (PreparedStatement stmt = conn.prepareStatement(SQL_INSERT_BOOK, Statement.RETURN_GENERATED_KEYS)) {
+                for (Row row : chunk) {
+                    String authorKey = authorKey(row.name, row.surname);
+                    Integer authorId = authorIds.get(authorKey);
+                    row.authorId = authorId != null ? authorId : newAuthorIds.get(authorKey);
+                    row.bookKey = bookKey(row.authorId, row.year, row.title);
+                    if (bookIds.containsKey(row.bookKey) || insertedBookKeys.contains(row.bookKey)) {
+                        chunkDuplicates++;
+                        continue;
+                    }
+                    insertedBookKeys.add(row.bookKey);
+                    stmt.setInt(1, row.authorId);
+                    stmt.setString(2, row.title);
+                    stmt.setInt(3, row.year);
+                    stmt.setInt(4, row.pages);
+                    stmt.setString(5, row.cover.isEmpty() ? null : row.cover);
+                    stmt.setString(6, row.about.isEmpty() ? null : row.about);
+                    stmt.addBatch();
+                }
+                if (!insertedBookKeys.isEmpty()) {
+                    stmt.executeBatch();
+                    readGeneratedKeys(stmt, new ArrayList<>(insertedBookKeys), newBookIds);
+                }
+            }
+
+            UserStats.catalogAdded(conn, newBookIds.size(), newAuthorIds.size());
+
+            // Step 3: The user's library; counters are rebuilt once at the end. Rows are
+            // grouped by the user fields they carry, so a field missing from the file never
+            // overwrites what the user already has.
+            if (userId > 0 && !chunk.isEmpty()) {
+                Map<Integer, List<Row>> byColumns = new TreeMap<>();
+                for (Row row : chunk) {
+                    byColumns.computeIfAbsent(row.userColumns, columns -> new ArrayList<>()).add(row);
+                }
+                for (Map.Entry<Integer, List<Row>> group : byColumns.entrySet()) {
+                    int columns = group.getKey();
+                    try (PreparedStatement stmt = conn.prepareStatement(userBookInsert(columns))) {
+                        for (Row row : group.getValue()) {
+                            Integer bookId = bookIds.get(row.bookKey);
+                            stmt.setInt(1, userId);
+                            stmt.setInt(2, bookId != null ? bookId : newBookIds.get(row.bookKey));
+                            int index = 3;
+                            if ((columns & 1) != 0) stmt.setInt(index++, row.readStatus);
+                            if ((columns & 2) != 0) stmt.setInt(index++, row.rating);
+                            if ((columns & 4) != 0) stmt.setString(index, row.comments);
+                            stmt.addBatch();
+                        }
+                        stmt.executeBatch();
+                    }
+                }
+            }
+
+            // Step 4: Checkpoint, committed with the rows above
+            try (PreparedStatement stmt = conn.prepareStatement(SQL_SAVE_CHECKPOINT)) {
+                stmt.setString(1, source);
+                stmt.setLong(2, recordsRead);
+                stmt.executeUpdate();
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        }
+
+        authorIds.putAll(newAuthorIds);
+        bookIds.putAll(newBookIds);
+        authorsAdded += newAuthorIds.size();
+        booksAdded += newBookIds.size();
+        duplicates += chunkDuplicates;
+        if (userId > 0) {
+            addedToLibrary += chunk.size();
+        }
+    }
+
+    /**
+     * INSERT into user_books for the USER_COLUMNS whose bit is set in columns; existing
+     * rows only get those columns updated, or are left alone when there are none
+     */
+    private static String userBookInsert(int columns) {
+        StringBuilder names = new StringBuilder("userId, bookId");
+        StringBuilder values = new StringBuilder("?, ?");
+        StringBuilder updates = new StringBuilder();
+        for (int i = 0; i < USER_COLUMNS.length; i++) {
+            if ((columns & (1 << i)) != 0) {
+                names.append(", ").append(USER_COLUMNS[i]);
+                values.append(", ?");
+                updates.append(updates.length() == 0 ? "" : ", ")
+                        .append(USER_COLUMNS[i]).append(" = VALUES(").append(USER_COLUMNS[i]).append(")");
+            }
+        }
+        if (updates.length() == 0) {
+            return "INSERT IGNORE INTO user_books (" + names + ") VALUES (" + values + ")";
+        }
+        return "INSERT INTO user_books (" + names + ") VALUES (" + values + ") ON DUPLICATE KEY UPDATE " + updates;
+    }
+
+    /**
+     * Batched inserts return their generated keys in batch order
+     */
+    private static void readGeneratedKeys(PreparedStatement stmt, List<String> keys, Map<String, Integer> ids)
+            throws SQLException {
+        try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+            int i = 0;
+            while (generatedKeys.next() && i < keys.size()) {
+                ids.put(keys.get(i++), generatedKeys.getInt(1));
+            }
+            if (i != keys.size()) {
+                throw new SQLException("Expected " + keys.size() + " generated keys but got " + i);
+            }
+        }
+    }
+
+    private void printProgress(long start, long skipped) {
+        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        System.out.printf("📥 %d records imported (%d new books, %d new authors), %.0f rows/s%n",
+                recordsRead, booksAdded, authorsAdded, (recordsRead - skipped) * 1000.0 / elapsed);
+    }
+
+    // ---- Checkpoints ----
+
+    private static void createCheckpointTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(SQL_CREATE_CHECKPOINTS);
+        }
+    }
+
+    private static long readCheckpoint(Connection conn, String source) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_READ_CHECKPOINT)) {
+            stmt.setString(1, source);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong("recordsDone") : 0;
+            }
+        }
+    }
+
+    private static void deleteCheckpoint(Connection conn, String source) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_DELETE_CHECKPOINT)) {
+            stmt.setString(1, source);
+            stmt.executeUpdate();
+        }
+    }
+
+    // Matched the way the default case-insensitive collation compares them
+    private static String authorKey(String name, String surname) {
+        return (name.trim() + "\u0000" + (surname == null ? "" : surname.trim())).toLowerCase(Locale.ROOT);
+    }
+
+    private static String bookKey(int authorId, int year, String title) {
+        return authorId + "|" + year + "|" + title.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Row {
+        String title, name, surname, website, cover, about, comments;
+        int year, pages, readStatus, rating;
+        int userColumns;
+        int authorId;
+        String bookKey;
+    }
+}
@@ -0,0 +1,503 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Small bounded JDBC connection pool used behind DatabaseHelper.getConnection().
+ * Connections handed out are proxies: calling close() returns them to the pool
+ * instead of closing the physical MySQL connection.
+ */
+public class ConnectionPool {
+    private final String url;
+    private final Properties connectionProps;
+    private final int maxSize;
+    private final int minIdle;
+    private final long maxWaitMillis;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private int totalConnections = 0; // idle + borrowed + being opened
+    private int activeConnections = 0;
+    private boolean closed = false;
+
+    private final ScheduledExecutorService housekeeper;
+
+    // Counters
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong borrowWaitNanos = new AtomicLong();
+    private final AtomicLong maxBorrowWaitNanos = new AtomicLong();
+    private final AtomicLong borrowTimeouts = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+    private final AtomicLong statementCacheEvictions = new AtomicLong();
+
+    public ConnectionPool(String url, String user, String password, Properties config) {
+        this.url = url;
+        this.connectionProps = new Properties();
+        if (user != null) connectionProps.setProperty("user", user);
+        if (password != null) connectionProps.setProperty("password", password);
+        // Server-side prepares so the statements we keep cached are parsed and planned only once
+        connectionProps.setProperty("useServerPrepStmts",
+                config != null ? config.getProperty("db.useServerPrepStmts", "true") : "true");
+
+        this.maxSize = Math.max(1, intProperty(config, "db.pool.maxSize", 10));
+        this.minIdle = Math.min(maxSize, Math.max(0, intProperty(config, "db.pool.minIdle", 2)));
+        this.maxWaitMillis = longProperty(config, "db.pool.maxWaitMillis", 5000);
+        this.idleTimeoutMillis = longProperty(config, "db.pool.idleTimeoutMillis", 10 * 60 * 1000L);
+        this.maxLifetimeMillis = longProperty(config, "db.pool.maxLifetimeMillis", 30 * 60 * 1000L);
+        this.validationTimeoutSeconds = intProperty(config, "db.pool.validationTimeoutSeconds", 2);
+        this.statementCacheSize = intProperty(config, "db.statementCache.size", 32);
+
+        long evictionInterval = longProperty(config, "db.pool.evictionIntervalMillis", 30 * 1000L);
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::evictIdle, evictionInterval, evictionInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection, waiting up to db.pool.maxWaitMillis when the pool is exhausted.
+     */
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+
+        while (true) {
+            PooledConnection pooled = null;
+            boolean openNew = false;
+
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new SQLException("Connection pool is closed");
+                    }
+                    pooled = idle.pollFirst();
+                    if (pooled != null) {
+                        break;
+                    }
+                    if (totalConnections < maxSize) {
+                        totalConnections++;
+                        openNew = true;
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        borrowTimeouts.incrementAndGet();
+                        throw new SQLException("Timed out after " + maxWaitMillis
+                                + " ms waiting for a database connection (pool size " + maxSize + ")");
+                    }
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection", e);
+                    }
+                }
+                activeConnections++;
+            } finally {
+                lock.unlock();
+            }
+
+            if (openNew) {
+                try {
+                    pooled = openPhysical();
+                } catch (SQLException e) {
+                    lock.lock();
+                    try {
+                        totalConnections--;
+                        activeConnections--;
+                        available.signal();
+                    } finally {
+                        lock.unlock();
+                    }
+                    throw e;
+                }
+            } else if (!isUsable(pooled)) {
+                // Stale or broken connection: drop it and try again
+                discard(pooled, true);
+                continue;
+            }
+
+            recordBorrow(System.nanoTime() - start);
+            return pooled.lease();
+        }
+    }
+
+    /**
+     * Open connections until at least db.pool.minIdle are idle.
+     */
+    public void warmUp() {
+        while (true) {
+            lock.lock();
+            try {
+                if (closed || idle.size() >= minIdle || totalConnections >= maxSize) {
+                    return;
+                }
+                totalConnections++;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                PooledConnection pooled = openPhysical();
+                lock.lock();
+                try {
+                    idle.addFirst(pooled);
+                    available.signal();
+                } finally {
+                    lock.unlock();
+                }
+            } catch (SQLException e) {
+                lock.lock();
+                try {
+                    totalConnections--;
+                } finally {
+                    lock.unlock();
+                }
+                System.err.println("⚠️ Connection pool warm-up failed: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    public void close() {
+        housekeeper.shutdownNow();
+        lock.lock();
+        try {
+            closed = true;
+            for (PooledConnection pooled : idle) {
+                closeQuietly(pooled);
+            }
+            totalConnections -= idle.size();
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public PoolStats getStats() {
+        lock.lock();
+        try {
+            return new PoolStats(activeConnections, idle.size(), totalConnections, maxSize,
+                    borrowCount.get(), borrowWaitNanos.get(), maxBorrowWaitNanos.get(), borrowTimeouts.get(),
+                    createdCount.get(), destroyedCount.get(), validationFailures.get(),
+                    statementCacheHits.get(), statementCacheMisses.get(), statementCacheEvictions.get());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private PooledConnection openPhysical() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, connectionProps);
+        createdCount.incrementAndGet();
+        return new PooledConnection(physical, new StatementCache(physical, statementCacheSize,
+                statementCacheHits, statementCacheMisses, statementCacheEvictions));
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        long now = System.currentTimeMillis();
+        if (maxLifetimeMillis > 0 && now - pooled.createdAt >= maxLifetimeMillis) {
+            return false;
+        }
+        try {
+            if (pooled.physical.isValid(validationTimeoutSeconds)) {
+                return true;
+            }
+        } catch (SQLException e) {
+            // fall through
+        }
+        validationFailures.incrementAndGet();
+        return false;
+    }
+
+    private void recordBorrow(long waitNanos) {
+        borrowCount.incrementAndGet();
+        borrowWaitNanos.addAndGet(waitNanos);
+        maxBorrowWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    /**
+     * Called when a borrowed connection is closed by the caller.
+     */
+    private void release(PooledConnection pooled) {
+        boolean reusable = true;
+        try {
+            if (pooled.physical.isClosed()) {
+                reusable = false;
+            } else if (!pooled.physical.getAutoCommit()) {
+                // Caller left a transaction open: roll it back before anyone else sees it
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            reusable = false;
+        }
+
+        long now = System.currentTimeMillis();
+        if (maxLifetimeMillis > 0 && now - pooled.createdAt >= maxLifetimeMillis) {
+            reusable = false;
+        }
+
+        if (!reusable) {
+            discard(pooled, true);
+            return;
+        }
+
+        pooled.statements.resetInUse();
+        pooled.lastReturnedAt = now;
+        lock.lock();
+        try {
+            activeConnections--;
+            if (closed) {
+                totalConnections--;
+                closeQuietly(pooled);
+                return;
+            }
+            // LIFO keeps the hot connections warm and lets the cold ones age out
+            idle.addFirst(pooled);
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void discard(PooledConnection pooled, boolean wasActive) {
+        closeQuietly(pooled);
+        lock.lock();
+        try {
+            totalConnections--;
+            if (wasActive) {
+                activeConnections--;
+            }
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        Deque<PooledConnection> evicted = new ArrayDeque<>();
+
+        lock.lock();
+        try {
+            Iterator<PooledConnection> it = idle.descendingIterator(); // oldest returned first
+            while (it.hasNext()) {
+                PooledConnection pooled = it.next();
+                boolean expired = maxLifetimeMillis > 0 && now - pooled.createdAt >= maxLifetimeMillis;
+                boolean idleTooLong = idleTimeoutMillis > 0 && now - pooled.lastReturnedAt >= idleTimeoutMillis
+                        && idle.size() > minIdle;
+                if (expired || idleTooLong) {
+                    it.remove();
+                    totalConnections--;
+                    evicted.add(pooled);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (PooledConnection pooled : evicted) {
+            closeQuietly(pooled);
+        }
+        if (!evicted.isEmpty()) {
+            warmUp();
+        }
+    }
+
+    private void closeQuietly(PooledConnection pooled) {
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            // ignore
+        }
+        destroyedCount.incrementAndGet();
+    }
+
+    private static int intProperty(Properties props, String key, int defaultValue) {
+        return (int) longProperty(props, key, defaultValue);
+    }
+
+    private static long longProperty(Properties props, String key, long defaultValue) {
+        if (props == null) return defaultValue;
+        String value = props.getProperty(key);
+        if (value == null || value.trim().isEmpty()) return defaultValue;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("⚠️ Invalid value for " + key + ": " + value + " (using " + defaultValue + ")");
+            return defaultValue;
+        }
+    }
+
+    /**
+     * A physical connection plus the bookkeeping the pool needs.
+     */
+    private class PooledConnection {
+        final Connection physical;
+        final StatementCache statements;
+        final long createdAt = System.currentTimeMillis();
+        volatile long lastReturnedAt = createdAt;
+
+        PooledConnection(Connection physical, StatementCache statements) {
+            this.physical = physical;
+            this.statements = statements;
+        }
+
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new LeaseHandler(this));
+        }
+    }
+
+    /**
+     * Forwards calls to the physical connection until the caller closes the lease.
+     */
+    private class LeaseHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean released = false;
+
+        LeaseHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!released) {
+                        released = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return released || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + pooled.physical + "]";
+                default:
+                    if (released) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    // prepareStatement(sql) and prepareStatement(sql, autoGeneratedKeys) go through the cache
+                    if (name.equals("prepareStatement") && args.length <= 2
+                            && (args.length == 1 || args[1] instanceof Integer)) {
+                        int keys = args.length == 2 ? (Integer) args[1] : java.sql.Statement.NO_GENERATED_KEYS;
+                        return pooled.statements.prepare((String) args[0], keys);
+                    }
+                    try {
+                        return method.invoke(pooled.physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+
+    /**
+     * Snapshot of the pool counters.
+     */
+    public static class PoolStats {
+        private final int active;
+        private final int idle;
+        private final int total;
+        private final int maxSize;
+        private final long borrowCount;
+        private final long borrowWaitNanos;
+        private final long maxBorrowWaitNanos;
+        private final long borrowTimeouts;
+        private final long created;
+        private final long destroyed;
+        private final long validationFailures;
+        private final long statementCacheHits;
+        private final long statementCacheMisses;
+        private final long statementCacheEvictions;
+
+        PoolStats(int active, int idle, int total, int maxSize, long borrowCount, long borrowWaitNanos,
+                  long maxBorrowWaitNanos, long borrowTimeouts, long created, long destroyed,
+                  long validationFailures, long statementCacheHits, long statementCacheMisses,
+                  long statementCacheEvictions) {
+            this.active = active;
+            this.idle = idle;
+            this.total = total;
+            this.maxSize = maxSize;
+            this.borrowCount = borrowCount;
+            this.borrowWaitNanos = borrowWaitNanos;
+            this.maxBorrowWaitNanos = maxBorrowWaitNanos;
+            this.borrowTimeouts = borrowTimeouts;
+            this.created = created;
+            this.destroyed = destroyed;
+            this.validationFailures = validationFailures;
+            this.statementCacheHits = statementCacheHits;
+            this.statementCacheMisses = statementCacheMisses;
+            this.statementCacheEvictions = statementCacheEvictions;
+        }
+
+        public int getActive() { return active; }
+        public int getIdle() { return idle; }
+        public int getTotal() { return total; }
+        public int getMaxSize() { return maxSize; }
+        public long getBorrowCount() { return borrowCount; }
+        public long getBorrowWaitNanos() { return borrowWaitNanos; }
+        public long getMaxBorrowWaitNanos() { return maxBorrowWaitNanos; }
+        public long getBorrowTimeouts() { return borrowTimeouts; }
+        public long getCreated() { return created; }
+        public long getDestroyed() { return destroyed; }
+        public long getValidationFailures() { return validationFailures; }
+        public long getStatementCacheHits() { return statementCacheHits; }
+        public long getStatementCacheMisses() { return statementCacheMisses; }
+        public long getStatementCacheEvictions() { return statementCacheEvictions; }
+
+        public double getStatementCacheHitRatio() {
+            long lookups = statementCacheHits + statementCacheMisses;
+            return lookups == 0 ? 0.0 : statementCacheHits / (double) lookups;
+        }
+
+        public double getAverageBorrowWaitMillis() {
+            return borrowCount == 0 ? 0.0 : borrowWaitNanos / (double) borrowCount / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("active=%d idle=%d total=%d/%d borrows=%d avgWait=%.2fms maxWait=%.2fms " +
+                            "timeouts=%d created=%d destroyed=%d validationFailures=%d " +
+                            "stmtCache[hits=%d misses=%d evictions=%d hitRatio=%.1f%%]",
+                    active, idle, total, maxSize, borrowCount, getAverageBorrowWaitMillis(),
+                    maxBorrowWaitNanos / 1_000_000.0, borrowTimeouts, created, destroyed, validationFailures,
+                    statementCacheHits, statementCacheMisses, statementCacheEvictions,
+                    getStatementCacheHitRatio() * 100);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Loads book covers as ready-to-paint thumbnails.
+ *
+ * load() finds the image file (the path itself, covers/ or images/), decodes it and
+ * downscales it with repeated bilinear halving, which is far faster than
+ * getScaledInstance(SCALE_SMOOTH) and looks about as good. It blocks, so call it off
+ * the EDT. Results are kept in an LRU bounded by pixel memory, keyed by path and size,
+ * so showing the same cover again is a map lookup. Thumbnails are also kept on disk
+ * by ThumbnailDiskCache, so after a restart a cover costs one small read.
+ */
+public class CoverImageLoader {
+    private static final String[] SEARCH_DIRS = {"", "covers/", "images/"};
+
+    private static final CoverImageLoader SHARED = new CoverImageLoader(
+            Long.parseLong(DatabaseHelper.getConfig("cache.cover.maxBytes", String.valueOf(32L * 1024 * 1024))),
+            createDiskCache());
+
+    private final long maxBytes;
+    private final ThumbnailDiskCache diskCache; // null when disabled
+    private long currentBytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    // Least recently used evicted first. Guarded by "this".
+    private final LinkedHashMap<String, BufferedImage> images = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, BufferedImage> placeholders = new HashMap<>();
+
+    public CoverImageLoader(long maxBytes) {
+        this(maxBytes, null);
+    }
+
+    public CoverImageLoader(long maxBytes, ThumbnailDiskCache diskCache) {
+        this.maxBytes = maxBytes;
+        this.diskCache = diskCache;
+    }
+
+    /**
+     * Loader shared by all cover panels, bounded by cache.cover.maxBytes
+     */
+    public static CoverImageLoader getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Thumbnail from memory, or null if it has to be loaded
+     */
+    public synchronized BufferedImage getCached(String path, int width, int height) {
+        BufferedImage image = images.get(key(path, width, height));
+        if (image != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return image;
+    }
+
+    /**
+     * Find, decode and scale a cover to width x height. Blocking; call off the EDT.
+     *
+     * @throws FileNotFoundException if no image file exists for the path
+     * @throws IOException           if the file cannot be read or is not an image
+     */
+    public BufferedImage load(String path, int width, int height) throws IOException {
+        String key = key(path, width, height);
+        synchronized (this) {
+            BufferedImage cached = images.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        LibraryEvents.CoverLoad event = new LibraryEvents.CoverLoad();
+        event.begin();
+        event.path = path;
+        try {
+            File file = find(path);
+            if (file == null) {
+                throw new FileNotFoundException("Image not found: " + path);
+            }
+            event.path = file.getPath();
+            event.bytes = file.length();
+
+            long start = System.nanoTime();
+            if (diskCache != null) {
+                BufferedImage thumbnail = diskCache.get(file, width, height);
+                if (thumbnail != null) {
+                    event.decodeTime = System.nanoTime() - start;
+                    event.diskCacheHit = true;
+                    event.loaded = true;
+                    put(key, thumbnail);
+                    return thumbnail;
+                }
+                start = System.nanoTime();
+            }
+
+
+            BufferedImage source = ImageIO.read(file);
+            event.decodeTime = System.nanoTime() - start;
+            if (source == null) {
+                throw new IOException("Invalid image file");
+            }
+
+            start = System.nanoTime();
+            BufferedImage thumbnail = scale(source, width, height);
+            event.scaleTime = System.nanoTime() - start;
+            event.loaded = true;
+
+            put(key, thumbnail);
+            if (diskCache != null) {
+                diskCache.put(file, width, height, thumbnail);
+            }
+            return thumbnail;
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Grey "Loading..." card shown while a cover loads
+     */
+    public synchronized BufferedImage getPlaceholder(int width, int height) {
+        return placeholders.computeIfAbsent(key("", width, height), k -> {
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = image.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setColor(new Color(236, 240, 241));
+            g.fillRect(0, 0, width, height);
+            g.setColor(new Color(189, 195, 199));
+            g.drawRect(0, 0, width - 1, height - 1);
+            g.setColor(Color.GRAY);
+            String text = "Loading...";
+            FontMetrics fm = g.getFontMetrics();
+            g.drawString(text, (width - fm.stringWidth(text)) / 2, height / 2);
+            g.dispose();
+            return image;
+        });
+    }
+
+    /**
+     * Forget the thumbnails of one path, e.g. after its cover file was replaced
+     */
+    public synchronized void invalidate(String path) {
+        images.entrySet().removeIf(entry -> {
+            if (entry.getKey().startsWith(path + "@")) {
+                currentBytes -= bytesOf(entry.getValue());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    public synchronized void clear() {
+        images.clear();
+        currentBytes = 0;
+    }
+
+    public synchronized String getStats() {
+        return String.format("%d covers, %d KB of %d KB, %d hits, %d misses%s",
+                images.size(), currentBytes / 1024, maxBytes / 1024, hits, misses,
+                diskCache != null ? "; disk: " + diskCache.getStats() : "");
+    }
+
+    /**
+     * Downscale by halving with bilinear interpolation until within 2x of the target,
+     * then one last bilinear step to the exact size. Upscaling is a single step.
+     */
+    static BufferedImage scale(BufferedImage source, int width, int height) {
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = source;
+        int w = source.getWidth();
+        int h = source.getHeight();
+
+        do {
+            if (w > width) {
+                w = Math.max(width, w / 2);
+            } else {
+                w = width;
+            }
+            if (h > height) {
+                h = Math.max(height, h / 2);
+            } else {
+                h = height;
+            }
+
+            BufferedImage next = new BufferedImage(w, h, type);
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+            g.drawImage(current, 0, 0, w, h, null);
+            g.dispose();
+            current = next;
+        } while (w != width || h != height);
+
+        return current;
+    }
+
+    /**
+     * Thumbnail directory next to covers/ and images/ (cache.thumbnails.*); maxBytes 0 turns it off
+     */
+    private static ThumbnailDiskCache createDiskCache() {
+        long maxBytes = Long.parseLong(DatabaseHelper.getConfig("cache.thumbnails.maxBytes",
+                String.valueOf(64L * 1024 * 1024)));
+        if (maxBytes <= 0) {
+            return null;
+        }
+        return new ThumbnailDiskCache(Paths.get(DatabaseHelper.getConfig("cache.thumbnails.dir", "thumbnails")),
+                maxBytes);
+    }
+
+    private static File find(String path) {
+        for (String dir : SEARCH_DIRS) {
+            File file = new File(dir + path);
+            if (file.isFile()) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    private synchronized void put(String key, BufferedImage image) {
+        long size = bytesOf(image);
+        if (size > maxBytes) {
+            return;
+        }
+        BufferedImage previous = images.put(key, image);
+        if (previous != null) {
+            currentBytes -= bytesOf(previous);
+        }
+        currentBytes += size;
+
+        Iterator<Map.Entry<String, BufferedImage>> eldest = images.entrySet().iterator();
+        while (currentBytes > maxBytes && eldest.hasNext()) {
+            currentBytes -= bytesOf(eldest.next().getValue());
+            eldest.remove();
+        }
+    }
+
+    private static long bytesOf(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() * 4;
+    }
+
+    private static String key(String path, int width, int height) {
+        return path + "@" + width + "x" + height;
+    }
+}
@@ -0,0 +1,119 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads CSV records one at a time (RFC 4180: comma separated, optional double
+ * quotes, "" inside quotes, line breaks inside quoted fields). The first line is
+ * the header; column names are matched case-insensitively.
+ */
+public class CsvRecordReader implements CatalogImporter.RecordReader {
+    private final Reader in;
+    private final List<String> header;
+    private int pushedBack = -2; // -2 means nothing pushed back
+
+    public CsvRecordReader(Reader in) throws IOException {
+        this.in = in;
+        // Excel and others start UTF-8 files with a byte order mark; it is not part of the first column name
+        int first = read();
+        if (first != '\uFEFF') {
+            unread(first);
+        }
+        List<String> columns = readRow();
+        this.header = new ArrayList<>();
+        if (columns != null) {
+            for (String column : columns) {
+                header.add(column.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+    }
+
+    @Override
+    public Map<String, String> next() throws IOException {
+        List<String> row;
+        do {
+            row = readRow();
+            if (row == null) {
+                return null;
+            }
+        } while (row.size() == 1 && row.get(0).isEmpty()); // blank line
+
+        Map<String, String> record = new LinkedHashMap<>();
+        for (int i = 0; i < header.size() && i < row.size(); i++) {
+            record.put(header.get(i), row.get(i));
+        }
+        return record;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Fields of the next line, or null at end of input
+     */
+    private List<String> readRow() throws IOException {
+        int c = read();
+        if (c == -1) {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("Unterminated quoted field");
+                }
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = next;
+                        continue;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r' || c == -1) {
+                if (c == '\r') {
+                    int next = read();
+                    if (next != '\n') {
+                        unread(next);
+                    }
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != -2) {
+            int c = pushedBack;
+            pushedBack = -2;
+            return c;
+        }
+        return in.read();
+    }
+
+    private void unread(int c) {
+        pushedBack = c;
+    }
+}
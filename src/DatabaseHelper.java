@@ -1,671 +1,1659 @@
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class DatabaseHelper {
     private static final String CONFIG_FILE = "config.properties";
     private static String DB_URL;
     private static String DB_USERNAME;
     private static String DB_PASSWORD;
-
-    private static int currentUserId = -1;
+    private static final Properties CONFIG = new Properties();
+    private static volatile ConnectionPool pool;
+    private static final CatalogCache catalogCache;
+    private static final LibrarySearch librarySearch;
+    private static final LibraryTypeahead typeahead = new LibraryTypeahead(DatabaseHelper::getConnection);
+    private static final BookDetailCache bookDetailCache;
+    private static volatile boolean schemaChecked = false;
+    private static volatile WriteBehindQueue writeBehind;
+    private static final List<BookChangeListener> bookChangeListeners = new CopyOnWriteArrayList<>();
+
+    private static final int MAX_SEARCH_RESULTS = 200;
+
+    // Named SQL shared by several methods. Keeping the text identical lets the
+    // per-connection statement cache (see StatementCache) reuse one server-side prepare.
+    private static final String BOOK_WITH_USER_DATA_SELECT =
+            "SELECT b.bookId, b.authorId, b.title, b.year, b.numberOfPages, b.cover, b.about, " +
+            "CONCAT(a.name, ' ', a.surname) as authorName, " +
+            "COALESCE(ub.readStatus, 0) as readStatus, " +
+            "COALESCE(ub.rating, 0) as rating, " +
+            "ub.comments, " +
+            "ub.releaseDate " +
+            "FROM books b " +
+            "JOIN authors a ON b.authorId = a.authorId " +
+            "LEFT JOIN user_books ub ON b.bookId = ub.bookId AND ub.userId = ? ";
+    private static final String SQL_ALL_BOOKS = BOOK_WITH_USER_DATA_SELECT + "ORDER BY b.title";
+    private static final String SQL_BOOK_INFO = BOOK_WITH_USER_DATA_SELECT + "WHERE b.bookId = ?";
+    private static final String SQL_FIRST_BOOKS_PAGE = BOOK_WITH_USER_DATA_SELECT +
+            "ORDER BY b.title, b.bookId LIMIT ?";
+    private static final String SQL_BOOKS_PAGE_AFTER = BOOK_WITH_USER_DATA_SELECT +
+            "WHERE b.title > ? OR (b.title = ? AND b.bookId > ?) " +
+            "ORDER BY b.title, b.bookId LIMIT ?";
+    // Books in the user's library, driven by the idx_user_books_user_status (userId, readStatus) index
+    private static final String USER_LIBRARY_SELECT =
+            "SELECT b.bookId, b.authorId, b.title, b.year, b.numberOfPages, b.cover, b.about, " +
+            "CONCAT(a.name, ' ', a.surname) as authorName, " +
+            "ub.readStatus, " +
+            "COALESCE(ub.rating, 0) as rating, " +
+            "ub.comments, " +
+            "ub.releaseDate " +
+            "FROM user_books ub " +
+            "JOIN books b ON b.bookId = ub.bookId " +
+            "JOIN authors a ON b.authorId = a.authorId ";
+    private static final String SQL_UPSERT_READ_STATUS = "INSERT INTO user_books (userId, bookId, readStatus) " +
+            "VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE readStatus = VALUES(readStatus)";
+    private static final String SQL_UPSERT_RATING = "INSERT INTO user_books (userId, bookId, rating) " +
+            "VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE rating = VALUES(rating)";
 
     static {
-        try {
-            Properties props = new Properties();
-            props.load(new FileInputStream(CONFIG_FILE));
-            DB_URL = props.getProperty("db.url");
-            DB_USERNAME = props.getProperty("db.user");
-            DB_PASSWORD = props.getProperty("db.password");
+        try (FileInputStream in = new FileInputStream(CONFIG_FILE)) {
+            CONFIG.load(in);
+            DB_URL = CONFIG.getProperty("db.url");
+            DB_USERNAME = CONFIG.getProperty("db.user");
+            DB_PASSWORD = CONFIG.getProperty("db.password");
         } catch (IOException e) {
             System.err.println("⚠️ config.properties dosyası okunamadı: " + e.getMessage());
         }
+        catalogCache = new CatalogCache(DatabaseHelper::getConnection,
+                Integer.parseInt(CONFIG.getProperty("cache.catalog.maxUsers",
+                        String.valueOf(CatalogCache.DEFAULT_MAX_CACHED_USERS))));
+        librarySearch = new LibrarySearch(catalogCache, DatabaseHelper::getConnection);
+        bookDetailCache = new BookDetailCache(
+                Integer.parseInt(CONFIG.getProperty("cache.bookDetail.maxEntries", "2000")),
+                Long.parseLong(CONFIG.getProperty("cache.bookDetail.ttlMillis", "60000")));
+        QueryMetrics.configure(
+                Long.parseLong(CONFIG.getProperty("metrics.slowQueryMillis", "500")),
+                Long.parseLong(CONFIG.getProperty("metrics.dumpIntervalSeconds", "0")));
+        Runtime.getRuntime().addShutdownHook(new Thread(DatabaseHelper::shutdown, "database-shutdown"));
     }
 
-    public static void setCurrentUser(int userId) {
-        currentUserId = userId;
-        System.out.println("✅ Current user set to: " + userId);
+    /**
+     * One shutdown hook for both: the write-behind queue writes its last batch through
+     * the pool, so it is closed first and the pool after it
+     */
+    private static void shutdown() {
+        WriteBehindQueue queue = writeBehind;
+        if (queue != null) {
+            queue.close();
+        }
+        ConnectionPool p = pool;
+        if (p != null) {
+            p.close();
+        }
     }
 
-    public static int getCurrentUserId() {
-        return currentUserId;
+    /**
+     * A setting from config.properties, for components configured alongside the database
+     */
+    static String getConfig(String key, String defaultValue) {
+        return CONFIG.getProperty(key, defaultValue);
+    }
+
+    /**
+     * Whether the session belongs to a logged-in user; logs the usual error if not
+     */
+    private static boolean isLoggedIn(UserSession session) {
+        if (session == null || !session.isLoggedIn()) {
+            System.err.println("❌ No user logged in!");
+            return false;
+        }
+        return true;
     }
 
     private static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL, DB_USERNAME, DB_PASSWORD);
+        long start = System.nanoTime();
+        Connection conn = getPool().getConnection();
+        QueryMetrics.connectionAcquired(System.nanoTime() - start);
+        if (!schemaChecked) {
+            ensureSchema(conn);
+        }
+        return conn;
     }
+
     /**
-     * Get all books with current user's personal data
+     * Create the tables and indexes the queries below rely on, if they are missing
      */
-    public static List<Book> getAllBooks() {
-        List<Book> books = new ArrayList<>();
-
-        if (currentUserId == -1) {
-            System.err.println("❌ No user logged in!");
-            return books;
+    private static synchronized void ensureSchema(Connection conn) {
+        if (schemaChecked) {
+            return;
         }
+        schemaChecked = true;
 
-        try (Connection conn = getConnection()) {
-            String query = "SELECT b.bookId, b.authorId, b.title, b.year, b.numberOfPages, b.cover, b.about, " +
-                    "CONCAT(a.name, ' ', a.surname) as authorName, " +
-                    "COALESCE(ub.readStatus, 0) as readStatus, " +
-                    "COALESCE(ub.rating, 0) as rating, " +
-                    "ub.comments, " +
-                    "ub.releaseDate " +
-                    "FROM books b " +
-                    "JOIN authors a ON b.authorId = a.authorId " +
-                    "LEFT JOIN user_books ub ON b.bookId = ub.bookId AND ub.userId = ? " +
-                    "ORDER BY b.title";
+        ensureIndex(conn, "user_books", "idx_user_books_user_status", "(userId, readStatus)");
+        // Keyset pagination walks books in (title, bookId) order
+        ensureIndex(conn, "books", "idx_books_title", "(title)");
+        try {
+            UserStats.createTable(conn);
+        } catch (SQLException e) {
+            System.err.println("⚠️ Could not create user_stats table: " + e.getMessage());
+        }
+    }
 
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setInt(1, currentUserId);
-                ResultSet rs = stmt.executeQuery();
-
-                while (rs.next()) {
-                    books.add(new Book(
-                            rs.getInt("bookId"),
-                            rs.getInt("authorId"),
-                            rs.getString("title"),
-                            rs.getString("authorName"),
-                            rs.getInt("year"),
-                            rs.getInt("numberOfPages"),
-                            rs.getString("cover"),
-                            rs.getString("about"),
-                            rs.getInt("readStatus"),
-                            rs.getInt("rating"),
-                            rs.getString("comments"),
-                            rs.getDate("releaseDate")
-                    ));
+    private static void ensureIndex(Connection conn, String table, String index, String columns) {
+        try {
+            if (!indexExists(conn, table, index)) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.executeUpdate("CREATE INDEX " + index + " ON " + table + " " + columns);
+                    System.out.println("✅ Created index " + index);
                 }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            System.err.println("⚠️ Could not verify index " + index + ": " + e.getMessage());
+        }
+    }
+
+    private static boolean indexExists(Connection conn, String table, String index) throws SQLException {
+        String query = "SELECT 1 FROM information_schema.statistics " +
+                "WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ? LIMIT 1";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, table);
+            stmt.setString(2, index);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static ConnectionPool getPool() {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (DatabaseHelper.class) {
+                p = pool;
+                if (p == null) {
+                    p = new ConnectionPool(DB_URL, DB_USERNAME, DB_PASSWORD, CONFIG);
+                    pool = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Open a separate, unpooled connection for bulk loads and exports (CatalogImporter,
+     * LibraryExporter). Batched inserts are rewritten into multi-row INSERTs on this
+     * connection only.
+     */
+    static Connection openBulkConnection() throws SQLException {
+        Properties props = new Properties();
+        if (DB_USERNAME != null) props.setProperty("user", DB_USERNAME);
+        if (DB_PASSWORD != null) props.setProperty("password", DB_PASSWORD);
+        props.setProperty("rewriteBatchedStatements", "true");
+        // Multi-row rewriting applies to client-side prepared statements
+        props.setProperty("useServerPrepStmts", "false");
+
+        Connection conn = DriverManager.getConnection(DB_URL, props);
+        if (!schemaChecked) {
+            ensureSchema(conn);
+        }
+        return conn;
+    }
+
+    /**
+     * Open the configured minimum of idle connections ahead of the first query
+     */
+    public static void warmUpConnectionPool() {
+        QueryMetrics.run("warmUpConnectionPool", () -> getPool().warmUp());
+    }
+
+    /**
+     * Whether a pooled connection can be borrowed and is valid
+     */
+    public static boolean checkConnection() {
+        return QueryMetrics.time("checkConnection", () -> {
+            try (Connection conn = getConnection()) {
+                return conn.isValid(2);
+            } catch (SQLException e) {
+                QueryMetrics.failed(e);
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Borrow wait time, active/idle counters and statement cache hit/miss counts of the connection pool
+     */
+    public static ConnectionPool.PoolStats getPoolStats() {
+        return getPool().getStats();
+    }
+
+    /**
+     * Get all books with the session user's personal data.
+     * Served from the catalog cache; only entries invalidated by writes are re-read.
+     */
+    public static List<Book> getAllBooks(UserSession session) {
+        return QueryMetrics.time("getAllBooks", session, () -> {
+            if (!isLoggedIn(session)) {
+                return new ArrayList<>();
+            }
+
+            flushPendingWritesFor(session.getUserId());
+            try {
+                return catalogCache.getAllBooks(session.getUserId());
+            } catch (SQLException e) {
+                QueryMetrics.failed(e);
+                return new ArrayList<>();
+            }
+        });
+    }
+
+    /**
+     * Load the shared part of the catalog cache ahead of the first getAllBooks(),
+     * which then only reads the user's own rows
+     */
+    public static void prefetchCatalog() {
+        QueryMetrics.run("prefetchCatalog", () -> {
+            try {
+                catalogCache.preload();
+            } catch (SQLException e) {
+                QueryMetrics.failed(e);
+            }
+        });
+    }
+
+    /**
+     * Get all books straight from the database, bypassing the catalog cache
+     */
+    public static List<Book> getAllBooksUncached(UserSession session) {
+        return QueryMetrics.time("getAllBooksUncached", session, () -> {
+            List<Book> books = new ArrayList<>();
+
+            if (!isLoggedIn(session)) {
+                return books;
+            }
+
+            int userId = session.getUserId();
+            flushPendingWritesFor(userId);
+
+            try (Connection conn = getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(SQL_ALL_BOOKS)) {
+                stmt.setInt(1, userId);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        books.add(mapBook(rs));
+                    }
+                }
+            } catch (SQLException e) {
+                QueryMetrics.failed(e);
+            }
+
+            return books;
+        });
+    }
+
+    /**
+     * Number of books in the catalog
+     */
+    public static int getBookCount() {
+        return QueryMetrics.time("getBookCount", () -> {
+            try (Connection conn = getConnection();
+                 PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM books");
+                 ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            } catch (SQLException e) {
+                QueryMetrics.failed(e);
+                return 0;
+            }
+        });
+    }
+
+    /**
+     * Get up to limit books (with the session user's data) that sort after the given key,
+     * in (title, bookId) order. A null key returns the first page.
+     */
+    public static List<Book> getBooksPage(UserSession session, BookKey after, int limit) {
+        return QueryMetrics.time("getBooksPage", session, () -> {
+            List<Book> books = new ArrayList<>();
+
+            if (!isLoggedIn(session)) {
+                return books;
+            }
+
+            int userId = session.getUserId();
+            flushPendingWritesFor(userId);
+
+            long loadStart = bookDetailCache.beginLoad();
+            try (Connection conn = getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(after == null ? SQL_FIRST_BOOKS_PAGE : SQL_BOOKS_PAGE_AFTER)) {
+                stmt.setInt(1, userId);
+                if (after == null) {
+                    stmt.setInt(2, limit);
+                } else {
+                    stmt.setString(2, after.getTitle());
+                    stmt.setString(3, after.getTitle());
+                    stmt.setInt(4, after.getBookId());
+                    stmt.setInt(5, limit);
+                }
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        books.add(mapBook(rs));
+                    }
+                }
+                // Rows the table shows are what selection asks for next
+                bookDetailCache.putAll(userId, books, loadStart);
+            } catch (SQLException e) {
+                QueryMetrics.failed(e);
+            } finally {
+                bookDetailCache.endLoad(loadStart);
+            }
+
+            return books;
+        });
+    }
+
+    /**
+     * Key of the book at a position in (title, bookId) order, for jumping into the
+     * middle of the catalog. Only walks the title index, not the rows.
+     */
+    public static BookKey getBookKeyAt(int offset) {
+        return QueryMetrics.time("getBookKeyAt", () -> {
+            String query = "SELECT title, bookId FROM books ORDER BY title, bookId LIMIT 1 OFFSET ?";
+            try (Connection conn = getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setInt(1, offset);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        return new BookKey(rs.getString("title"), rs.getInt("bookId"));
+                    }
+                }
+            } catch (SQLException e) {
+                QueryMetrics.failed(e);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * IDs of up to count books in (title, bookId) order: those right after the given key,
+     * or from row offset on when no key is known. Empty on error.
+     */
+    public static List<Integer> getBookIdRange(BookKey after, int offset, int count) {
+        return QueryMetrics.time("getBookIdRange", () -> {
+            List<Integer> bookIds = new ArrayList<>();
+            String query = after != null
+                    ? "SELECT bookId FROM books WHERE title > ? OR (title = ? AND bookId > ?) ORDER BY title, bookId LIMIT ?"
+                    : "SELECT bookId FROM books ORDER BY title, bookId LIMIT ? OFFSET ?";
+            try (Connection conn = getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(query)) {
+                if (after != null) {
+                    stmt.setString(1, after.getTitle());
+                    stmt.setString(2, after.getTitle());
+                    stmt.setInt(3, after.getBookId());
+                    stmt.setInt(4, count);
+                } else {
+                    stmt.setInt(1, count);
+                    stmt.setInt(2, offset);
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        bookIds.add(rs.getInt(1));
+                    }
+                }
+            } catch (SQLException e) {
+                QueryMetrics.failed(e);
+                bookIds.clear();
+            }
+            return bookIds;
+        });
+    }
+
+    /**
+     * Row of a book in (title, bookId) order, i.e. where the books table shows it; -1 on error
+     */
+    public static int getBookRowIndex(BookKey key) {
+        return QueryMetrics.time("getBookRowIndex", () -> {
+            String query = "SELECT COUNT(*) FROM books WHERE title < ? OR (title = ? AND bookId < ?)";
+            try (Connection conn = getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setString(1, key.getTitle());
+                stmt.setString(2, key.getTitle());
+                stmt.setInt(3, key.getBookId());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : -1;
+                }
+            } catch (SQLException e) {
+                QueryMetrics.failed(e);
+                return -1;
+            }
+        });
+    }
+
+    /**
+     * Forget all cached catalog and user data (e.g. after changes made outside this app)
+     */
+    public static void invalidateCaches() {
+        catalogCache.invalidateAll();
+        librarySearch.invalidateAll();
+        typeahead.invalidateAll();
+        bookDetailCache.clear();
+    }
+
+    /**
+     * A catalog row changed (new book, edited fields or cover): drop it from every cache
+     */
+    private static void bookChanged(int bookId) {
+        catalogCache.invalidateBook(bookId);
+        librarySearch.invalidateBook(bookId);
+        bookDetailCache.invalidateBook(bookId);
+    }
+
+    private static void authorAdded(Author author) {
+        librarySearch.invalidateAuthor(author.getAuthorId());
+        typeahead.authorChanged(author);
+    }
+
+    /**
+     * A user's user_books row changed or was removed
+     */
+    private static void userBookChanged(int userId, int bookId) {
+        catalogCache.invalidateUserBook(userId, bookId);
+        librarySearch.invalidateUserBook(userId, bookId);
+        bookDetailCache.invalidate(userId, bookId);
+    }
+
+    public static void addBookChangeListener(BookChangeListener listener) {
+        bookChangeListeners.add(listener);
+    }
+
+    public static void removeBookChangeListener(BookChangeListener listener) {
+        bookChangeListeners.remove(listener);
+    }
+
+    /**
+     * Tell the listeners about a committed change; call after the caches were invalidated
+     */
+    private static void fireBookChanged(int userId, int bookId, BookChangeListener.Type type) {
+        for (BookChangeListener listener : bookChangeListeners) {
+            try {
+                listener.bookChanged(userId, bookId, type);
+            } catch (RuntimeException e) {
+                System.err.println("⚠️ Book change listener failed: " + e.getMessage());
+            }
         }
+    }
 
-        return books;
+    /**
+     * Build a Book from the current row of a book + author + user_books query
+     */
+    static Book mapBook(ResultSet rs) throws SQLException {
+        return new Book(
+                rs.getInt("bookId"),
+                rs.getInt("authorId"),
+                rs.getString("title"),
+                rs.getString("authorName"),
+                rs.getInt("year"),
+                rs.getInt("numberOfPages"),
+                rs.getString("cover"),
+                rs.getString("about"),
+                rs.getInt("readStatus"),
+                rs.getInt("rating"),
+                rs.getString("comments"),
+                rs.getDate("releaseDate")
+        );
     }
 
     // Get all authors
     public static List<Author> getAllAuthors() {
-        List<Author> authors = new ArrayList<>();
+        return QueryMetrics.time("getAllAuthors", () -> {
+            List<Author> authors = new ArrayList<>();
+
+            try (Connection conn = getConnection()) {
+                String query = "SELECT * FROM authors ORDER BY surname, name";
+
+                try (PreparedStatement stmt = conn.prepareStatement(query);
+                     ResultSet rs = stmt.executeQuery()) {
+
+                    while (rs.next()) {
+                        authors.add(new Author(
+                                rs.getInt("authorId"),
+                                rs.getString("name"),
+                                rs.getString("surname"),
+                                rs.getString("website")
+                        ));
+                    }
+                }
+            } catch (SQLException e) {
+                QueryMetrics.failed(e);
+            }
+
+            return authors;
+        });
+    }
+
+    // Add author
+    public static boolean addAuthor(String name, String surname, String website) {
+        return QueryMetrics.time("addAuthor", () -> {
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
+                String query = "INSERT INTO authors (name, surname, website) VALUES (?, ?, ?)";
+
+                try (PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+                    stmt.setString(1, name);
+                    stmt.setString(2, surname);
+                    stmt.setString(3, website);
+
+                    boolean added = stmt.executeUpdate() > 0;
+                    Author author = null;
+                    try (ResultSet keys = stmt.getGeneratedKeys()) {
+                        if (keys.next()) {
+                            author = new Author(keys.getInt(1), name, surname, website);
+                        }
+                    }
+                    UserStats.catalogAdded(conn, 0, added ? 1 : 0);
+                    conn.commit();
+
+                    if (author != null) {
+                        authorAdded(author);
+                    }
+                    return added;
+                }
+            } catch (SQLException e) {
+                QueryMetrics.failed(e);
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Legacy method for backward compatibility
+     */
+    public static boolean addBook(UserSession session, int authorId, String title, int year, int numberOfPages, String cover, String about) {
+        return QueryMetrics.time("addBook", session, () -> {
+            return addBookComplete(session, authorId, title, year, numberOfPages, cover, about, 0, 0, "");
+        });
+    }
+
+    /**
+     * Get existing author ID or create new author if doesn't exist
+     */
+    public static int getOrCreateAuthor(String name, String surname, String website) {
+        return QueryMetrics.time("getOrCreateAuthor", () -> {
+            try (Connection conn = getConnection()) {
+                // First, check if author already exists
+                String checkQuery = "SELECT authorId FROM authors WHERE name = ? AND surname = ?";
+                try (PreparedStatement checkStmt = conn.prepareStatement(checkQuery)) {
+                    checkStmt.setString(1, name);
+                    checkStmt.setString(2, surname);
+
+                    try (ResultSet rs = checkStmt.executeQuery()) {
+                        if (rs.next()) {
+                            // Author exists, return existing ID
+                            System.out.println("Found existing author: " + name + " " + surname);
+                            return rs.getInt("authorId");
+                        }
+                    }
+                }
+
+                // Author doesn't exist, create new one
+                String insertQuery = "INSERT INTO authors (name, surname, website) VALUES (?, ?, ?)";
+                conn.setAutoCommit(false);
+                try (PreparedStatement insertStmt = conn.prepareStatement(insertQuery, Statement.RETURN_GENERATED_KEYS)) {
+                    insertStmt.setString(1, name);
+                    insertStmt.setString(2, surname);
+                    insertStmt.setString(3, website.isEmpty() ? null : website);
+
+                    int affectedRows = insertStmt.executeUpdate();
+                    if (affectedRows > 0) {
+                        UserStats.catalogAdded(conn, 0, affectedRows);
+                        conn.commit();
+                        try (ResultSet generatedKeys = insertStmt.getGeneratedKeys()) {
+                            if (generatedKeys.next()) {
+                                int newAuthorId = generatedKeys.getInt(1);
+                                authorAdded(new Author(newAuthorId, name, surname, website.isEmpty() ? null : website));
+                                System.out.println("Created new author: " + name + " " + surname + " with ID: " + newAuthorId);
+                                return newAuthorId;
+                            }
+                        }
+                    }
+                }
+
+            } catch (SQLException e) {
+                System.err.println("Error in getOrCreateAuthor: " + e.getMessage());
+                QueryMetrics.failed(e);
+            }
+            return -1;
+        });
+    }
+
+    /**
+     * Add a book to the catalog AND add it to the session user's library
+     * Compatible with existing UI code (without Date parameter)
+     */
+    public static boolean addBookComplete(UserSession session, int authorId, String title, int year, int numberOfPages,
+                                          String cover, String about, int readStatus, int rating, String comments) {
+        return QueryMetrics.time("addBookComplete", session, () -> {
+            if (!isLoggedIn(session)) {
+                return false;
+            }
+
+            int userId = session.getUserId();
+            flushPendingWritesFor(userId);
+
+            // Calculate releaseDate based on readStatus
+            Date releaseDate = null;
+            if (readStatus == 3) { // Want to read
+                // For demo purposes, set a future date (you can modify this logic)
+                long currentTime = System.currentTimeMillis();
+                long oneWeekFromNow = currentTime + (7 * 24 * 60 * 60 * 1000); // Add 1 week
+                releaseDate = new Date(oneWeekFromNow);
+            }
+
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false); // Start transaction
+                BookInsert insert = insertBookComplete(conn, userId, authorId, title, year, numberOfPages,
+                        cover, about, readStatus, rating, comments, releaseDate);
+                int bookId = insert.bookId();
+                boolean addedToCatalog = insert.addedToCatalog();
+
+                conn.commit(); // Commit transaction
+
+                if (bookId != -1) {
+                    bookChanged(bookId);
+                    userBookChanged(userId, bookId);
+                    typeahead.titleChanged(bookId, title);
+                    if (addedToCatalog) {
+                        fireBookChanged(-1, bookId, BookChangeListener.Type.INSERTED);
+                    } else {
+                        fireBookChanged(userId, bookId, BookChangeListener.Type.UPDATED);
+                    }
+                }
+                return true;
+
+            } catch (SQLException e) {
+                System.err.println("Error adding book: " + e.getMessage());
+                QueryMetrics.failed(e);
+                return false;
+            }
+        });
+    }
+
+    private record BookInsert(int bookId, boolean addedToCatalog) {
+    }
+
+    /**
+     * addBookComplete's statements on the caller's transaction; the caller commits or rolls back
+     */
+    private static BookInsert insertBookComplete(Connection conn, int userId, int authorId, String title, int year,
+                                                 int numberOfPages, String cover, String about, int readStatus,
+                                                 int rating, String comments, Date releaseDate) throws SQLException {
+        // Step 1: Check if book already exists in catalog
+        int bookId = -1;
+        String checkBookQuery = "SELECT bookId FROM books WHERE title = ? AND authorId = ? AND year = ?";
+        try (PreparedStatement checkStmt = conn.prepareStatement(checkBookQuery)) {
+            checkStmt.setString(1, title);
+            checkStmt.setInt(2, authorId);
+            checkStmt.setInt(3, year);
+
+            try (ResultSet rs = checkStmt.executeQuery()) {
+                if (rs.next()) {
+                    bookId = rs.getInt("bookId");
+                    System.out.println("📚 Book already exists in catalog: " + title);
+                }
+            }
+        }
+
+        // Step 2: If book doesn't exist, add to catalog
+        boolean addedToCatalog = false;
+        if (bookId == -1) {
+            String insertBookQuery = "INSERT INTO books (authorId, title, year, numberOfPages, cover, about) VALUES (?, ?, ?, ?, ?, ?)";
+            try (PreparedStatement insertStmt = conn.prepareStatement(insertBookQuery, Statement.RETURN_GENERATED_KEYS)) {
+                insertStmt.setInt(1, authorId);
+                insertStmt.setString(2, title);
+                insertStmt.setInt(3, year);
+                insertStmt.setInt(4, numberOfPages);
+                insertStmt.setString(5, cover.isEmpty() ? null : cover);
+                insertStmt.setString(6, about.isEmpty() ? null : about);
+
+                int result = insertStmt.executeUpdate();
+                if (result > 0) {
+                    try (ResultSet generatedKeys = insertStmt.getGeneratedKeys()) {
+                        if (generatedKeys.next()) {
+                            bookId = generatedKeys.getInt(1);
+                            addedToCatalog = true;
+                            System.out.println("📚 Added book to catalog: " + title);
+                        }
+                    }
+                }
+            }
+        }
+
+        if (addedToCatalog) {
+            UserStats.catalogAdded(conn, 1, 0);
+        }
+
+        // Step 3: Add to the session user's library
+        if (bookId != -1) {
+            String insertUserBookQuery = "INSERT INTO user_books (userId, bookId, readStatus, rating, comments, releaseDate) " +
+                    "VALUES (?, ?, ?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE " +
+                    "readStatus = VALUES(readStatus), " +
+                    "rating = VALUES(rating), " +
+                    "comments = VALUES(comments), " +
+                    "releaseDate = VALUES(releaseDate)";
+
+            UserStats.RowState before = UserStats.readRowState(conn, userId, bookId);
+            try (PreparedStatement userStmt = conn.prepareStatement(insertUserBookQuery)) {
+                userStmt.setInt(1, userId);
+                userStmt.setInt(2, bookId);
+                userStmt.setInt(3, readStatus);
+                userStmt.setInt(4, rating);
+                userStmt.setString(5, comments.isEmpty() ? null : comments);
+                userStmt.setDate(6, releaseDate);
+
+                userStmt.executeUpdate();
+                System.out.println("📖 Added book to user " + userId + "'s library: " + title);
+            }
+            UserStats.applyChange(conn, userId, before, UserStats.readRowState(conn, userId, bookId));
+        }
+
+        return new BookInsert(bookId, addedToCatalog);
+    }
+
+    /**
+     * Runs addBookComplete's statements for the write benchmark in a transaction that is
+     * rolled back, so repeated runs leave the catalog, the library and the counters as they were
+     */
+    static boolean addBookCompleteRolledBack(UserSession session, int authorId, String title) {
+        return QueryMetrics.time("addBookComplete", session, () -> {
+            if (!isLoggedIn(session)) {
+                return false;
+            }
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    return insertBookComplete(conn, session.getUserId(), authorId, title, 2024, 200,
+                            "", "", 2, 0, "", null).bookId() != -1;
+                } finally {
+                    conn.rollback();
+                }
+            } catch (SQLException e) {
+                System.err.println("Error adding book: " + e.getMessage());
+                QueryMetrics.failed(e);
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Remove book from THE SESSION USER'S library only (not from catalog)
+     */
+    public static boolean deleteBook(UserSession session, int bookId) {
+        return QueryMetrics.time("deleteBook", session, () -> {
+            if (!isLoggedIn(session)) {
+                return false;
+            }
+
+            int userId = session.getUserId();
+            flushPendingWritesFor(userId);
+
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
+                String query = "DELETE FROM user_books WHERE bookId = ? AND userId = ?";
+
+                UserStats.RowState before = UserStats.readRowState(conn, userId, bookId);
+                try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                    stmt.setInt(1, bookId);
+                    stmt.setInt(2, userId);
+
+                    int result = stmt.executeUpdate();
+                    UserStats.applyChange(conn, userId, before, null);
+                    conn.commit();
+
+                    if (result == 0) {
+                        return false; // Not in the user's library; nothing changed
+                    }
+                    userBookChanged(userId, bookId);
+                    // Still in the catalog; only the user's status, rating and comments are gone
+                    fireBookChanged(userId, bookId, BookChangeListener.Type.UPDATED);
+                    System.out.println("📚 Removed book from user " + userId + "'s library");
+                    return true;
+                }
+            } catch (SQLException e) {
+                QueryMetrics.failed(e);
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Get book info with the session user's personal data.
+     * Served from the detail cache while the cached row is younger than its TTL.
+     */
+    public static Book getBookInfo(UserSession session, int bookId) {
+        return QueryMetrics.time("getBookInfo", session, () -> {
+            if (!isLoggedIn(session)) {
+                return null;
+            }
+
+            int userId = session.getUserId();
+            flushPendingWritesFor(userId);
+            Book cached = bookDetailCache.get(userId, bookId);
+            if (cached != null) {
+                return cached;
+            }
+
+            long loadStart = bookDetailCache.beginLoad();
+            try (Connection conn = getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(SQL_BOOK_INFO)) {
+                stmt.setInt(1, userId);
+                stmt.setInt(2, bookId);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        Book book = mapBook(rs);
+                        bookDetailCache.put(userId, book, loadStart);
+                        return book;
+                    }
+                }
+            } catch (SQLException e) {
+                QueryMetrics.failed(e);
+            } finally {
+                bookDetailCache.endLoad(loadStart);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Book info with the session user's personal data for several books, in one query
+     * per 512 books; books that no longer exist are left out
+     */
+    public static List<Book> getBooksInfo(UserSession session, Collection<Integer> bookIds) {
+        return QueryMetrics.time("getBooksInfo", session, () -> {
+            List<Book> books = new ArrayList<>();
+            if (!isLoggedIn(session) || bookIds.isEmpty()) {
+                return books;
+            }
+
+            int userId = session.getUserId();
+            flushPendingWritesFor(userId);
+            List<Integer> ids = new ArrayList<>(bookIds);
+            long loadStart = bookDetailCache.beginLoad();
+            try (Connection conn = getConnection()) {
+                for (int from = 0; from < ids.size(); from += SqlLists.MAX_SIZE) {
+                    List<Integer> chunk = SqlLists.padded(ids.subList(from, Math.min(ids.size(), from + SqlLists.MAX_SIZE)));
+                    String query = BOOK_WITH_USER_DATA_SELECT + "WHERE b.bookId IN (" + SqlLists.placeholders(chunk.size()) + ")";
+                    try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                        stmt.setInt(1, userId);
+                        for (int i = 0; i < chunk.size(); i++) {
+                            stmt.setInt(i + 2, chunk.get(i));
+                        }
+                        try (ResultSet rs = stmt.executeQuery()) {
+                            while (rs.next()) {
+                                books.add(mapBook(rs));
+                            }
+                        }
+                    }
+                }
+                bookDetailCache.putAll(userId, books, loadStart);
+            } catch (SQLException e) {
+                QueryMetrics.failed(e);
+            } finally {
+                bookDetailCache.endLoad(loadStart);
+            }
+            return books;
+        });
+    }
+
+    /**
+     * Book info from the detail cache only, even if past its TTL; null if not cached.
+     * Never touches the database, so it is safe to call on the EDT.
+     */
+    public static Book peekBookInfo(UserSession session, int bookId) {
+        return session != null && session.isLoggedIn() ? bookDetailCache.peek(session.getUserId(), bookId) : null;
+    }
+
+    /**
+     * Whether getBookInfo(bookId) would be answered from the cache
+     */
+    public static boolean isBookInfoFresh(UserSession session, int bookId) {
+        return session != null && session.isLoggedIn() && bookDetailCache.isFresh(session.getUserId(), bookId);
+    }
+
+    /**
+     * Search authors by name and surname (accent-insensitive, best match first).
+     * Served from the in-memory search index.
+     */
+    public static List<Author> searchAuthors(String searchTerm) {
+        return QueryMetrics.time("searchAuthors", () -> {
+            try {
+                return librarySearch.searchAuthors(searchTerm, MAX_SEARCH_RESULTS);
+            } catch (SQLException e) {
+                QueryMetrics.failed(e);
+                return new ArrayList<>();
+            }
+        });
+    }
+
+    /**
+     * Search books by title, author, description and the session user's comments
+     * (accent-insensitive, best match first). The last word also matches as a prefix.
+     */
+    public static List<Book> searchBooks(UserSession session, String query) {
+        return searchBooks(session, query, MAX_SEARCH_RESULTS);
+    }
+
+    public static List<Book> searchBooks(UserSession session, String query, int limit) {
+        return QueryMetrics.time("searchBooks", session, () -> {
+            if (!isLoggedIn(session)) {
+                return new ArrayList<>();
+            }
+
+            int userId = session.getUserId();
+            flushPendingWritesFor(userId);
+
+            try {
+                return librarySearch.searchBooks(userId, query, limit);
+            } catch (SQLException e) {
+                QueryMetrics.failed(e);
+                return new ArrayList<>();
+            }
+        });
+    }
+
+    /**
+     * Load the author and title suggestion index (call off the EDT; no-op once loaded)
+     */
+    public static void loadTypeahead() {
+        QueryMetrics.run("loadTypeahead", () -> {
+            try {
+                typeahead.load();
+            } catch (SQLException e) {
+                System.err.println("⚠️ Could not load typeahead data: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Authors whose name or surname starts with (or nearly matches) the typed text.
+     * In-memory only; empty until loadTypeahead() has run.
+     */
+    public static List<Author> suggestAuthors(String typed, int limit) {
+        return typeahead.suggestAuthors(typed, limit);
+    }
+
+    /**
+     * Catalog titles with a word starting with (or nearly matching) the typed text.
+     * In-memory only; empty until loadTypeahead() has run.
+     */
+    public static List<String> suggestTitles(String typed, int limit) {
+        return typeahead.suggestTitles(typed, limit);
+    }
+
+    /**
+     * Author from the typeahead index, or null if unknown or not loaded yet
+     */
+    public static Author getKnownAuthor(int authorId) {
+        return typeahead.getAuthor(authorId);
+    }
+
+    /**
+     * Update user's personal book data
+     */
+    public static boolean updateBook(UserSession session, int bookId, String title, int year, int numberOfPages,
+                                     String about, int readStatus, int rating, String comments) {
+        return QueryMetrics.time("updateBook", session, () -> {
+            if (!isLoggedIn(session)) {
+                return false;
+            }
 
-        try (Connection conn = getConnection()) {
-            String query = "SELECT * FROM authors ORDER BY surname, name";
+            int userId = session.getUserId();
+            flushPendingWritesFor(userId);
 
-            try (PreparedStatement stmt = conn.prepareStatement(query);
-                 ResultSet rs = stmt.executeQuery()) {
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
 
-                while (rs.next()) {
-                    authors.add(new Author(
-                            rs.getInt("authorId"),
-                            rs.getString("name"),
-                            rs.getString("surname"),
-                            rs.getString("website")
-                    ));
+                int oldPages = 0;
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT numberOfPages FROM books WHERE bookId = ? FOR UPDATE")) {
+                    stmt.setInt(1, bookId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) {
+                            oldPages = rs.getInt("numberOfPages");
+                        }
+                    }
                 }
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
 
-        return authors;
-    }
+                // Update book catalog (title, year, pages, about)
+                String updateBookQuery = "UPDATE books SET title = ?, year = ?, numberOfPages = ?, about = ? WHERE bookId = ?";
+                try (PreparedStatement stmt = conn.prepareStatement(updateBookQuery)) {
+                    stmt.setString(1, title);
+                    stmt.setInt(2, year);
+                    stmt.setInt(3, numberOfPages);
+                    stmt.setString(4, about);
+                    stmt.setInt(5, bookId);
+                    stmt.executeUpdate();
+                }
+                // Pages read by everyone who finished this book move with the new page count
+                UserStats.applyPageCountChange(conn, bookId, numberOfPages - oldPages);
 
-    // Add author
-    public static boolean addAuthor(String name, String surname, String website) {
-        try (Connection conn = getConnection()) {
-            String query = "INSERT INTO authors (name, surname, website) VALUES (?, ?, ?)";
+                // Update user's personal data
+                String updateUserBookQuery = "INSERT INTO user_books (userId, bookId, readStatus, rating, comments) " +
+                        "VALUES (?, ?, ?, ?, ?) " +
+                        "ON DUPLICATE KEY UPDATE " +
+                        "readStatus = VALUES(readStatus), " +
+                        "rating = VALUES(rating), " +
+                        "comments = VALUES(comments)";
+
+                UserStats.RowState before = UserStats.readRowState(conn, userId, bookId);
+                try (PreparedStatement stmt = conn.prepareStatement(updateUserBookQuery)) {
+                    stmt.setInt(1, userId);
+                    stmt.setInt(2, bookId);
+                    stmt.setInt(3, readStatus);
+                    stmt.setInt(4, rating);
+                    stmt.setString(5, comments);
+                    stmt.executeUpdate();
+                }
+                UserStats.applyChange(conn, userId, before, UserStats.readRowState(conn, userId, bookId));
 
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setString(1, name);
-                stmt.setString(2, surname);
-                stmt.setString(3, website);
+                conn.commit();
+
+                bookChanged(bookId);
+                userBookChanged(userId, bookId);
+                typeahead.titleChanged(bookId, title);
+                fireBookChanged(-1, bookId, BookChangeListener.Type.UPDATED);
+                return true;
 
-                return stmt.executeUpdate() > 0;
+            } catch (SQLException e) {
+                QueryMetrics.failed(e);
+                return false;
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+        });
     }
 
     /**
-     * Legacy method for backward compatibility
+     * Get the session user's favorite books (rating >= 4)
      */
-    public static boolean addBook(int authorId, String title, int year, int numberOfPages, String cover, String about) {
-        return addBookComplete(authorId, title, year, numberOfPages, cover, about, 0, 0, "");
+    public static List<Book> getFavoriteBooks(UserSession session) {
+        return QueryMetrics.time("getFavoriteBooks", session, () -> {
+            List<Book> books = new ArrayList<>();
+
+            if (!isLoggedIn(session)) {
+                return books;
+            }
+
+            int userId = session.getUserId();
+            flushPendingWritesFor(userId);
+
+            try (Connection conn = getConnection()) {
+                String query = "SELECT b.bookId, b.authorId, b.title, b.year, b.numberOfPages, b.cover, b.about, " +
+                        "CONCAT(a.name, ' ', a.surname) as authorName, " +
+                        "ub.readStatus, ub.rating, ub.comments, ub.releaseDate " +
+                        "FROM books b " +
+                        "JOIN authors a ON b.authorId = a.authorId " +
+                        "JOIN user_books ub ON b.bookId = ub.bookId " +
+                        "WHERE ub.userId = ? AND ub.rating >= 4 " +
+                        "ORDER BY ub.rating DESC, b.title";
+
+                try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                    stmt.setInt(1, userId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            books.add(mapBook(rs));
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                QueryMetrics.failed(e);
+            }
+
+            return books;
+        });
     }
 
     /**
-     * Get existing author ID or create new author if doesn't exist
+     * Get the session user's favorite authors (authors with books rated >= 4)
      */
-    public static int getOrCreateAuthor(String name, String surname, String website) {
-        try (Connection conn = getConnection()) {
-            // First, check if author already exists
-            String checkQuery = "SELECT authorId FROM authors WHERE name = ? AND surname = ?";
-            try (PreparedStatement checkStmt = conn.prepareStatement(checkQuery)) {
-                checkStmt.setString(1, name);
-                checkStmt.setString(2, surname);
+    public static List<Author> getFavoriteAuthors(UserSession session) {
+        return QueryMetrics.time("getFavoriteAuthors", session, () -> {
+            List<Author> authors = new ArrayList<>();
 
-                ResultSet rs = checkStmt.executeQuery();
-                if (rs.next()) {
-                    // Author exists, return existing ID
-                    System.out.println("Found existing author: " + name + " " + surname);
-                    return rs.getInt("authorId");
-                }
-            }
-
-            // Author doesn't exist, create new one
-            String insertQuery = "INSERT INTO authors (name, surname, website) VALUES (?, ?, ?)";
-            try (PreparedStatement insertStmt = conn.prepareStatement(insertQuery, Statement.RETURN_GENERATED_KEYS)) {
-                insertStmt.setString(1, name);
-                insertStmt.setString(2, surname);
-                insertStmt.setString(3, website.isEmpty() ? null : website);
-
-                int affectedRows = insertStmt.executeUpdate();
-                if (affectedRows > 0) {
-                    ResultSet generatedKeys = insertStmt.getGeneratedKeys();
-                    if (generatedKeys.next()) {
-                        int newAuthorId = generatedKeys.getInt(1);
-                        System.out.println("Created new author: " + name + " " + surname + " with ID: " + newAuthorId);
-                        return newAuthorId;
+            if (!isLoggedIn(session)) {
+                return authors;
+            }
+
+            int userId = session.getUserId();
+            flushPendingWritesFor(userId);
+
+            try (Connection conn = getConnection()) {
+                String query = "SELECT DISTINCT a.authorId, a.name, a.surname, a.website " +
+                        "FROM authors a " +
+                        "JOIN books b ON a.authorId = b.authorId " +
+                        "JOIN user_books ub ON b.bookId = ub.bookId " +
+                        "WHERE ub.userId = ? AND ub.rating >= 4 " +
+                        "ORDER BY a.surname, a.name";
+
+                try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                    stmt.setInt(1, userId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            authors.add(new Author(
+                                    rs.getInt("authorId"),
+                                    rs.getString("name"),
+                                    rs.getString("surname"),
+                                    rs.getString("website")
+                            ));
+                        }
                     }
                 }
+            } catch (SQLException e) {
+                QueryMetrics.failed(e);
             }
 
-        } catch (SQLException e) {
-            System.err.println("Error in getOrCreateAuthor: " + e.getMessage());
-            e.printStackTrace();
-        }
-        return -1;
+            return authors;
+        });
     }
 
     /**
-     * Add a book to the catalog AND add it to current user's library
-     * Compatible with existing UI code (without Date parameter)
+     * Get the session user's unread books (readStatus = 0 or 2)
      */
-    public static boolean addBookComplete(int authorId, String title, int year, int numberOfPages,
-                                          String cover, String about, int readStatus, int rating, String comments) {
-        if (currentUserId == -1) {
-            System.err.println("❌ No user logged in!");
-            return false;
-        }
+    public static List<Book> getUnreadBooks(UserSession session) {
+        return getBooksByStatus(session, 0, 2);
+    }
 
-        // Calculate releaseDate based on readStatus
-        Date releaseDate = null;
-        if (readStatus == 3) { // Want to read
-            // For demo purposes, set a future date (you can modify this logic)
-            long currentTime = System.currentTimeMillis();
-            long oneWeekFromNow = currentTime + (7 * 24 * 60 * 60 * 1000); // Add 1 week
-            releaseDate = new Date(oneWeekFromNow);
-        }
+    /**
+     * Get the session user's books with any of the given read statuses, ordered by title.
+     * Status 0 also matches catalog books that are not in the user's library.
+     */
+    public static List<Book> getBooksByStatus(UserSession session, int... statuses) {
+        return QueryMetrics.time("getBooksByStatus", session, () -> {
+            List<Book> books = new ArrayList<>();
 
-        try (Connection conn = getConnection()) {
-            conn.setAutoCommit(false); // Start transaction
+            if (!isLoggedIn(session)) {
+                return books;
+            }
 
-            // Step 1: Check if book already exists in catalog
-            int bookId = -1;
-            String checkBookQuery = "SELECT bookId FROM books WHERE title = ? AND authorId = ? AND year = ?";
-            try (PreparedStatement checkStmt = conn.prepareStatement(checkBookQuery)) {
-                checkStmt.setString(1, title);
-                checkStmt.setInt(2, authorId);
-                checkStmt.setInt(3, year);
+            int userId = session.getUserId();
+            flushPendingWritesFor(userId);
 
-                ResultSet rs = checkStmt.executeQuery();
-                if (rs.next()) {
-                    bookId = rs.getInt("bookId");
-                    System.out.println("📚 Book already exists in catalog: " + title);
+            if (statuses.length == 0) {
+                return books;
+            }
+
+            boolean includesNotInLibrary = false;
+            StringBuilder placeholders = new StringBuilder();
+            for (int i = 0; i < statuses.length; i++) {
+                placeholders.append(i == 0 ? "?" : ", ?");
+                if (statuses[i] == 0) {
+                    includesNotInLibrary = true;
                 }
             }
 
-            // Step 2: If book doesn't exist, add to catalog
-            if (bookId == -1) {
-                String insertBookQuery = "INSERT INTO books (authorId, title, year, numberOfPages, cover, about) VALUES (?, ?, ?, ?, ?, ?)";
-                try (PreparedStatement insertStmt = conn.prepareStatement(insertBookQuery, Statement.RETURN_GENERATED_KEYS)) {
-                    insertStmt.setInt(1, authorId);
-                    insertStmt.setString(2, title);
-                    insertStmt.setInt(3, year);
-                    insertStmt.setInt(4, numberOfPages);
-                    insertStmt.setString(5, cover.isEmpty() ? null : cover);
-                    insertStmt.setString(6, about.isEmpty() ? null : about);
+            String query;
+            if (includesNotInLibrary) {
+                // "Not in library" has no user_books row, so this needs the outer join over the catalog
+                query = BOOK_WITH_USER_DATA_SELECT +
+                        "WHERE COALESCE(ub.readStatus, 0) IN (" + placeholders + ") " +
+                        "ORDER BY b.title";
+            } else {
+                query = USER_LIBRARY_SELECT +
+                        "WHERE ub.userId = ? AND ub.readStatus IN (" + placeholders + ") " +
+                        "ORDER BY b.title";
+            }
 
-                    int result = insertStmt.executeUpdate();
-                    if (result > 0) {
-                        ResultSet generatedKeys = insertStmt.getGeneratedKeys();
-                        if (generatedKeys.next()) {
-                            bookId = generatedKeys.getInt(1);
-                            System.out.println("📚 Added book to catalog: " + title);
-                        }
+            try (Connection conn = getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(query)) {
+                int index = 1;
+                stmt.setInt(index++, userId);
+                for (int status : statuses) {
+                    stmt.setInt(index++, status);
+                }
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        books.add(mapBook(rs));
                     }
                 }
+            } catch (SQLException e) {
+                QueryMetrics.failed(e);
             }
 
-            // Step 3: Add to current user's library
-            if (bookId != -1) {
-                String insertUserBookQuery = "INSERT INTO user_books (userId, bookId, readStatus, rating, comments, releaseDate) " +
-                        "VALUES (?, ?, ?, ?, ?, ?) " +
-                        "ON DUPLICATE KEY UPDATE " +
-                        "readStatus = VALUES(readStatus), " +
-                        "rating = VALUES(rating), " +
-                        "comments = VALUES(comments), " +
-                        "releaseDate = VALUES(releaseDate)";
+            return books;
+        });
+    }
 
-                try (PreparedStatement userStmt = conn.prepareStatement(insertUserBookQuery)) {
-                    userStmt.setInt(1, currentUserId);
-                    userStmt.setInt(2, bookId);
-                    userStmt.setInt(3, readStatus);
-                    userStmt.setInt(4, rating);
-                    userStmt.setString(5, comments.isEmpty() ? null : comments);
-                    userStmt.setDate(6, releaseDate);
+    /**
+     * Get the session user's upcoming releases (books with future release dates)
+     */
+    public static List<Book> getUpcomingReleases(UserSession session) {
+        return QueryMetrics.time("getUpcomingReleases", session, () -> {
+            List<Book> books = new ArrayList<>();
 
-                    userStmt.executeUpdate();
-                    System.out.println("📖 Added book to user " + currentUserId + "'s library: " + title);
-                }
+            if (!isLoggedIn(session)) {
+                return books;
             }
 
-            conn.commit(); // Commit transaction
-            return true;
+            int userId = session.getUserId();
+            flushPendingWritesFor(userId);
+
+            try (Connection conn = getConnection()) {
+                String query = "SELECT b.bookId, b.authorId, b.title, b.year, b.numberOfPages, b.cover, b.about, " +
+                        "CONCAT(a.name, ' ', a.surname) as authorName, " +
+                        "ub.readStatus, ub.rating, ub.comments, ub.releaseDate " +
+                        "FROM books b " +
+                        "JOIN authors a ON b.authorId = a.authorId " +
+                        "JOIN user_books ub ON b.bookId = ub.bookId " +
+                        "WHERE ub.userId = ? AND ub.releaseDate >= CURDATE() AND ub.readStatus = 3 " +
+                        "ORDER BY ub.releaseDate";
+
+                try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                    stmt.setInt(1, userId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            books.add(mapBook(rs));
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                QueryMetrics.failed(e);
+            }
 
-        } catch (SQLException e) {
-            System.err.println("Error adding book: " + e.getMessage());
-            e.printStackTrace();
-            return false;
-        }
+            return books;
+        });
     }
 
     /**
-     * Remove book from CURRENT USER'S library only (not from catalog)
+     * Get the session user's reading statistics from their user_stats row
      */
-    public static boolean deleteBook(int bookId) {
-        if (currentUserId == -1) {
-            System.err.println("❌ No user logged in!");
-            return false;
-        }
-
-        try (Connection conn = getConnection()) {
-            String query = "DELETE FROM user_books WHERE bookId = ? AND userId = ?";
+    public static LibraryStatistics getLibraryStatistics(UserSession session) {
+        return QueryMetrics.time("getLibraryStatistics", session, () -> {
+            if (!isLoggedIn(session)) {
+                return null;
+            }
 
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setInt(1, bookId);
-                stmt.setInt(2, currentUserId);
+            int userId = session.getUserId();
+            flushPendingWritesFor(userId);
 
-                int result = stmt.executeUpdate();
-                System.out.println("📚 Removed book from user " + currentUserId + "'s library");
-                return result > 0;
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
+                LibraryStatistics statistics = UserStats.read(conn, userId);
+                conn.commit();
+                return statistics;
+            } catch (SQLException e) {
+                QueryMetrics.failed(e);
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+            return null;
+        });
     }
 
     /**
-     * Get book info with current user's personal data
+     * Recompute every user's user_stats counters from user_books.
+     * Returns one line per user whose stored counters had drifted.
      */
-    public static Book getBookInfo(int bookId) {
-        if (currentUserId == -1) {
-            System.err.println("❌ No user logged in!");
-            return null;
-        }
+    public static List<String> rebuildUserStats() {
+        return QueryMetrics.time("rebuildUserStats", () -> {
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
+                List<String> drift = UserStats.rebuild(conn, 0);
+                conn.commit();
+                System.out.println("📊 Rebuilt user statistics, " + drift.size() + " counter row(s) had drifted");
+                return drift;
+            } catch (SQLException e) {
+                QueryMetrics.failed(e);
+                return null;
+            }
+        });
+    }
 
-        try (Connection conn = getConnection()) {
-            String query = "SELECT b.bookId, b.authorId, b.title, b.year, b.numberOfPages, b.cover, b.about, " +
-                    "CONCAT(a.name, ' ', a.surname) as authorName, " +
-                    "COALESCE(ub.readStatus, 0) as readStatus, " +
-                    "COALESCE(ub.rating, 0) as rating, " +
-                    "ub.comments, " +
-                    "ub.releaseDate " +
-                    "FROM books b " +
-                    "JOIN authors a ON b.authorId = a.authorId " +
-                    "LEFT JOIN user_books ub ON b.bookId = ub.bookId AND ub.userId = ? " +
-                    "WHERE b.bookId = ?";
+    /**
+     * Update the session user's read status for a book
+     */
+    public static boolean updateReadStatus(UserSession session, int bookId, int readStatus) {
+        return QueryMetrics.time("updateReadStatus", session, () -> {
+            if (!isLoggedIn(session)) {
+                return false;
+            }
 
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setInt(1, currentUserId);
-                stmt.setInt(2, bookId);
-                ResultSet rs = stmt.executeQuery();
+            return upsertUserBookValue(SQL_UPSERT_READ_STATUS, session.getUserId(), bookId, readStatus);
+        });
+    }
 
-                if (rs.next()) {
-                    return new Book(
-                            rs.getInt("bookId"),
-                            rs.getInt("authorId"),
-                            rs.getString("title"),
-                            rs.getString("authorName"),
-                            rs.getInt("year"),
-                            rs.getInt("numberOfPages"),
-                            rs.getString("cover"),
-                            rs.getString("about"),
-                            rs.getInt("readStatus"),
-                            rs.getInt("rating"),
-                            rs.getString("comments"),
-                            rs.getDate("releaseDate")
-                    );
-                }
+    /**
+     * Update the session user's rating for a book
+     */
+    public static boolean updateRating(UserSession session, int bookId, int rating) {
+        return QueryMetrics.time("updateRating", session, () -> {
+            if (!isLoggedIn(session)) {
+                return false;
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return null;
-    }
 
-    // Search authors
-    public static List<Author> searchAuthors(String searchTerm) {
-        List<Author> authors = new ArrayList<>();
+            return upsertUserBookValue(SQL_UPSERT_RATING, session.getUserId(), bookId, rating);
+        });
+    }
 
-        try (Connection conn = getConnection()) {
-            String query = "SELECT * FROM authors WHERE name LIKE ? OR surname LIKE ? ORDER BY surname, name";
+    /**
+     * Remove several books from the session user's library in one transaction: one
+     * DELETE per 512 books and a single user_stats update
+     */
+    public static boolean deleteBooks(UserSession session, int[] bookIds) {
+        return QueryMetrics.time("deleteBooks", session, () -> {
+            if (!isLoggedIn(session)) {
+                return false;
+            }
 
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                String searchPattern = "%" + searchTerm + "%";
-                stmt.setString(1, searchPattern);
-                stmt.setString(2, searchPattern);
+            int userId = session.getUserId();
+            flushPendingWritesFor(userId);
+            List<Integer> ids = distinctIds(bookIds);
+            if (ids.isEmpty()) {
+                return true;
+            }
 
-                ResultSet rs = stmt.executeQuery();
-                while (rs.next()) {
-                    authors.add(new Author(
-                            rs.getInt("authorId"),
-                            rs.getString("name"),
-                            rs.getString("surname"),
-                            rs.getString("website")
-                    ));
+            List<Integer> removed;
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
+
+                Map<Integer, UserStats.RowState> before = UserStats.readRowStates(conn, userId, ids);
+                // The rows are locked, so exactly the books found here are deleted
+                removed = new ArrayList<>(before.keySet());
+                for (int from = 0; from < ids.size(); from += SqlLists.MAX_SIZE) {
+                    List<Integer> chunk = SqlLists.padded(ids.subList(from, Math.min(ids.size(), from + SqlLists.MAX_SIZE)));
+                    String query = "DELETE FROM user_books WHERE userId = ? AND bookId IN ("
+                            + SqlLists.placeholders(chunk.size()) + ")";
+                    try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                        stmt.setInt(1, userId);
+                        for (int i = 0; i < chunk.size(); i++) {
+                            stmt.setInt(i + 2, chunk.get(i));
+                        }
+                        stmt.executeUpdate();
+                    }
                 }
+                UserStats.applyChanges(conn, userId, ids, before, Map.of());
+                conn.commit();
+            } catch (SQLException e) {
+                QueryMetrics.failed(e);
+                return false;
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
 
-        return authors;
+            userBooksChanged(userId, removed);
+            System.out.println("📚 Removed " + removed.size() + " books from user " + userId + "'s library");
+            return true;
+        });
     }
 
     /**
-     * Update user's personal book data
+     * Set the session user's read status for several books in one transaction
      */
-    public static boolean updateBook(int bookId, String title, int year, int numberOfPages,
-                                     String about, int readStatus, int rating, String comments) {
-        if (currentUserId == -1) {
-            System.err.println("❌ No user logged in!");
-            return false;
-        }
-
-        try (Connection conn = getConnection()) {
-            conn.setAutoCommit(false);
+    public static boolean updateReadStatus(UserSession session, int[] bookIds, int readStatus) {
+        return QueryMetrics.time("updateReadStatusBatch", session, () -> {
+            if (!isLoggedIn(session)) {
+                return false;
+            }
 
-            // Update book catalog (title, year, pages, about)
-            String updateBookQuery = "UPDATE books SET title = ?, year = ?, numberOfPages = ?, about = ? WHERE bookId = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(updateBookQuery)) {
-                stmt.setString(1, title);
-                stmt.setInt(2, year);
-                stmt.setInt(3, numberOfPages);
-                stmt.setString(4, about);
-                stmt.setInt(5, bookId);
-                stmt.executeUpdate();
+            List<int[]> rows = new ArrayList<>();
+            for (int bookId : distinctIds(bookIds)) {
+                rows.add(new int[]{bookId, readStatus});
             }
+            return upsertUserBookValues(session.getUserId(), "readStatus", rows);
+        });
+    }
 
-            // Update user's personal data
-            String updateUserBookQuery = "INSERT INTO user_books (userId, bookId, readStatus, rating, comments) " +
-                    "VALUES (?, ?, ?, ?, ?) " +
-                    "ON DUPLICATE KEY UPDATE " +
-                    "readStatus = VALUES(readStatus), " +
-                    "rating = VALUES(rating), " +
-                    "comments = VALUES(comments)";
+    /**
+     * Set the session user's ratings (bookId -> rating) in one transaction
+     */
+    public static boolean updateRatings(UserSession session, Map<Integer, Integer> ratingsByBookId) {
+        return QueryMetrics.time("updateRatings", session, () -> {
+            if (!isLoggedIn(session)) {
+                return false;
+            }
 
-            try (PreparedStatement stmt = conn.prepareStatement(updateUserBookQuery)) {
-                stmt.setInt(1, currentUserId);
-                stmt.setInt(2, bookId);
-                stmt.setInt(3, readStatus);
-                stmt.setInt(4, rating);
-                stmt.setString(5, comments);
-                stmt.executeUpdate();
+            List<int[]> rows = new ArrayList<>();
+            for (Map.Entry<Integer, Integer> entry : ratingsByBookId.entrySet()) {
+                rows.add(new int[]{entry.getKey(), entry.getValue()});
             }
+            return upsertUserBookValues(session.getUserId(), "rating", rows);
+        });
+    }
 
-            conn.commit();
+    /**
+     * Set the session user's read status for a book through the write-behind queue: the
+     * caches show it at once and the database is written with the next batch
+     */
+    public static boolean queueReadStatus(UserSession session, int bookId, int readStatus) {
+        return QueryMetrics.time("queueReadStatus", session, () -> {
+            if (!isLoggedIn(session)) {
+                return false;
+            }
+            int userId = session.getUserId();
+            applyUserBookValuesLocally(userId, bookId, readStatus, null);
+            getWriteBehind().enqueueReadStatus(userId, bookId, readStatus);
             return true;
-
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+        });
     }
 
     /**
-     * Get current user's favorite books (rating >= 4)
+     * Set the session user's rating for a book through the write-behind queue
      */
-    public static List<Book> getFavoriteBooks() {
-        List<Book> books = new ArrayList<>();
+    public static boolean queueRating(UserSession session, int bookId, int rating) {
+        return QueryMetrics.time("queueRating", session, () -> {
+            if (!isLoggedIn(session)) {
+                return false;
+            }
+            int userId = session.getUserId();
+            applyUserBookValuesLocally(userId, bookId, null, rating);
+            getWriteBehind().enqueueRating(userId, bookId, rating);
+            return true;
+        });
+    }
 
-        if (currentUserId == -1) {
-            System.err.println("❌ No user logged in!");
-            return books;
-        }
+    /**
+     * Write all queued status/rating changes now; false if some are still pending
+     * (e.g. the database is unavailable)
+     */
+    public static boolean flushPendingWrites() {
+        return getWriteBehind().flush();
+    }
 
-        try (Connection conn = getConnection()) {
-            String query = "SELECT b.bookId, b.authorId, b.title, b.year, b.numberOfPages, b.cover, b.about, " +
-                    "CONCAT(a.name, ' ', a.surname) as authorName, " +
-                    "ub.readStatus, ub.rating, ub.comments, ub.releaseDate " +
-                    "FROM books b " +
-                    "JOIN authors a ON b.authorId = a.authorId " +
-                    "JOIN user_books ub ON b.bookId = ub.bookId " +
-                    "WHERE ub.userId = ? AND ub.rating >= 4 " +
-                    "ORDER BY ub.rating DESC, b.title";
+    public static String getWriteBehindStats() {
+        return getWriteBehind().getStats();
+    }
 
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setInt(1, currentUserId);
-                ResultSet rs = stmt.executeQuery();
-
-                while (rs.next()) {
-                    books.add(new Book(
-                            rs.getInt("bookId"),
-                            rs.getInt("authorId"),
-                            rs.getString("title"),
-                            rs.getString("authorName"),
-                            rs.getInt("year"),
-                            rs.getInt("numberOfPages"),
-                            rs.getString("cover"),
-                            rs.getString("about"),
-                            rs.getInt("readStatus"),
-                            rs.getInt("rating"),
-                            rs.getString("comments"),
-                            rs.getDate("releaseDate")
-                    ));
+    private static WriteBehindQueue getWriteBehind() {
+        WriteBehindQueue queue = writeBehind;
+        if (queue == null) {
+            synchronized (DatabaseHelper.class) {
+                queue = writeBehind;
+                if (queue == null) {
+                    queue = new WriteBehindQueue(DatabaseHelper::flushUserBookValues,
+                            DatabaseHelper::userBookWriteRejected,
+                            Long.parseLong(CONFIG.getProperty("writeBehind.flushIntervalMillis", "2000")),
+                            Integer.parseInt(CONFIG.getProperty("writeBehind.maxBatchSize", "500")),
+                            Paths.get(CONFIG.getProperty("writeBehind.journal", "pending-writes.properties")));
+                    writeBehind = queue;
                 }
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
-
-        return books;
+        return queue;
     }
 
     /**
-     * Get current user's favorite authors (authors with books rated >= 4)
+     * Write the user's queued status/rating changes first, so the database is current for
+     * a read of their data and an older queued value cannot land after a direct write.
+     * Returns at once when nothing is queued for the user.
      */
-    public static List<Author> getFavoriteAuthors() {
-        List<Author> authors = new ArrayList<>();
-
-        if (currentUserId == -1) {
-            System.err.println("❌ No user logged in!");
-            return authors;
+    private static void flushPendingWritesFor(int userId) {
+        WriteBehindQueue queue = writeBehind;
+        if (queue != null) {
+            queue.flushUser(userId);
         }
+    }
 
-        try (Connection conn = getConnection()) {
-            String query = "SELECT DISTINCT a.authorId, a.name, a.surname, a.website " +
-                    "FROM authors a " +
-                    "JOIN books b ON a.authorId = b.authorId " +
-                    "JOIN user_books ub ON b.bookId = ub.bookId " +
-                    "WHERE ub.userId = ? AND ub.rating >= 4 " +
-                    "ORDER BY a.surname, a.name";
-
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setInt(1, currentUserId);
-                ResultSet rs = stmt.executeQuery();
-
-                while (rs.next()) {
-                    authors.add(new Author(
-                            rs.getInt("authorId"),
-                            rs.getString("name"),
-                            rs.getString("surname"),
-                            rs.getString("website")
-                    ));
-                }
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+    /**
+     * A queued change was dropped: the caches showed it optimistically, so re-read the row
+     */
+    private static void userBookWriteRejected(WriteBehindQueue.PendingWrite write) {
+        userBookChanged(write.getUserId(), write.getBookId());
+        fireBookChanged(write.getUserId(), write.getBookId(), BookChangeListener.Type.UPDATED);
+    }
 
-        return authors;
+    private static void applyUserBookValuesLocally(int userId, int bookId, Integer readStatus, Integer rating) {
+        catalogCache.applyUserBookValues(userId, bookId, readStatus, rating);
+        bookDetailCache.applyUserValues(userId, bookId, readStatus, rating);
     }
 
     /**
-     * Get current user's unread books (readStatus = 0 or 2)
+     * Write a batch of queued user_books changes, with the matching user_stats changes,
+     * in one transaction: per user one locking read, the upserts and one counter update
      */
-    public static List<Book> getUnreadBooks() {
-        List<Book> books = new ArrayList<>();
-
-        if (currentUserId == -1) {
-            System.err.println("❌ No user logged in!");
-            return books;
-        }
+    private static void flushUserBookValues(List<WriteBehindQueue.PendingWrite> writes) {
+        QueryMetrics.time("flushUserBookValues", () -> {
+            Map<Integer, List<WriteBehindQueue.PendingWrite>> byUser = new LinkedHashMap<>();
+            for (WriteBehindQueue.PendingWrite write : writes) {
+                byUser.computeIfAbsent(write.getUserId(), k -> new ArrayList<>()).add(write);
+            }
 
-        try (Connection conn = getConnection()) {
-            String query = "SELECT b.bookId, b.authorId, b.title, b.year, b.numberOfPages, b.cover, b.about, " +
-                    "CONCAT(a.name, ' ', a.surname) as authorName, " +
-                    "COALESCE(ub.readStatus, 0) as readStatus, " +
-                    "COALESCE(ub.rating, 0) as rating, " +
-                    "ub.comments, ub.releaseDate " +
-                    "FROM books b " +
-                    "JOIN authors a ON b.authorId = a.authorId " +
-                    "LEFT JOIN user_books ub ON b.bookId = ub.bookId AND ub.userId = ? " +
-                    "WHERE COALESCE(ub.readStatus, 0) IN (0, 2) " +
-                    "ORDER BY b.title";
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
+                for (Map.Entry<Integer, List<WriteBehindQueue.PendingWrite>> entry : byUser.entrySet()) {
+                    int userId = entry.getKey();
+                    List<Integer> bookIds = new ArrayList<>();
+                    List<int[]> both = new ArrayList<>();
+                    List<int[]> statusOnly = new ArrayList<>();
+                    List<int[]> ratingOnly = new ArrayList<>();
+                    for (WriteBehindQueue.PendingWrite write : entry.getValue()) {
+                        bookIds.add(write.getBookId());
+                        if (write.getReadStatus() != null && write.getRating() != null) {
+                            both.add(new int[]{write.getBookId(), write.getReadStatus(), write.getRating()});
+                        } else if (write.getReadStatus() != null) {
+                            statusOnly.add(new int[]{write.getBookId(), write.getReadStatus()});
+                        } else if (write.getRating() != null) {
+                            ratingOnly.add(new int[]{write.getBookId(), write.getRating()});
+                        }
+                    }
 
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setInt(1, currentUserId);
-                ResultSet rs = stmt.executeQuery();
-
-                while (rs.next()) {
-                    books.add(new Book(
-                            rs.getInt("bookId"),
-                            rs.getInt("authorId"),
-                            rs.getString("title"),
-                            rs.getString("authorName"),
-                            rs.getInt("year"),
-                            rs.getInt("numberOfPages"),
-                            rs.getString("cover"),
-                            rs.getString("about"),
-                            rs.getInt("readStatus"),
-                            rs.getInt("rating"),
-                            rs.getString("comments"),
-                            rs.getDate("releaseDate")
-                    ));
+                    Map<Integer, UserStats.RowState> before = UserStats.readRowStates(conn, userId, bookIds);
+                    upsertUserBookRows(conn, userId, new String[]{"readStatus", "rating"}, both);
+                    upsertUserBookRows(conn, userId, new String[]{"readStatus"}, statusOnly);
+                    upsertUserBookRows(conn, userId, new String[]{"rating"}, ratingOnly);
+                    UserStats.applyChanges(conn, userId, bookIds, before,
+                            UserStats.readRowStates(conn, userId, bookIds));
                 }
+                conn.commit();
+            } catch (SQLException e) {
+                // The queue keeps the rows and retries
+                throw new IllegalStateException(e.getMessage(), e);
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
 
-        return books;
+            for (WriteBehindQueue.PendingWrite write : writes) {
+                userBookChanged(write.getUserId(), write.getBookId());
+                fireBookChanged(write.getUserId(), write.getBookId(), BookChangeListener.Type.UPDATED);
+            }
+            return writes;
+        });
     }
 
     /**
-     * Get current user's upcoming releases (books with future release dates)
+     * Upsert one user_books column for many of a user's books ({bookId, value} rows) and
+     * the matching user_stats change in one transaction
      */
-    public static List<Book> getUpcomingReleases() {
-        List<Book> books = new ArrayList<>();
-
-        if (currentUserId == -1) {
-            System.err.println("❌ No user logged in!");
-            return books;
+    private static boolean upsertUserBookValues(int userId, String column, List<int[]> rows) {
+        if (rows.isEmpty()) {
+            return true;
         }
+        flushPendingWritesFor(userId);
+        List<Integer> bookIds = rows.stream().map(row -> row[0]).collect(Collectors.toList());
 
         try (Connection conn = getConnection()) {
-            String query = "SELECT b.bookId, b.authorId, b.title, b.year, b.numberOfPages, b.cover, b.about, " +
-                    "CONCAT(a.name, ' ', a.surname) as authorName, " +
-                    "ub.readStatus, ub.rating, ub.comments, ub.releaseDate " +
-                    "FROM books b " +
-                    "JOIN authors a ON b.authorId = a.authorId " +
-                    "JOIN user_books ub ON b.bookId = ub.bookId " +
-                    "WHERE ub.userId = ? AND ub.releaseDate >= CURDATE() AND ub.readStatus = 3 " +
-                    "ORDER BY ub.releaseDate";
+            conn.setAutoCommit(false);
 
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setInt(1, currentUserId);
-                ResultSet rs = stmt.executeQuery();
-
-                while (rs.next()) {
-                    books.add(new Book(
-                            rs.getInt("bookId"),
-                            rs.getInt("authorId"),
-                            rs.getString("title"),
-                            rs.getString("authorName"),
-                            rs.getInt("year"),
-                            rs.getInt("numberOfPages"),
-                            rs.getString("cover"),
-                            rs.getString("about"),
-                            rs.getInt("readStatus"),
-                            rs.getInt("rating"),
-                            rs.getString("comments"),
-                            rs.getDate("releaseDate")
-                    ));
-                }
-            }
+            Map<Integer, UserStats.RowState> before = UserStats.readRowStates(conn, userId, bookIds);
+            upsertUserBookRows(conn, userId, new String[]{column}, rows);
+            UserStats.applyChanges(conn, userId, bookIds, before, UserStats.readRowStates(conn, userId, bookIds));
+            conn.commit();
         } catch (SQLException e) {
-            e.printStackTrace();
+            QueryMetrics.failed(e);
+            return false;
+        }
+
+        userBooksChanged(userId, bookIds);
+        return true;
+    }
+
+    private static void userBooksChanged(int userId, List<Integer> bookIds) {
+        for (int bookId : bookIds) {
+            userBookChanged(userId, bookId);
+            fireBookChanged(userId, bookId, BookChangeListener.Type.UPDATED);
         }
+    }
 
-        return books;
+    private static List<Integer> distinctIds(int[] bookIds) {
+        return Arrays.stream(bookIds).distinct().boxed().collect(Collectors.toList());
     }
 
     /**
-     * Update current user's read status for a book
+     * Multi-row INSERT ... ON DUPLICATE KEY UPDATE of user_books columns; each row is
+     * {bookId, column values...}
      */
-    public static boolean updateReadStatus(int bookId, int readStatus) {
-        if (currentUserId == -1) {
-            System.err.println("❌ No user logged in!");
-            return false;
+    private static void upsertUserBookRows(Connection conn, int userId, String[] columns, List<int[]> rows)
+            throws SQLException {
+        String values = "(?, ?" + ", ?".repeat(columns.length) + ")";
+        StringBuilder update = new StringBuilder();
+        for (String column : columns) {
+            update.append(update.length() == 0 ? "" : ", ").append(column).append(" = VALUES(").append(column).append(')');
         }
 
-        try (Connection conn = getConnection()) {
-            String query = "INSERT INTO user_books (userId, bookId, readStatus) " +
-                    "VALUES (?, ?, ?) " +
-                    "ON DUPLICATE KEY UPDATE readStatus = VALUES(readStatus)";
-
+        for (int from = 0; from < rows.size(); from += SqlLists.MAX_SIZE) {
+            List<int[]> chunk = SqlLists.padded(rows.subList(from, Math.min(rows.size(), from + SqlLists.MAX_SIZE)));
+            String query = "INSERT INTO user_books (userId, bookId, " + String.join(", ", columns) + ") VALUES " +
+                    (values + ", ").repeat(chunk.size() - 1) + values + " ON DUPLICATE KEY UPDATE " + update;
             try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setInt(1, currentUserId);
-                stmt.setInt(2, bookId);
-                stmt.setInt(3, readStatus);
-                return stmt.executeUpdate() > 0;
+                int index = 1;
+                for (int[] row : chunk) {
+                    stmt.setInt(index++, userId);
+                    for (int value : row) {
+                        stmt.setInt(index++, value);
+                    }
+                }
+                stmt.executeUpdate();
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
         }
     }
 
     /**
-     * Update current user's rating for a book
+     * Run a (userId, bookId, value) user_books upsert and the matching user_stats change in one transaction
      */
-    public static boolean updateRating(int bookId, int rating) {
-        if (currentUserId == -1) {
-            System.err.println("❌ No user logged in!");
-            return false;
-        }
-
+    private static boolean upsertUserBookValue(String upsertQuery, int userId, int bookId, int value) {
+        flushPendingWritesFor(userId);
         try (Connection conn = getConnection()) {
-            String query = "INSERT INTO user_books (userId, bookId, rating) " +
-                    "VALUES (?, ?, ?) " +
-                    "ON DUPLICATE KEY UPDATE rating = VALUES(rating)";
+            conn.setAutoCommit(false);
 
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setInt(1, currentUserId);
+            UserStats.RowState before = UserStats.readRowState(conn, userId, bookId);
+            boolean updated;
+            try (PreparedStatement stmt = conn.prepareStatement(upsertQuery)) {
+                stmt.setInt(1, userId);
                 stmt.setInt(2, bookId);
-                stmt.setInt(3, rating);
-                return stmt.executeUpdate() > 0;
+                stmt.setInt(3, value);
+                updated = stmt.executeUpdate() > 0;
             }
+            UserStats.applyChange(conn, userId, before, UserStats.readRowState(conn, userId, bookId));
+            conn.commit();
+
+            userBookChanged(userId, bookId);
+            fireBookChanged(userId, bookId, BookChangeListener.Type.UPDATED);
+            return updated;
         } catch (SQLException e) {
-            e.printStackTrace();
+            QueryMetrics.failed(e);
             return false;
         }
     }
@@ -674,43 +1662,110 @@ public class DatabaseHelper {
      * Update book cover in the catalog (affects all users)
      */
     public static boolean updateBookCover(int bookId, String coverPath) {
-        try (Connection conn = getConnection()) {
-            String query = "UPDATE books SET cover = ? WHERE bookId = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setString(1, coverPath);
-                stmt.setInt(2, bookId);
-                return stmt.executeUpdate() > 0;
+        return QueryMetrics.time("updateBookCover", () -> {
+            try (Connection conn = getConnection()) {
+                String query = "UPDATE books SET cover = ? WHERE bookId = ?";
+                try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                    stmt.setString(1, coverPath);
+                    stmt.setInt(2, bookId);
+                    boolean updated = stmt.executeUpdate() > 0;
+                    bookChanged(bookId);
+                    fireBookChanged(-1, bookId, BookChangeListener.Type.UPDATED);
+                    return updated;
+                }
+            } catch (SQLException e) {
+                QueryMetrics.failed(e);
+                return false;
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+        });
     }
 
     /**
-     * Validate user login and return user type
+     * Set covers in one batch and transaction, only on books that have none yet, so
+     * covers users chose are kept (affects all users). Returns how many books got a
+     * cover, or -1 if the update failed.
      */
-    public static int validateLogin(String username, String password) {
-        try (Connection conn = getConnection()) {
-            String query = "SELECT userId, userType FROM userinfo WHERE username = ? AND password = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setString(1, username);
-                stmt.setString(2, password);
-
-                ResultSet rs = stmt.executeQuery();
-                if (rs.next()) {
-                    int userId = rs.getInt("userId");
-                    int userType = rs.getInt("userType");
+    public static int fillMissingBookCovers(Map<Integer, String> coversByBookId) {
+        return QueryMetrics.time("fillMissingBookCovers", () -> {
+            if (coversByBookId.isEmpty()) {
+                return 0;
+            }
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false); // The pool rolls back if we fail before commit
+                int[] counts;
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "UPDATE books SET cover = ? WHERE bookId = ? AND (cover IS NULL OR cover = '')")) {
+                    for (Map.Entry<Integer, String> entry : coversByBookId.entrySet()) {
+                        stmt.setString(1, entry.getValue());
+                        stmt.setInt(2, entry.getKey());
+                        stmt.addBatch();
+                    }
+                    counts = stmt.executeBatch();
+                    conn.commit();
+                }
+                int filled = 0;
+                int i = 0;
+                for (int bookId : coversByBookId.keySet()) {
+                    if (counts[i++] != 0) { // SUCCESS_NO_INFO counts as changed
+                        filled++;
+                        bookChanged(bookId);
+                        fireBookChanged(-1, bookId, BookChangeListener.Type.UPDATED);
+                    }
+                }
+                return filled;
+            } catch (SQLException e) {
+                QueryMetrics.failed(e);
+                return -1;
+            }
+        });
+    }
 
-                    // Set the current user
-                    setCurrentUser(userId);
+    /**
+     * IDs of the first books in (title, bookId) order
+     */
+    public static List<Integer> getFirstBookIds(int limit) {
+        return QueryMetrics.time("getFirstBookIds", () -> {
+            List<Integer> bookIds = new ArrayList<>();
+            try (Connection conn = getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(
+                         "SELECT bookId FROM books ORDER BY title, bookId LIMIT ?")) {
+                stmt.setInt(1, limit);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        bookIds.add(rs.getInt(1));
+                    }
+                }
+            } catch (SQLException e) {
+                QueryMetrics.failed(e);
+            }
+            return bookIds;
+        });
+    }
 
-                    return userType;
+    /**
+     * Validate user login and start a session for the user, or return null if the
+     * credentials do not match
+     */
+    public static UserSession login(String username, String password) {
+        return QueryMetrics.time("login", () -> {
+            try (Connection conn = getConnection()) {
+                String query = "SELECT userId, userType FROM userinfo WHERE username = ? AND password = ?";
+                try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                    stmt.setString(1, username);
+                    stmt.setString(2, password);
+
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) {
+                            UserSession session = new UserSession(rs.getInt("userId"), username, rs.getInt("userType"));
+                            System.out.println("✅ Logged in: " + session);
+                            return session;
+                        }
+                    }
                 }
+            } catch (SQLException e) {
+                QueryMetrics.failed(e);
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return -1; // Login failed
+            return null; // Login failed
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,100 @@
+import javax.swing.SwingUtilities;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detects stalls of the Swing event dispatch thread.
+ *
+ * A daemon thread posts a heartbeat to the EDT every few milliseconds. When a
+ * heartbeat waits longer than the threshold (ui.edtStallThresholdMillis), the EDT
+ * stack is sampled while it is still blocked, and once the heartbeat finally runs an
+ * LibraryEvents.EdtStall event covering the whole stall is committed and logged.
+ */
+public class EdtWatchdog {
+    private static final long CHECK_INTERVAL_MILLIS = 20;
+    private static final int STACK_DEPTH = 24;
+    private static EdtWatchdog instance;
+
+    private final long thresholdNanos;
+    private final Thread thread;
+
+    // Heartbeat in flight: posted at pendingSince (0 when none), with its event begun then
+    private volatile long pendingSince = 0;
+    private volatile LibraryEvents.EdtStall pendingEvent;
+    private volatile String stallStack;
+    private volatile Thread edt;
+
+    private EdtWatchdog(long thresholdMillis) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.thread = new Thread(this::watch, "edt-watchdog");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Start watching the EDT (once per JVM); a threshold of 0 or less disables the watchdog
+     */
+    public static synchronized void start(long thresholdMillis) {
+        if (instance != null || thresholdMillis <= 0) {
+            return;
+        }
+        instance = new EdtWatchdog(thresholdMillis);
+        instance.thread.start();
+    }
+
+    private void watch() {
+        while (true) {
+            try {
+                Thread.sleep(CHECK_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            long posted = pendingSince;
+            if (posted == 0) {
+                LibraryEvents.EdtStall event = new LibraryEvents.EdtStall();
+                event.begin();
+                pendingEvent = event;
+                stallStack = null;
+                pendingSince = System.nanoTime();
+                SwingUtilities.invokeLater(this::heartbeat);
+            } else if (stallStack == null && System.nanoTime() - posted > thresholdNanos) {
+                // Still blocked: remember where, before the EDT moves on
+                stallStack = sampleEdtStack();
+            }
+        }
+    }
+
+    /**
+     * Runs on the EDT
+     */
+    private void heartbeat() {
+        // The first heartbeat also waits for the EDT to be created; that is not a stall
+        boolean first = edt == null;
+        edt = Thread.currentThread();
+        long stalled = System.nanoTime() - pendingSince;
+        LibraryEvents.EdtStall event = pendingEvent;
+
+        if (!first && stalled > thresholdNanos) {
+            String stack = stallStack != null ? stallStack : "(not sampled)";
+            event.end();
+            event.threshold = TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+            event.edtStack = stack;
+            event.commit();
+            System.err.println("⚠️ EDT blocked for " + TimeUnit.NANOSECONDS.toMillis(stalled) + " ms at "
+                    + stack.lines().findFirst().orElse("?"));
+        }
+        pendingSince = 0;
+    }
+
+    private String sampleEdtStack() {
+        Thread dispatchThread = edt;
+        if (dispatchThread == null) {
+            return null; // First heartbeat not run yet: the EDT may not exist
+        }
+        StackTraceElement[] frames = dispatchThread.getStackTrace();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < Math.min(STACK_DEPTH, frames.length); i++) {
+            sb.append(frames[i]).append('\n');
+        }
+        return sb.toString();
+    }
+}
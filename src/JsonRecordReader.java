@@ -0,0 +1,186 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads flat JSON objects one at a time from either a top-level array
+ * ([{...}, {...}]) or JSON Lines (one object per line). String, number, boolean
+ * and null values are returned as strings (null as null); nested objects and arrays
+ * are skipped. Keys are matched case-insensitively.
+ */
+public class JsonRecordReader implements CatalogImporter.RecordReader {
+    private final Reader in;
+    private int peeked = -2; // -2 means nothing peeked
+    private boolean insideArray = false;
+
+    public JsonRecordReader(Reader in) {
+        this.in = in;
+    }
+
+    @Override
+    public Map<String, String> next() throws IOException {
+        int c = skipWhitespace();
+        if (!insideArray && c == '[') {
+            insideArray = true;
+            read();
+            c = skipWhitespace();
+        }
+        if (insideArray && c == ',') {
+            read();
+            c = skipWhitespace();
+        }
+        if (c == ']' && insideArray) {
+            read();
+            insideArray = false;
+            c = skipWhitespace();
+        }
+        if (c == -1) {
+            return null;
+        }
+        if (c != '{') {
+            throw new IOException("Expected '{' but found '" + (char) c + "'");
+        }
+        return readObject();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private Map<String, String> readObject() throws IOException {
+        expect('{');
+        Map<String, String> record = new LinkedHashMap<>();
+        if (skipWhitespace() == '}') {
+            read();
+            return record;
+        }
+        while (true) {
+            skipWhitespace();
+            String key = readString().toLowerCase(Locale.ROOT);
+            skipWhitespace();
+            expect(':');
+            int c = skipWhitespace();
+            if (c == '{' || c == '[') {
+                skipValue();
+            } else {
+                record.put(key, readScalar());
+            }
+
+            c = skipWhitespace();
+            read();
+            if (c == '}') {
+                return record;
+            }
+            if (c != ',') {
+                throw new IOException("Expected ',' or '}' in object");
+            }
+        }
+    }
+
+    private String readScalar() throws IOException {
+        int c = peek();
+        if (c == '"') {
+            return readString();
+        }
+        StringBuilder literal = new StringBuilder();
+        while (c != -1 && c != ',' && c != '}' && c != ']' && !Character.isWhitespace(c)) {
+            literal.append((char) read());
+            c = peek();
+        }
+        String value = literal.toString();
+        return value.equals("null") ? null : value;
+    }
+
+    private String readString() throws IOException {
+        expect('"');
+        StringBuilder value = new StringBuilder();
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                throw new IOException("Unterminated string");
+            }
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append((char) c);
+                continue;
+            }
+            int escaped = read();
+            switch (escaped) {
+                case 'n': value.append('\n'); break;
+                case 't': value.append('\t'); break;
+                case 'r': value.append('\r'); break;
+                case 'b': value.append('\b'); break;
+                case 'f': value.append('\f'); break;
+                case 'u':
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(read(), 16);
+                        if (digit < 0) {
+                            throw new IOException("Invalid \\u escape in string");
+                        }
+                        code = code * 16 + digit;
+                    }
+                    value.append((char) code);
+                    break;
+                default: value.append((char) escaped); // " \ /
+            }
+        }
+    }
+
+    /**
+     * Skip a nested object or array, including any strings inside it
+     */
+    private void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            int c = peek();
+            if (c == -1) {
+                throw new IOException("Unterminated value");
+            }
+            if (c == '"') {
+                readString();
+                continue;
+            }
+            read();
+            if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+            }
+        } while (depth > 0);
+    }
+
+    private void expect(char expected) throws IOException {
+        int c = read();
+        if (c != expected) {
+            throw new IOException("Expected '" + expected + "' but found " + (c == -1 ? "end of input" : "'" + (char) c + "'"));
+        }
+    }
+
+    private int skipWhitespace() throws IOException {
+        int c = peek();
+        while (c != -1 && Character.isWhitespace(c)) {
+            read();
+            c = peek();
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) {
+            peeked = in.read();
+        }
+        return peeked;
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        peeked = -2;
+        return c;
+    }
+}
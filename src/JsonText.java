@@ -0,0 +1,45 @@
+/**
+ * Writing JSON by hand into a StringBuilder (LibraryExporter, LibraryApiServer).
+ * JsonRecordReader is the reading side.
+ */
+public final class JsonText {
+    private JsonText() {
+    }
+
+    /**
+     * Append a JSON string literal, or null for a null value
+     */
+    public static StringBuilder appendString(StringBuilder out, String value) {
+        if (value == null) {
+            return out.append("null");
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        return out.append('"');
+    }
+
+    /**
+     * Append "name": as the start of an object member, with a leading comma unless first
+     */
+    public static StringBuilder appendName(StringBuilder out, String name, boolean first) {
+        if (!first) {
+            out.append(',');
+        }
+        return appendString(out, name).append(':');
+    }
+}
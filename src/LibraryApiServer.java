@@ -0,0 +1,668 @@
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Headless HTTP/JSON API over the library, started with "Main --server [port]".
+ *
+ * Built on the JDK HTTP server with one virtual thread per request (a fixed pool
+ * before JDK 21). Clients log in with POST /api/login and send the returned token as
+ * "Authorization: Bearer <token>"; each token carries its own UserSession and expires
+ * after api.sessionTimeoutMillis without use.
+ * When the database cannot be reached, requests answer 503 rather than empty data.
+ * GET responses carry a weak ETag and answer If-None-Match with 304; bodies over
+ * 1 KB are gzipped when the client accepts it. Every response has a Content-Length,
+ * so connections stay open between requests.
+ *
+ *   POST /api/login              {"username": ..., "password": ...} -> {"token": ...}
+ *   POST /api/logout
+ *   GET  /api/books?limit=&afterTitle=&afterId=   one page in (title, bookId) order
+ *   GET  /api/books/{id}
+ *   PUT  /api/books/{id}/rating  {"rating": 0-5}
+ *   PUT  /api/books/{id}/status  {"readStatus": 0-3}
+ *   GET  /api/favorites, /api/favorites/authors, /api/unread, /api/upcoming, /api/stats
+ *   GET  /api/search?q=
+ *   GET  /api/health
+ *
+ * All data access goes through a Backend, so the server can run against anything
+ * that implements it; DATABASE is the DatabaseHelper (MySQL) one.
+ */
+public class LibraryApiServer {
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_PAGE_SIZE = 200;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int GZIP_MIN_BYTES = 1024;
+    private static final int MAX_REQUEST_BYTES = 64 * 1024;
+
+    static {
+        // Headers and body go out in separate writes; with Nagle on, every small
+        // response waits for the client's delayed ACK (~40 ms). Read once at first use.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    /**
+     * Library operations the API exposes, per session. Not being able to reach the data
+     * is thrown as SQLException (answered with 503), never returned as null or empty.
+     */
+    public interface Backend {
+        UserSession login(String username, String password) throws SQLException;
+
+        List<Book> getBooksPage(UserSession session, BookKey after, int limit) throws SQLException;
+
+        Book getBookInfo(UserSession session, int bookId) throws SQLException;
+
+        List<Book> getFavoriteBooks(UserSession session) throws SQLException;
+
+        List<Author> getFavoriteAuthors(UserSession session) throws SQLException;
+
+        List<Book> getUnreadBooks(UserSession session) throws SQLException;
+
+        List<Book> getUpcomingReleases(UserSession session) throws SQLException;
+
+        LibraryStatistics getLibraryStatistics(UserSession session) throws SQLException;
+
+        List<Book> searchBooks(UserSession session, String query) throws SQLException;
+
+        boolean updateRating(UserSession session, int bookId, int rating) throws SQLException;
+
+        boolean updateReadStatus(UserSession session, int bookId, int readStatus) throws SQLException;
+    }
+
+    public static final Backend DATABASE = new Backend() {
+        @Override
+        public UserSession login(String username, String password) throws SQLException {
+            return QueryMetrics.rethrowFailures(() -> DatabaseHelper.login(username, password));
+        }
+
+        @Override
+        public List<Book> getBooksPage(UserSession session, BookKey after, int limit) throws SQLException {
+            return QueryMetrics.rethrowFailures(() -> DatabaseHelper.getBooksPage(session, after, limit));
+        }
+
+        @Override
+        public Book getBookInfo(UserSession session, int bookId) throws SQLException {
+            return QueryMetrics.rethrowFailures(() -> DatabaseHelper.getBookInfo(session, bookId));
+        }
+
+        @Override
+        public List<Book> getFavoriteBooks(UserSession session) throws SQLException {
+            return QueryMetrics.rethrowFailures(() -> DatabaseHelper.getFavoriteBooks(session));
+        }
+
+        @Override
+        public List<Author> getFavoriteAuthors(UserSession session) throws SQLException {
+            return QueryMetrics.rethrowFailures(() -> DatabaseHelper.getFavoriteAuthors(session));
+        }
+
+        @Override
+        public List<Book> getUnreadBooks(UserSession session) throws SQLException {
+            return QueryMetrics.rethrowFailures(() -> DatabaseHelper.getUnreadBooks(session));
+        }
+
+        @Override
+        public List<Book> getUpcomingReleases(UserSession session) throws SQLException {
+            return QueryMetrics.rethrowFailures(() -> DatabaseHelper.getUpcomingReleases(session));
+        }
+
+        @Override
+        public LibraryStatistics getLibraryStatistics(UserSession session) throws SQLException {
+            return QueryMetrics.rethrowFailures(() -> DatabaseHelper.getLibraryStatistics(session));
+        }
+
+        @Override
+        public List<Book> searchBooks(UserSession session, String query) throws SQLException {
+            return QueryMetrics.rethrowFailures(() -> DatabaseHelper.searchBooks(session, query));
+        }
+
+        @Override
+        public boolean updateRating(UserSession session, int bookId, int rating) throws SQLException {
+            return QueryMetrics.rethrowFailures(() -> DatabaseHelper.updateRating(session, bookId, rating));
+        }
+
+        @Override
+        public boolean updateReadStatus(UserSession session, int bookId, int readStatus) throws SQLException {
+            return QueryMetrics.rethrowFailures(() -> DatabaseHelper.updateReadStatus(session, bookId, readStatus));
+        }
+    };
+
+    private final Backend backend;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService tokenSweeper;
+    private final long sessionTimeoutMillis;
+    private final Map<String, Token> tokens = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+
+    public LibraryApiServer(Backend backend, int port) throws IOException {
+        this.backend = backend;
+        this.sessionTimeoutMillis = Long.parseLong(DatabaseHelper.getConfig("api.sessionTimeoutMillis", "1800000"));
+        this.executor = createExecutor(Integer.parseInt(DatabaseHelper.getConfig("api.threads", "64")));
+        this.server = HttpServer.create(new InetSocketAddress(port),
+                Integer.parseInt(DatabaseHelper.getConfig("api.backlog", "1024")));
+        server.createContext("/api/", this::handle);
+        server.setExecutor(executor);
+        tokenSweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "api-token-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0])
+                : Integer.parseInt(DatabaseHelper.getConfig("api.port", String.valueOf(DEFAULT_PORT)));
+        LibraryApiServer apiServer = new LibraryApiServer(DATABASE, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(apiServer::stop, "api-server-shutdown"));
+        apiServer.start();
+    }
+
+    public void start() {
+        DatabaseHelper.warmUpConnectionPool();
+        // Tokens that are never used again would otherwise stay until the next login
+        long sweepInterval = Math.max(1000, sessionTimeoutMillis / 2);
+        tokenSweeper.scheduleWithFixedDelay(this::removeExpiredTokens, sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+        server.start();
+        System.out.println("🌐 Library API listening on port " + getPort());
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        tokenSweeper.shutdownNow();
+        System.out.println("🌐 Library API stopped");
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // ---- Routing ----
+
+    private void handle(HttpExchange exchange) {
+        try {
+            try {
+                route(exchange);
+            } catch (ApiException e) {
+                sendError(exchange, e.status, e.getMessage());
+            } catch (SQLException e) {
+                // An outage, not an empty result; clients should retry rather than cache it
+                exchange.getResponseHeaders().set("Retry-After", "5");
+                sendError(exchange, 503, "Database unavailable, try again later");
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                sendError(exchange, 500, "Internal error");
+            }
+        } catch (IOException e) {
+            // Client went away; nothing left to answer
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException, SQLException {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().substring("/api/".length()).split("/");
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        String resource = path[0];
+
+        if (resource.equals("health")) {
+            sendJson(exchange, 200, "{\"status\":\"ok\"}");
+            return;
+        }
+        if (resource.equals("login")) {
+            requireMethod(method, "POST");
+            login(exchange);
+            return;
+        }
+
+        UserSession session = authenticate(exchange);
+        switch (resource) {
+            case "logout":
+                requireMethod(method, "POST");
+                tokens.remove(bearerToken(exchange));
+                sendJson(exchange, 200, "{\"loggedOut\":true}");
+                break;
+            case "books":
+                if (path.length == 1) {
+                    requireMethod(method, "GET");
+                    sendBooksPage(exchange, session, query);
+                } else if (path.length == 2) {
+                    requireMethod(method, "GET");
+                    Book book = backend.getBookInfo(session, parseId(path[1]));
+                    if (book == null) {
+                        throw new ApiException(404, "No book " + path[1]);
+                    }
+                    sendJson(exchange, 200, appendBook(new StringBuilder(), book).toString());
+                } else if (path.length == 3 && path[2].equals("rating")) {
+                    requireMethod(method, "PUT");
+                    int rating = readIntField(exchange, "rating", 0, 5);
+                    sendUpdated(exchange, backend.updateRating(session, parseId(path[1]), rating));
+                } else if (path.length == 3 && path[2].equals("status")) {
+                    requireMethod(method, "PUT");
+                    int readStatus = readIntField(exchange, "readStatus", 0, 3);
+                    sendUpdated(exchange, backend.updateReadStatus(session, parseId(path[1]), readStatus));
+                } else {
+                    throw new ApiException(404, "Not found");
+                }
+                break;
+            case "favorites":
+                requireMethod(method, "GET");
+                if (path.length == 2 && path[1].equals("authors")) {
+                    sendAuthors(exchange, backend.getFavoriteAuthors(session));
+                } else {
+                    sendBooks(exchange, backend.getFavoriteBooks(session));
+                }
+                break;
+            case "unread":
+                requireMethod(method, "GET");
+                sendBooks(exchange, backend.getUnreadBooks(session));
+                break;
+            case "upcoming":
+                requireMethod(method, "GET");
+                sendBooks(exchange, backend.getUpcomingReleases(session));
+                break;
+            case "search":
+                requireMethod(method, "GET");
+                sendBooks(exchange, backend.searchBooks(session, query.getOrDefault("q", "")));
+                break;
+            case "stats":
+                requireMethod(method, "GET");
+                sendStatistics(exchange, backend.getLibraryStatistics(session));
+                break;
+            default:
+                throw new ApiException(404, "Not found");
+        }
+    }
+
+    // ---- Sessions ----
+
+    private void login(HttpExchange exchange) throws IOException, SQLException {
+        Map<String, String> body = readJsonBody(exchange);
+        UserSession session = backend.login(body.getOrDefault("username", ""), body.getOrDefault("password", ""));
+        if (session == null) {
+            throw new ApiException(401, "Invalid username or password");
+        }
+
+        byte[] bytes = new byte[24];
+        random.nextBytes(bytes);
+        String token = toHex(bytes);
+        tokens.put(token, new Token(session));
+
+        StringBuilder json = new StringBuilder("{");
+        JsonText.appendName(json, "token", true);
+        JsonText.appendString(json, token);
+        JsonText.appendName(json, "userId", false).append(session.getUserId());
+        JsonText.appendName(json, "userType", false).append(session.getUserType());
+        sendJson(exchange, 200, json.append('}').toString());
+    }
+
+    private UserSession authenticate(HttpExchange exchange) {
+        String key = bearerToken(exchange);
+        Token token = tokens.get(key);
+        long now = System.currentTimeMillis();
+        if (token != null && now - token.lastUsed > sessionTimeoutMillis) {
+            tokens.remove(key, token);
+            token = null;
+        }
+        if (token == null) {
+            throw new ApiException(401, "Log in first (POST /api/login)");
+        }
+        token.lastUsed = now;
+        return token.session;
+    }
+
+    private static String bearerToken(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        return header != null && header.startsWith("Bearer ") ? header.substring(7).trim() : "";
+    }
+
+    private void removeExpiredTokens() {
+        long now = System.currentTimeMillis();
+        tokens.values().removeIf(token -> now - token.lastUsed > sessionTimeoutMillis);
+    }
+
+    private static final class Token {
+        final UserSession session;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        Token(UserSession session) {
+            this.session = session;
+        }
+    }
+
+    // ---- Responses ----
+
+    private void sendBooksPage(HttpExchange exchange, UserSession session, Map<String, String> query)
+            throws IOException, SQLException {
+        int limit = Math.min(MAX_PAGE_SIZE, parseInt(query.get("limit"), DEFAULT_PAGE_SIZE));
+        if (limit < 1) {
+            throw new ApiException(400, "limit must be positive");
+        }
+        BookKey after = null;
+        if (query.containsKey("afterTitle")) {
+            after = new BookKey(query.get("afterTitle"), parseInt(query.get("afterId"), 0));
+        }
+
+        List<Book> books = backend.getBooksPage(session, after, limit);
+        StringBuilder json = new StringBuilder(books.size() * 256 + 64).append("{\"books\":");
+        appendBooks(json, books);
+        JsonText.appendName(json, "next", false);
+        if (books.size() == limit) {
+            // Continue from the last row with ?afterTitle=..&afterId=..
+            Book last = books.get(books.size() - 1);
+            json.append('{');
+            JsonText.appendName(json, "afterTitle", true);
+            JsonText.appendString(json, last.getTitle());
+            JsonText.appendName(json, "afterId", false).append(last.getBookId());
+            json.append('}');
+        } else {
+            json.append("null");
+        }
+        sendJson(exchange, 200, json.append('}').toString());
+    }
+
+    private void sendBooks(HttpExchange exchange, List<Book> books) throws IOException {
+        sendJson(exchange, 200, appendBooks(new StringBuilder(books.size() * 256 + 16), books).toString());
+    }
+
+    private void sendAuthors(HttpExchange exchange, List<Author> authors) throws IOException {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < authors.size(); i++) {
+            Author author = authors.get(i);
+            json.append(i == 0 ? "{" : ",{");
+            JsonText.appendName(json, "authorId", true).append(author.getAuthorId());
+            JsonText.appendName(json, "name", false);
+            JsonText.appendString(json, author.getName());
+            JsonText.appendName(json, "surname", false);
+            JsonText.appendString(json, author.getSurname());
+            JsonText.appendName(json, "website", false);
+            JsonText.appendString(json, author.getWebsite());
+            json.append('}');
+        }
+        sendJson(exchange, 200, json.append(']').toString());
+    }
+
+    private void sendStatistics(HttpExchange exchange, LibraryStatistics stats) throws IOException {
+        if (stats == null) {
+            throw new ApiException(500, "Could not load statistics");
+        }
+        StringBuilder json = new StringBuilder("{");
+        JsonText.appendName(json, "totalBooks", true).append(stats.totalBooks());
+        JsonText.appendName(json, "totalAuthors", false).append(stats.totalAuthors());
+        JsonText.appendName(json, "readBooks", false).append(stats.readBooks());
+        JsonText.appendName(json, "readingBooks", false).append(stats.readingBooks());
+        JsonText.appendName(json, "wantToReadBooks", false).append(stats.wantToReadBooks());
+        JsonText.appendName(json, "unreadBooks", false).append(stats.unreadBooks());
+        JsonText.appendName(json, "ratedBooks", false).append(stats.ratedBooks());
+        JsonText.appendName(json, "averageRating", false).append(stats.averageRating());
+        JsonText.appendName(json, "favoriteBooks", false).append(stats.favoriteBooks());
+        JsonText.appendName(json, "pagesRead", false).append(stats.pagesRead());
+        JsonText.appendName(json, "readPercentage", false).append(stats.readPercentage());
+        sendJson(exchange, 200, json.append('}').toString());
+    }
+
+    private void sendUpdated(HttpExchange exchange, boolean updated) throws IOException {
+        if (!updated) {
+            throw new ApiException(404, "Book not found or not changed");
+        }
+        sendJson(exchange, 200, "{\"updated\":true}");
+    }
+
+    private static StringBuilder appendBooks(StringBuilder json, List<Book> books) {
+        json.append('[');
+        for (int i = 0; i < books.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendBook(json, books.get(i));
+        }
+        return json.append(']');
+    }
+
+    private static StringBuilder appendBook(StringBuilder json, Book book) {
+        json.append('{');
+        JsonText.appendName(json, "bookId", true).append(book.getBookId());
+        JsonText.appendName(json, "authorId", false).append(book.getAuthorId());
+        JsonText.appendName(json, "title", false);
+        JsonText.appendString(json, book.getTitle());
+        JsonText.appendName(json, "authorName", false);
+        JsonText.appendString(json, book.getAuthorName());
+        JsonText.appendName(json, "year", false).append(book.getYear());
+        JsonText.appendName(json, "numberOfPages", false).append(book.getNumberOfPages());
+        JsonText.appendName(json, "cover", false);
+        JsonText.appendString(json, book.getCover());
+        JsonText.appendName(json, "about", false);
+        JsonText.appendString(json, book.getAbout());
+        JsonText.appendName(json, "readStatus", false).append(book.getReadStatus());
+        JsonText.appendName(json, "rating", false).append(book.getRating());
+        JsonText.appendName(json, "comments", false);
+        JsonText.appendString(json, book.getComments());
+        JsonText.appendName(json, "releaseDate", false);
+        JsonText.appendString(json, book.getReleaseDate() != null ? book.getReleaseDate().toString() : null);
+        return json.append('}');
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{");
+        JsonText.appendName(json, "error", true);
+        JsonText.appendString(json, message);
+        sendJson(exchange, status, json.append('}').toString());
+    }
+
+    /**
+     * Send a JSON body with ETag / If-None-Match handling for GETs and gzip when accepted
+     */
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", "application/json; charset=utf-8");
+        headers.set("Vary", "Accept-Encoding, Authorization");
+
+        if (status == 200 && exchange.getRequestMethod().equals("GET")) {
+            // Weak: the same tag covers the plain and the gzipped representation
+            String etag = "W/\"" + hash(body) + "\"";
+            headers.set("ETag", etag);
+            headers.set("Cache-Control", "private, no-cache");
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            if (ifNoneMatch != null && matchesAny(ifNoneMatch, etag)) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+        }
+
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (body.length >= GZIP_MIN_BYTES && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(body);
+            }
+            body = compressed.toByteArray();
+            headers.set("Content-Encoding", "gzip");
+        }
+
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Whether an If-None-Match value ("*" or a comma-separated list of entity tags)
+     * matches the etag, using the weak comparison RFC 9110 prescribes for it
+     */
+    private static boolean matchesAny(String ifNoneMatch, String etag) {
+        if (ifNoneMatch.trim().equals("*")) {
+            return true;
+        }
+        String opaque = opaqueTag(etag);
+        for (String candidate : entityTags(ifNoneMatch)) {
+            if (opaqueTag(candidate).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Split a list of entity tags at the commas outside their quotes
+     */
+    private static List<String> entityTags(String header) {
+        List<String> tags = new ArrayList<>();
+        boolean quoted = false;
+        int start = 0;
+        for (int i = 0; i < header.length(); i++) {
+            char c = header.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                tags.add(header.substring(start, i).trim());
+                start = i + 1;
+            }
+        }
+        tags.add(header.substring(start).trim());
+        return tags;
+    }
+
+    /**
+     * An entity tag without its weakness indicator, e.g. "abc" for W/"abc"
+     */
+    private static String opaqueTag(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    // ---- Requests ----
+
+    private static Map<String, String> readJsonBody(HttpExchange exchange) throws IOException {
+        InputStream in = exchange.getRequestBody();
+        byte[] body = in.readNBytes(MAX_REQUEST_BYTES + 1);
+        if (body.length > MAX_REQUEST_BYTES) {
+            throw new ApiException(413, "Request body too large");
+        }
+        try {
+            Map<String, String> fields = new JsonRecordReader(new InputStreamReader(
+                    new ByteArrayInputStream(body), StandardCharsets.UTF_8)).next();
+            if (fields == null) {
+                throw new ApiException(400, "Expected a JSON object");
+            }
+            return fields;
+        } catch (IOException e) {
+            throw new ApiException(400, "Invalid JSON: " + e.getMessage());
+        }
+    }
+
+    private static int readIntField(HttpExchange exchange, String field, int min, int max) throws IOException {
+        // JsonRecordReader lower-cases keys
+        String value = readJsonBody(exchange).get(field.toLowerCase(Locale.ROOT));
+        int parsed = parseInt(value, Integer.MIN_VALUE);
+        if (parsed < min || parsed > max) {
+            throw new ApiException(400, field + " must be between " + min + " and " + max);
+        }
+        return parsed;
+    }
+
+    private static void requireMethod(String method, String expected) {
+        if (!method.equals(expected)) {
+            throw new ApiException(405, "Use " + expected);
+        }
+    }
+
+    private static int parseId(String value) {
+        int id = parseInt(value, -1);
+        if (id <= 0) {
+            throw new ApiException(400, "Invalid id: " + value);
+        }
+        return id;
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "Not a number: " + value);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq >= 0 ? pair.substring(0, eq) : pair, StandardCharsets.UTF_8);
+            String value = eq >= 0 ? URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8) : "";
+            query.put(name, value);
+        }
+        return query;
+    }
+
+    // ---- Helpers ----
+
+    private static String hash(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return toHex(Arrays.copyOf(digest, 12));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static ExecutorService createExecutor(int threads) {
+        // Same lookup as AsyncDataService: virtual threads from JDK 21, a fixed pool before
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(threads);
+        }
+    }
+
+    private static final class ApiException extends RuntimeException {
+        final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
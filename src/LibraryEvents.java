@@ -0,0 +1,99 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Custom Java Flight Recorder events, shown under "MyLibrary" in JDK Mission Control.
+ *
+ * Record with e.g. java -XX:StartFlightRecording=filename=mylibrary.jfr,settings=profile ...
+ * Events cost almost nothing while no recording is running.
+ */
+public final class LibraryEvents {
+    private LibraryEvents() {
+    }
+
+    @Name("mylibrary.DatabaseQuery")
+    @Label("Database Query")
+    @Category({"MyLibrary", "Database"})
+    @Description("One DatabaseHelper operation, including connection acquisition")
+    @StackTrace(false)
+    public static class DatabaseQuery extends Event {
+        @Label("Method")
+        public String method;
+
+        @Label("User ID")
+        @Description("-1 for operations not tied to a user")
+        public int userId;
+
+        @Label("Rows")
+        public long rows;
+
+        @Label("Connection Acquire Time")
+        @Timespan(Timespan.NANOSECONDS)
+        public long acquireTime;
+
+        @Label("Failed")
+        public boolean failed;
+    }
+
+    @Name("mylibrary.CoverLoad")
+    @Label("Cover Load")
+    @Category({"MyLibrary", "UI"})
+    @Description("Reading, decoding and scaling one book cover image")
+    public static class CoverLoad extends Event {
+        @Label("Path")
+        public String path;
+
+        @Label("File Size")
+        @DataAmount
+        public long bytes;
+
+        @Label("Decode Time")
+        @Timespan(Timespan.NANOSECONDS)
+        public long decodeTime;
+
+        @Label("Scale Time")
+        @Timespan(Timespan.NANOSECONDS)
+        public long scaleTime;
+
+        @Label("Loaded")
+        public boolean loaded;
+
+        @Label("From Disk Cache")
+        @Description("Read as a pre-scaled thumbnail; decode time is then the thumbnail read")
+        public boolean diskCacheHit;
+    }
+
+    @Name("mylibrary.TableReload")
+    @Label("Table Reload")
+    @Category({"MyLibrary", "UI"})
+    @Description("A table in Type1MainFrame or Type2MainFrame being refilled, from request to repaint")
+    @StackTrace(false)
+    public static class TableReload extends Event {
+        @Label("Table")
+        public String table;
+
+        @Label("Rows")
+        public int rows;
+    }
+
+    @Name("mylibrary.EdtStall")
+    @Label("EDT Stall")
+    @Category({"MyLibrary", "UI"})
+    @Description("The Swing event dispatch thread did not process events for longer than the watchdog threshold")
+    @StackTrace(false)
+    public static class EdtStall extends Event {
+        @Label("Threshold")
+        @Timespan(Timespan.MILLISECONDS)
+        public long threshold;
+
+        @Label("EDT Stack")
+        @Description("Where the dispatch thread was while it was blocked")
+        public String edtStack;
+    }
+}
@@ -0,0 +1,352 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * Exports user libraries (user_books joined with books and authors) to CSV,
+ * JSON Lines or a compact binary format.
+ *
+ * Rows are streamed from a forward-only result set (fetch size Integer.MIN_VALUE,
+ * so the driver hands over one row at a time) straight into a fixed-size buffer
+ * that is drained to the output channel, so memory use does not grow with the
+ * library size. A user id of 0 exports every user in one pass, ordered by user.
+ *
+ * CSV and JSON Lines use the field names CatalogImporter understands, so an
+ * export can be imported again.
+ *
+ * Usage: java LibraryExporter <out.csv|out.jsonl|out.bin> [--user <userId>]
+ */
+public class LibraryExporter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String SQL_EXPORT =
+            "SELECT ub.userId, b.bookId, b.authorId, b.title, a.name, a.surname, b.year, b.numberOfPages, " +
+            "b.cover, b.about, ub.readStatus, COALESCE(ub.rating, 0) as rating, ub.comments, ub.releaseDate " +
+            "FROM user_books ub " +
+            "JOIN books b ON b.bookId = ub.bookId " +
+            "JOIN authors a ON b.authorId = a.authorId ";
+    private static final String SQL_EXPORT_USER = SQL_EXPORT + "WHERE ub.userId = ? ORDER BY ub.bookId";
+    private static final String SQL_EXPORT_ALL = SQL_EXPORT + "ORDER BY ub.userId, ub.bookId";
+
+    private static final String[] COLUMNS = {"userId", "bookId", "authorId", "title", "authorName", "authorSurname",
+            "year", "numberOfPages", "cover", "about", "readStatus", "rating", "comments", "releaseDate"};
+
+    // Binary format: magic, version, then per row a ROW tag and the fields in COLUMNS order
+    // (ints as unsigned varints, strings as varint byte length + 1 then UTF-8 with 0 for null,
+    // dates as varint epoch day + 1 with 0 for null), and an END tag after the last row
+    private static final byte[] BINARY_MAGIC = {'M', 'L', 'I', 'B'};
+    private static final byte BINARY_VERSION = 1;
+    private static final byte BINARY_ROW = 1;
+    private static final byte BINARY_END = 0;
+
+    public enum Format {
+        CSV, JSONL, BINARY;
+
+        /**
+         * Format from a file name's extension (.csv, .jsonl/.ndjson/.json, .bin)
+         */
+        public static Format forFile(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".csv")) return CSV;
+            if (name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json")) return JSONL;
+            if (name.endsWith(".bin")) return BINARY;
+            throw new IllegalArgumentException("Unsupported export file type (expected .csv, .jsonl or .bin): " + name);
+        }
+    }
+
+    public record ExportResult(long rows, int users, long bytes, long elapsedMillis) {
+        @Override
+        public String toString() {
+            return String.format("%d rows for %d user(s), %.1f MB in %.1f s", rows, users,
+                    bytes / (1024.0 * 1024.0), elapsedMillis / 1000.0);
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: java LibraryExporter <out.csv|out.jsonl|out.bin> [--user <userId>]");
+            System.exit(1);
+        }
+
+        int userId = 0;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--user") && i + 1 < args.length) {
+                userId = Integer.parseInt(args[++i]);
+            } else {
+                System.err.println("Unknown option: " + args[i]);
+                System.exit(1);
+            }
+        }
+
+        try {
+            Path file = Paths.get(args[0]);
+            ExportResult result = export(userId, Format.forFile(file), file);
+            System.out.println("✅ Export finished: " + result);
+        } catch (IOException | SQLException | IllegalArgumentException e) {
+            System.err.println("❌ Export failed: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Export one user's library (or every user's, for userId 0) to a file
+     */
+    public static ExportResult export(int userId, Format format, Path file) throws IOException, SQLException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            return export(userId, format, channel);
+        }
+    }
+
+    /**
+     * Export one user's library (or every user's, for userId 0) to a channel. The
+     * channel is not closed.
+     */
+    public static ExportResult export(int userId, Format format, WritableByteChannel out)
+            throws IOException, SQLException {
+        long start = System.currentTimeMillis();
+        long rows = 0;
+        int users = 0;
+        int lastUserId = -1;
+
+        ChannelSink sink = new ChannelSink(out);
+        StringBuilder line = new StringBuilder(512);
+        writeHeader(format, sink, line);
+
+        // A streaming result set holds its connection until fully read, so it gets its own
+        try (Connection conn = DatabaseHelper.openBulkConnection();
+             PreparedStatement stmt = conn.prepareStatement(userId > 0 ? SQL_EXPORT_USER : SQL_EXPORT_ALL,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            if (userId > 0) {
+                stmt.setInt(1, userId);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int rowUserId = rs.getInt("userId");
+                    if (rowUserId != lastUserId) {
+                        users++;
+                        lastUserId = rowUserId;
+                    }
+                    switch (format) {
+                        case CSV: writeCsvRow(rs, sink, line); break;
+                        case JSONL: writeJsonRow(rs, sink, line); break;
+                        case BINARY: writeBinaryRow(rs, sink); break;
+                    }
+                    rows++;
+                }
+            }
+        }
+
+        if (format == Format.BINARY) {
+            sink.writeByte(BINARY_END);
+        }
+        sink.flush();
+        return new ExportResult(rows, users, sink.bytesWritten(), System.currentTimeMillis() - start);
+    }
+
+    private static void writeHeader(Format format, ChannelSink sink, StringBuilder line) throws IOException {
+        if (format == Format.CSV) {
+            line.setLength(0);
+            for (int i = 0; i < COLUMNS.length; i++) {
+                line.append(i == 0 ? "" : ",").append(COLUMNS[i]);
+            }
+            sink.write(line.append('\n'));
+        } else if (format == Format.BINARY) {
+            for (byte b : BINARY_MAGIC) {
+                sink.writeByte(b);
+            }
+            sink.writeByte(BINARY_VERSION);
+        }
+    }
+
+    // ---- Row encoders; columns in COLUMNS order ----
+
+    private static void writeCsvRow(ResultSet rs, ChannelSink sink, StringBuilder line) throws SQLException, IOException {
+        line.setLength(0);
+        line.append(rs.getInt("userId")).append(',')
+                .append(rs.getInt("bookId")).append(',')
+                .append(rs.getInt("authorId")).append(',');
+        appendCsv(line, rs.getString("title")).append(',');
+        appendCsv(line, rs.getString("name")).append(',');
+        appendCsv(line, rs.getString("surname")).append(',');
+        line.append(rs.getInt("year")).append(',')
+                .append(rs.getInt("numberOfPages")).append(',');
+        appendCsv(line, rs.getString("cover")).append(',');
+        appendCsv(line, rs.getString("about")).append(',');
+        line.append(rs.getInt("readStatus")).append(',')
+                .append(rs.getInt("rating")).append(',');
+        appendCsv(line, rs.getString("comments")).append(',');
+        Date releaseDate = rs.getDate("releaseDate");
+        if (releaseDate != null) {
+            line.append(releaseDate);
+        }
+        sink.write(line.append('\n'));
+    }
+
+    private static void writeJsonRow(ResultSet rs, ChannelSink sink, StringBuilder line) throws SQLException, IOException {
+        line.setLength(0);
+        line.append("{\"userId\":").append(rs.getInt("userId"))
+                .append(",\"bookId\":").append(rs.getInt("bookId"))
+                .append(",\"authorId\":").append(rs.getInt("authorId"))
+                .append(",\"title\":");
+        JsonText.appendString(line, rs.getString("title")).append(",\"authorName\":");
+        JsonText.appendString(line, rs.getString("name")).append(",\"authorSurname\":");
+        JsonText.appendString(line, rs.getString("surname"))
+                .append(",\"year\":").append(rs.getInt("year"))
+                .append(",\"numberOfPages\":").append(rs.getInt("numberOfPages"))
+                .append(",\"cover\":");
+        JsonText.appendString(line, rs.getString("cover")).append(",\"about\":");
+        JsonText.appendString(line, rs.getString("about"))
+                .append(",\"readStatus\":").append(rs.getInt("readStatus"))
+                .append(",\"rating\":").append(rs.getInt("rating"))
+                .append(",\"comments\":");
+        JsonText.appendString(line, rs.getString("comments")).append(",\"releaseDate\":");
+        Date releaseDate = rs.getDate("releaseDate");
+        JsonText.appendString(line, releaseDate != null ? releaseDate.toString() : null);
+        sink.write(line.append("}\n"));
+    }
+
+    private static void writeBinaryRow(ResultSet rs, ChannelSink sink) throws SQLException, IOException {
+        sink.writeByte(BINARY_ROW);
+        sink.writeVarInt(rs.getInt("userId"));
+        sink.writeVarInt(rs.getInt("bookId"));
+        sink.writeVarInt(rs.getInt("authorId"));
+        sink.writeString(rs.getString("title"));
+        sink.writeString(rs.getString("name"));
+        sink.writeString(rs.getString("surname"));
+        sink.writeVarInt(rs.getInt("year"));
+        sink.writeVarInt(rs.getInt("numberOfPages"));
+        sink.writeString(rs.getString("cover"));
+        sink.writeString(rs.getString("about"));
+        sink.writeVarInt(rs.getInt("readStatus"));
+        sink.writeVarInt(rs.getInt("rating"));
+        sink.writeString(rs.getString("comments"));
+        Date releaseDate = rs.getDate("releaseDate");
+        sink.writeVarLong(releaseDate != null ? releaseDate.toLocalDate().toEpochDay() + 1 : 0);
+    }
+
+    private static StringBuilder appendCsv(StringBuilder line, String value) {
+        if (value == null) {
+            return line;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return line.append(value);
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            line.append(c);
+            if (c == '"') {
+                line.append('"');
+            }
+        }
+        return line.append('"');
+    }
+
+    /**
+     * Fixed-size buffer in front of a channel; drained whenever it fills up
+     */
+    private static final class ChannelSink {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        private long bytesWritten = 0;
+
+        ChannelSink(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void write(CharSequence text) throws IOException {
+            CharBuffer chars = CharBuffer.wrap(text);
+            encoder.reset();
+            while (true) {
+                CoderResult result = encoder.encode(chars, buffer, true);
+                if (result.isOverflow()) {
+                    drain();
+                } else if (result.isUnderflow()) {
+                    break;
+                } else {
+                    result.throwException();
+                }
+            }
+            while (encoder.flush(buffer).isOverflow()) {
+                drain();
+            }
+        }
+
+        void writeString(String value) throws IOException {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length + 1);
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    drain();
+                }
+                int n = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, n);
+                offset += n;
+            }
+        }
+
+        void writeVarInt(int value) throws IOException {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                writeByte((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            writeByte((byte) value);
+        }
+
+        void writeByte(byte value) throws IOException {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            buffer.put(value);
+        }
+
+        void flush() throws IOException {
+            drain();
+        }
+
+        long bytesWritten() {
+            return bytesWritten + buffer.position();
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                bytesWritten += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,398 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Full-text search over books and authors, behind DatabaseHelper.searchBooks()
+ * and searchAuthors().
+ *
+ * Book titles, author names and descriptions are indexed once from the catalog
+ * cache; each user's comments get a small index of their own. Like CatalogCache,
+ * writes only mark entries stale and those are re-indexed on the next search.
+ * Indexes are built and refreshed outside the monitor and swapped in, as in
+ * LibraryTypeahead, so writes marking entries stale never wait for a load.
+ */
+public class LibrarySearch {
+    private static final float TITLE_WEIGHT = 3.0f;
+    private static final float AUTHOR_WEIGHT = 2.0f;
+    private static final float ABOUT_WEIGHT = 1.0f;
+    private static final float COMMENTS_WEIGHT = 1.5f;
+    private static final int MAX_INDEXED_USERS = 16;
+
+    private static final String SQL_AUTHORS = "SELECT authorId, name, surname, website FROM authors";
+    private static final String SQL_AUTHOR = SQL_AUTHORS + " WHERE authorId = ?";
+
+    private final CatalogCache catalog;
+    private final CatalogCache.ConnectionSource connections;
+    // One book/comment refresh and one author refresh at a time; taken before "this", never inside it
+    private final Object booksRefreshLock = new Object();
+    private final Object authorsRefreshLock = new Object();
+
+    // All fields below are guarded by "this"
+    private SearchIndex books = new SearchIndex(TITLE_WEIGHT, AUTHOR_WEIGHT, ABOUT_WEIGHT);
+    private boolean booksLoaded = false;
+    private boolean booksLoading = false;
+    private final Set<Integer> staleBooks = new HashSet<>();
+
+    private SearchIndex authors = new SearchIndex(1.0f, 1.0f);
+    private Map<Integer, Author> authorsById = new HashMap<>();
+    private boolean authorsLoaded = false;
+    private boolean authorsLoading = false;
+    private final Set<Integer> staleAuthors = new HashSet<>();
+
+    // Bumped by invalidateAll, so a load started before it is not swapped in
+    private long generation = 0;
+
+    // Per-user comment indexes, least recently used evicted first
+    private final LinkedHashMap<Integer, UserComments> comments =
+            new LinkedHashMap<Integer, UserComments>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, UserComments> eldest) {
+                    return size() > MAX_INDEXED_USERS;
+                }
+            };
+
+    public LibrarySearch(CatalogCache catalog, CatalogCache.ConnectionSource connections) {
+        this.catalog = catalog;
+        this.connections = connections;
+    }
+
+    /**
+     * Books matching every word of the query in their title, author, description or
+     * the user's comments, best match first
+     */
+    public List<Book> searchBooks(int userId, String query, int limit) throws SQLException {
+        UserComments userComments;
+        synchronized (booksRefreshLock) {
+            refreshBooks(userId);
+            userComments = refreshComments(userId);
+        }
+
+        List<SearchIndex.Hit> hits;
+        synchronized (this) {
+            hits = SearchIndex.search(query, limit, books, userComments.index);
+        }
+        int[] bookIds = new int[hits.size()];
+        for (int i = 0; i < bookIds.length; i++) {
+            bookIds[i] = hits.get(i).docId();
+        }
+        return catalog.getBooks(userId, bookIds);
+    }
+
+    /**
+     * Authors whose name or surname match every word of the query, best match first
+     */
+    public List<Author> searchAuthors(String query, int limit) throws SQLException {
+        synchronized (authorsRefreshLock) {
+            refreshAuthors();
+        }
+
+        synchronized (this) {
+            List<Author> result = new ArrayList<>();
+            for (SearchIndex.Hit hit : authors.search(query, limit)) {
+                result.add(authorsById.get(hit.docId()));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * A book's title, description or author changed, or the book was added
+     */
+    public synchronized void invalidateBook(int bookId) {
+        if (booksLoaded || booksLoading) {
+            staleBooks.add(bookId);
+        }
+    }
+
+    /**
+     * A user's comments on a book changed or the book left their library
+     */
+    public synchronized void invalidateUserBook(int userId, int bookId) {
+        UserComments userComments = comments.get(userId);
+        if (userComments != null) {
+            userComments.stale.add(bookId);
+        }
+    }
+
+    public synchronized void invalidateAuthor(int authorId) {
+        if (authorsLoaded || authorsLoading) {
+            staleAuthors.add(authorId);
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        books = new SearchIndex(TITLE_WEIGHT, AUTHOR_WEIGHT, ABOUT_WEIGHT);
+        booksLoaded = false;
+        staleBooks.clear();
+        authors = new SearchIndex(1.0f, 1.0f);
+        authorsById = new HashMap<>();
+        authorsLoaded = false;
+        staleAuthors.clear();
+        comments.clear();
+    }
+
+    /**
+     * Load the book index if needed, then re-index the books marked stale, including
+     * those changed while it loaded. Called holding booksRefreshLock.
+     */
+    private void refreshBooks(int userId) throws SQLException {
+        long loadGeneration;
+        boolean load;
+        synchronized (this) {
+            loadGeneration = generation;
+            load = !booksLoaded;
+            if (load) {
+                booksLoading = true;
+                staleBooks.clear();
+            }
+        }
+        if (load) {
+            try {
+                List<Book> all = catalog.getAllBooks(userId);
+                all.sort((a, b) -> Integer.compare(a.getBookId(), b.getBookId())); // appends to postings in id order
+                SearchIndex loaded = new SearchIndex(TITLE_WEIGHT, AUTHOR_WEIGHT, ABOUT_WEIGHT);
+                for (Book book : all) {
+                    indexBook(loaded, book);
+                }
+                synchronized (this) {
+                    if (generation == loadGeneration) {
+                        books = loaded;
+                        booksLoaded = true;
+                    }
+                }
+                System.out.println("🔍 Indexed " + loaded.size() + " books (" + loaded.termCount() + " terms)");
+            } finally {
+                synchronized (this) {
+                    booksLoading = false;
+                }
+            }
+        }
+
+        int[] bookIds;
+        synchronized (this) {
+            if (!booksLoaded || staleBooks.isEmpty()) {
+                return;
+            }
+            loadGeneration = generation;
+            bookIds = staleBooks.stream().mapToInt(Integer::intValue).toArray();
+            staleBooks.clear();
+        }
+        List<Book> changed;
+        try {
+            changed = catalog.getBooks(userId, bookIds);
+        } catch (SQLException e) {
+            markBooksStale(loadGeneration, bookIds);
+            throw e;
+        }
+        synchronized (this) {
+            if (generation != loadGeneration) {
+                return;
+            }
+            Set<Integer> found = new HashSet<>();
+            for (Book book : changed) {
+                indexBook(books, book);
+                found.add(book.getBookId());
+            }
+            for (int bookId : bookIds) {
+                if (!found.contains(bookId)) {
+                    books.remove(bookId);
+                }
+            }
+        }
+    }
+
+    private synchronized void markBooksStale(long loadGeneration, int[] bookIds) {
+        if (generation == loadGeneration) {
+            for (int bookId : bookIds) {
+                staleBooks.add(bookId);
+            }
+        }
+    }
+
+    private static void indexBook(SearchIndex index, Book book) {
+        index.put(book.getBookId(), book.getTitle(), book.getAuthorName(), book.getAbout());
+    }
+
+    /**
+     * The user's comment index, loaded if needed and with stale books re-indexed.
+     * Called holding booksRefreshLock.
+     */
+    private UserComments refreshComments(int userId) throws SQLException {
+        UserComments userComments;
+        long loadGeneration;
+        boolean load;
+        synchronized (this) {
+            loadGeneration = generation;
+            userComments = comments.get(userId);
+            load = userComments == null;
+            if (load) {
+                // Registered before loading, so comments changed meanwhile are marked stale
+                userComments = new UserComments();
+                comments.put(userId, userComments);
+            }
+        }
+        if (load) {
+            SearchIndex loaded = new SearchIndex(COMMENTS_WEIGHT);
+            try {
+                for (Book book : catalog.getAllBooks(userId)) {
+                    if (book.getComments() != null) {
+                        loaded.put(book.getBookId(), book.getComments());
+                    }
+                }
+            } catch (SQLException e) {
+                synchronized (this) {
+                    comments.remove(userId, userComments);
+                }
+                throw e;
+            }
+            synchronized (this) {
+                userComments.index = loaded;
+            }
+        }
+
+        int[] bookIds;
+        synchronized (this) {
+            if (userComments.stale.isEmpty()) {
+                return userComments;
+            }
+            bookIds = userComments.stale.stream().mapToInt(Integer::intValue).toArray();
+            userComments.stale.clear();
+        }
+        List<Book> changed;
+        try {
+            changed = catalog.getBooks(userId, bookIds);
+        } catch (SQLException e) {
+            synchronized (this) {
+                for (int bookId : bookIds) {
+                    userComments.stale.add(bookId);
+                }
+            }
+            throw e;
+        }
+        synchronized (this) {
+            if (generation == loadGeneration) {
+                for (int bookId : bookIds) {
+                    userComments.index.remove(bookId);
+                }
+                for (Book book : changed) {
+                    if (book.getComments() != null) {
+                        userComments.index.put(book.getBookId(), book.getComments());
+                    }
+                }
+            }
+        }
+        return userComments;
+    }
+
+    /**
+     * Load the author index if needed, then re-read the authors marked stale.
+     * Called holding authorsRefreshLock.
+     */
+    private void refreshAuthors() throws SQLException {
+        long loadGeneration;
+        boolean load;
+        synchronized (this) {
+            loadGeneration = generation;
+            load = !authorsLoaded;
+            if (load) {
+                authorsLoading = true;
+                staleAuthors.clear();
+            }
+        }
+        if (load) {
+            SearchIndex loaded = new SearchIndex(1.0f, 1.0f);
+            Map<Integer, Author> loadedById = new HashMap<>();
+            try {
+                try (Connection conn = connections.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(SQL_AUTHORS);
+                     ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        indexAuthor(loaded, loadedById, mapAuthor(rs));
+                    }
+                }
+                synchronized (this) {
+                    if (generation == loadGeneration) {
+                        authors = loaded;
+                        authorsById = loadedById;
+                        authorsLoaded = true;
+                    }
+                }
+            } finally {
+                synchronized (this) {
+                    authorsLoading = false;
+                }
+            }
+        }
+
+        int[] authorIds;
+        synchronized (this) {
+            if (!authorsLoaded || staleAuthors.isEmpty()) {
+                return;
+            }
+            loadGeneration = generation;
+            authorIds = staleAuthors.stream().mapToInt(Integer::intValue).toArray();
+            staleAuthors.clear();
+        }
+        Map<Integer, Author> changed = new HashMap<>();
+        try (Connection conn = connections.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_AUTHOR)) {
+            for (int authorId : authorIds) {
+                stmt.setInt(1, authorId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    changed.put(authorId, rs.next() ? mapAuthor(rs) : null);
+                }
+            }
+        } catch (SQLException e) {
+            synchronized (this) {
+                if (generation == loadGeneration) {
+                    for (int authorId : authorIds) {
+                        staleAuthors.add(authorId);
+                    }
+                }
+            }
+            throw e;
+        }
+        synchronized (this) {
+            if (generation != loadGeneration) {
+                return;
+            }
+            for (Map.Entry<Integer, Author> entry : changed.entrySet()) {
+                if (entry.getValue() != null) {
+                    indexAuthor(authors, authorsById, entry.getValue());
+                } else {
+                    authors.remove(entry.getKey());
+                    authorsById.remove(entry.getKey());
+                }
+            }
+        }
+    }
+
+    private static void indexAuthor(SearchIndex index, Map<Integer, Author> byId, Author author) {
+        index.put(author.getAuthorId(), author.getName(), author.getSurname());
+        byId.put(author.getAuthorId(), author);
+    }
+
+    private static Author mapAuthor(ResultSet rs) throws SQLException {
+        return new Author(
+                rs.getInt("authorId"),
+                rs.getString("name"),
+                rs.getString("surname"),
+                rs.getString("website"));
+    }
+
+    private static final class UserComments {
+        // Guarded by the LibrarySearch monitor
+        SearchIndex index = new SearchIndex(COMMENTS_WEIGHT);
+        final Set<Integer> stale = new HashSet<>();
+    }
+}
@@ -0,0 +1,80 @@
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Data a main frame needs for its first paint, loaded while the login window is still
+ * showing: the book count and first page of the books table and the authors list. The
+ * covers of the first page are decoded into CoverImageLoader at the same time. The
+ * user's library overlay is warmed in the catalog cache alongside, without holding up
+ * the snapshot.
+ *
+ * Type1MainFrame and Type2MainFrame fill their tables from a snapshot instead of
+ * querying on construction.
+ */
+public class LibrarySnapshot {
+    private static final int PREFETCHED_COVERS = 20;
+
+    private final UserSession session;
+    private final int bookCount;
+    private final List<Book> firstPage;
+    private final List<Author> authors;
+    private final long loadMillis;
+
+    private LibrarySnapshot(UserSession session, int bookCount, List<Book> firstPage, List<Author> authors,
+                            long loadMillis) {
+        this.session = session;
+        this.bookCount = bookCount;
+        this.firstPage = firstPage;
+        this.authors = authors;
+        this.loadMillis = loadMillis;
+    }
+
+    /**
+     * Load a snapshot for the session; all parts are fetched concurrently
+     */
+    public static CompletableFuture<LibrarySnapshot> load(UserSession session) {
+        long start = System.currentTimeMillis();
+
+        CompletableFuture<Integer> count = AsyncDataService.submit(DatabaseHelper::getBookCount);
+        CompletableFuture<List<Book>> firstPage = AsyncDataService.submit(
+                () -> DatabaseHelper.getBooksPage(session, null, BookTableModel.DEFAULT_PAGE_SIZE));
+        CompletableFuture<List<Author>> authors = AsyncDataService.submit(DatabaseHelper::getAllAuthors);
+        CompletableFuture<Void> covers = firstPage.thenCompose(LibrarySnapshot::prefetchCovers);
+        // Cache warming only: the main frame does not need the whole library for its first paint
+        AsyncDataService.submit(() -> DatabaseHelper.getAllBooks(session));
+
+        return CompletableFuture.allOf(count, firstPage, authors, covers).thenApply(ignored -> {
+            LibrarySnapshot snapshot = new LibrarySnapshot(session, count.join(), firstPage.join(), authors.join(),
+                    System.currentTimeMillis() - start);
+            System.out.println("📦 Prefetched " + snapshot);
+            return snapshot;
+        });
+    }
+
+    public UserSession getSession() { return session; }
+    public int getBookCount() { return bookCount; }
+    public List<Book> getFirstPage() { return firstPage; }
+    public List<Author> getAuthors() { return authors; }
+
+    @Override
+    public String toString() {
+        return String.format("library of %s: %d books, first page %d, %d authors in %d ms",
+                session.getUsername(), bookCount, firstPage.size(), authors.size(), loadMillis);
+    }
+
+    /**
+     * Decode the covers of the first rows in parallel; missing or broken covers are skipped
+     */
+    private static CompletableFuture<Void> prefetchCovers(List<Book> books) {
+        CoverImageLoader loader = CoverImageLoader.getShared();
+        return CompletableFuture.allOf(books.stream()
+                .limit(PREFETCHED_COVERS)
+                .map(Book::getCover)
+                .filter(cover -> cover != null && !cover.trim().isEmpty())
+                .distinct()
+                .map(cover -> AsyncDataService.submit(() -> loader.load(cover,
+                        BookCoverDisplayPanel.COVER_WIDTH, BookCoverDisplayPanel.COVER_HEIGHT))
+                        .exceptionally(e -> null))
+                .toArray(CompletableFuture[]::new));
+    }
+}
@@ -0,0 +1,24 @@
+/**
+ * Reading statistics for one user, as shown by the statistics panels.
+ * unreadBooks counts readStatus 0, which includes catalog books not in the user's library.
+ */
+public record LibraryStatistics(
+        long totalBooks,
+        long totalAuthors,
+        long readBooks,
+        long readingBooks,
+        long wantToReadBooks,
+        long unreadBooks,
+        long ratedBooks,
+        double averageRating,
+        long favoriteBooks,
+        long pagesRead) {
+
+    public double readPercentage() {
+        return totalBooks > 0 ? readBooks * 100.0 / totalBooks : 0;
+    }
+
+    public double averagePagesPerReadBook() {
+        return readBooks > 0 ? pagesRead / (double) readBooks : 0;
+    }
+}
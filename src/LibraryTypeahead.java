@@ -0,0 +1,138 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Author and title suggestions for the book form, behind DatabaseHelper.suggestAuthors()
+ * and suggestTitles().
+ *
+ * Loaded once in the background with load(); after that lookups never touch the
+ * database, so they are safe to run on the EDT per keystroke. Write paths add and
+ * update single entries.
+ */
+public class LibraryTypeahead {
+    private static final String SQL_AUTHORS = "SELECT authorId, name, surname, website FROM authors";
+    private static final String SQL_TITLES = "SELECT bookId, title FROM books";
+
+    private final CatalogCache.ConnectionSource connections;
+
+    // Guarded by "this"
+    private TypeaheadIndex<Author> authors = new TypeaheadIndex<>();
+    private TypeaheadIndex<String> titles = new TypeaheadIndex<>();
+    private boolean loaded = false;
+    // Writes seen while a load is running, replayed onto the loaded indexes
+    private Map<Integer, Author> authorsChangedDuringLoad = null;
+    private Map<Integer, String> titlesChangedDuringLoad = null;
+
+    public LibraryTypeahead(CatalogCache.ConnectionSource connections) {
+        this.connections = connections;
+    }
+
+    /**
+     * Load all authors and titles if not loaded (or loading) yet
+     */
+    public void load() throws SQLException {
+        synchronized (this) {
+            if (loaded || authorsChangedDuringLoad != null) {
+                return;
+            }
+            authorsChangedDuringLoad = new HashMap<>();
+            titlesChangedDuringLoad = new HashMap<>();
+        }
+
+        // Build outside the lock so suggestions stay responsive meanwhile
+        TypeaheadIndex<Author> loadedAuthors = new TypeaheadIndex<>();
+        TypeaheadIndex<String> loadedTitles = new TypeaheadIndex<>();
+        try (Connection conn = connections.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(SQL_AUTHORS);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Author author = new Author(
+                            rs.getInt("authorId"),
+                            rs.getString("name"),
+                            rs.getString("surname"),
+                            rs.getString("website"));
+                    loadedAuthors.put(author.getAuthorId(), author.getFullName(), author);
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(SQL_TITLES);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String title = rs.getString("title");
+                    loadedTitles.put(rs.getInt("bookId"), title, title);
+                }
+            }
+        } catch (SQLException e) {
+            synchronized (this) {
+                authorsChangedDuringLoad = null;
+                titlesChangedDuringLoad = null;
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            for (Author author : authorsChangedDuringLoad.values()) {
+                loadedAuthors.put(author.getAuthorId(), author.getFullName(), author);
+            }
+            for (Map.Entry<Integer, String> title : titlesChangedDuringLoad.entrySet()) {
+                loadedTitles.put(title.getKey(), title.getValue(), title.getValue());
+            }
+            authors = loadedAuthors;
+            titles = loadedTitles;
+            authorsChangedDuringLoad = null;
+            titlesChangedDuringLoad = null;
+            loaded = true;
+            System.out.println("🔤 Typeahead ready: " + authors.size() + " authors, " + titles.size() + " titles");
+        }
+    }
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    public synchronized List<Author> suggestAuthors(String typed, int limit) {
+        return authors.suggest(typed, limit);
+    }
+
+    public synchronized List<String> suggestTitles(String typed, int limit) {
+        // Different books can share a title; show it once
+        List<String> result = new ArrayList<>();
+        for (String title : titles.suggest(typed, limit * 2)) {
+            if (!result.contains(title) && result.size() < limit) {
+                result.add(title);
+            }
+        }
+        return result;
+    }
+
+    public synchronized Author getAuthor(int authorId) {
+        return authors.get(authorId);
+    }
+
+    public synchronized void authorChanged(Author author) {
+        authors.put(author.getAuthorId(), author.getFullName(), author);
+        if (authorsChangedDuringLoad != null) {
+            authorsChangedDuringLoad.put(author.getAuthorId(), author);
+        }
+    }
+
+    public synchronized void titleChanged(int bookId, String title) {
+        titles.put(bookId, title, title);
+        if (titlesChangedDuringLoad != null) {
+            titlesChangedDuringLoad.put(bookId, title);
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        if (authorsChangedDuringLoad == null) {
+            authors = new TypeaheadIndex<>();
+            titles = new TypeaheadIndex<>();
+            loaded = false;
+        }
+    }
+}
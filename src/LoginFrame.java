@@ -5,6 +5,7 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.concurrent.CompletableFuture;
 
 public class LoginFrame extends JFrame {
     private JTextField usernameField;
@@ -307,34 +308,45 @@ public class LoginFrame extends JFrame {
         loginButton.setEnabled(false);
 
         // Use SwingWorker for smooth UI
-        SwingWorker<Integer, Void> worker = new SwingWorker<Integer, Void>() {
+        SwingWorker<UserSession, Void> worker = new SwingWorker<UserSession, Void>() {
+            private CompletableFuture<LibrarySnapshot> snapshot;
+
             @Override
-            protected Integer doInBackground() throws Exception {
-                return DatabaseHelper.validateLogin(username, password);
+            protected UserSession doInBackground() throws Exception {
+                UserSession session = DatabaseHelper.login(username, password);
+                if (session != null) {
+                    // Start loading the main frame's data while the welcome message is shown
+                    snapshot = LibrarySnapshot.load(session);
+                }
+                return session;
             }
 
             @Override
             protected void done() {
+                boolean openingMainFrame = false;
                 try {
-                    int userType = get();
+                    UserSession session = get();
 
-                    if (userType != -1) {
+                    if (session != null) {
                         // Login successful
                         showSuccessMessage("Welcome back, " + username + "!");
 
-                        // Small delay for better UX
-                        Timer timer = new Timer(500, e -> {
+                        // Open the main window once its data is in; without it the frame loads its own
+                        loginButton.setText("Loading library...");
+                        snapshot.whenComplete((data, error) -> AsyncDataService.EDT.execute(() -> {
+                            if (error != null) {
+                                System.err.println("⚠️ Library prefetch failed: " + error.getMessage());
+                            }
                             dispose(); // Close login window
 
                             // Open appropriate main window
-                            if (userType == 1) {
-                                new Type1MainFrame().setVisible(true);
-                            } else if (userType == 2) {
-                                new Type2MainFrame().setVisible(true);
+                            if (session.getUserType() == 1) {
+                                new Type1MainFrame(session, data).setVisible(true);
+                            } else if (session.getUserType() == 2) {
+                                new Type2MainFrame(session, data).setVisible(true);
                             }
-                        });
-                        timer.setRepeats(false);
-                        timer.start();
+                        }));
+                        openingMainFrame = true;
 
                     } else {
                         // Login failed
@@ -346,9 +358,11 @@ public class LoginFrame extends JFrame {
                 } catch (Exception ex) {
                     showErrorMessage("Login error: " + ex.getMessage());
                 } finally {
-                    // Reset button state
-                    loginButton.setText("Login");
-                    loginButton.setEnabled(true);
+                    // Reset button state, unless it stays disabled until the main window opens
+                    if (!openingMainFrame) {
+                        loginButton.setText("Login");
+                        loginButton.setEnabled(true);
+                    }
                 }
             }
         };
@@ -0,0 +1,412 @@
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Timing for every DatabaseHelper operation: latency histograms per method, rows
+ * returned, connection acquisition time and error counts, plus a slow-query log.
+ *
+ * Numbers are exposed as JMX MBeans (MyLibrary:type=QueryMetrics and one
+ * MyLibrary:type=QueryMetrics,method=... per method, e.g. P99Millis of getAllBooks)
+ * and can be printed periodically with metrics.dumpIntervalSeconds. Each operation
+ * is also a LibraryEvents.DatabaseQuery event in Flight Recorder recordings.
+ */
+public class QueryMetrics {
+    private static final int SLOW_LOG_SIZE = 100;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final Map<String, MethodStats> METHODS = new ConcurrentHashMap<>();
+    private static final LatencyHistogram CONNECTION_ACQUIRE = new LatencyHistogram();
+    private static final Deque<String> SLOW_QUERIES = new ArrayDeque<>();
+    private static final ThreadLocal<Operation> CURRENT = new ThreadLocal<>();
+    // First failure reported by failed() during the rethrowFailures() call running on this thread
+    private static final ThreadLocal<Exception[]> CAPTURED = new ThreadLocal<>();
+
+    private static volatile long slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(500);
+    private static ScheduledExecutorService dumper;
+    private static boolean registered = false;
+
+    /**
+     * Apply metrics.* settings and register the MBeans; called once from DatabaseHelper
+     */
+    static synchronized void configure(long slowQueryMillis, long dumpIntervalSeconds) {
+        slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryMillis);
+        registerMBeans();
+
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumper = null;
+        }
+        if (dumpIntervalSeconds > 0) {
+            dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "query-metrics-dump");
+                t.setDaemon(true);
+                return t;
+            });
+            dumper.scheduleAtFixedRate(() -> System.out.print(dump()),
+                    dumpIntervalSeconds, dumpIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Run one operation and record its time, rows and failure. Rows are taken from the
+     * result: the size of a collection, 1 for any other non-null object that is not a
+     * Boolean or Number, otherwise 0.
+     */
+    public static <T> T time(String method, UserSession session, Supplier<T> operation) {
+        Operation op = begin(method, session);
+        try {
+            T result = operation.get();
+            op.rows = rowsOf(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            op.failed = true;
+            throw e;
+        } finally {
+            end(op);
+        }
+    }
+
+    public static <T> T time(String method, Supplier<T> operation) {
+        return time(method, null, operation);
+    }
+
+    public static void run(String method, Runnable operation) {
+        time(method, null, () -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    /**
+     * Count a caught failure against the running operation, then print it as usual
+     */
+    public static void failed(Exception e) {
+        Operation op = CURRENT.get();
+        if (op != null) {
+            op.failed = true;
+        }
+        Exception[] captured = CAPTURED.get();
+        if (captured != null && captured[0] == null) {
+            captured[0] = e;
+        }
+        e.printStackTrace();
+    }
+
+    /**
+     * Run a call that reports its failures through failed() and falls back to an empty
+     * result, and throw the first such failure instead; for callers that must tell an
+     * outage from no data
+     */
+    public static <T> T rethrowFailures(Supplier<T> call) throws SQLException {
+        Exception[] previous = CAPTURED.get();
+        Exception[] captured = new Exception[1];
+        CAPTURED.set(captured);
+        T result;
+        try {
+            result = call.get();
+        } finally {
+            if (previous != null) {
+                CAPTURED.set(previous);
+            } else {
+                CAPTURED.remove();
+            }
+        }
+        if (captured[0] != null) {
+            throw captured[0] instanceof SQLException ? (SQLException) captured[0]
+                    : new SQLException(captured[0].getMessage(), captured[0]);
+        }
+        return result;
+    }
+
+    /**
+     * Time spent waiting for a pooled connection, charged to the running operation
+     */
+    public static void connectionAcquired(long nanos) {
+        CONNECTION_ACQUIRE.recordNanos(nanos);
+        Operation op = CURRENT.get();
+        if (op != null) {
+            op.acquireNanos += nanos;
+        }
+    }
+
+    public static Collection<MethodStats> getMethods() {
+        return new TreeMap<>(METHODS).values();
+    }
+
+    public static MethodStats getMethod(String method) {
+        return METHODS.get(method);
+    }
+
+    public static LatencyHistogram getConnectionAcquireHistogram() {
+        return CONNECTION_ACQUIRE;
+    }
+
+    public static List<String> getSlowQueries() {
+        synchronized (SLOW_QUERIES) {
+            return new ArrayList<>(SLOW_QUERIES);
+        }
+    }
+
+    public static void reset() {
+        METHODS.values().forEach(MethodStats::reset);
+        CONNECTION_ACQUIRE.reset();
+        synchronized (SLOW_QUERIES) {
+            SLOW_QUERIES.clear();
+        }
+    }
+
+    /**
+     * One line per method with calls, errors, rows and latency percentiles in ms
+     */
+    public static String dump() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("📊 Query metrics ").append(LocalDateTime.now().format(TIME_FORMAT)).append('\n');
+        sb.append(String.format("%-26s %8s %6s %10s %8s %8s %8s %8s %8s %9s%n",
+                "method", "calls", "errors", "rows", "mean", "p50", "p90", "p99", "max", "acq p99"));
+        for (MethodStats stats : getMethods()) {
+            LatencyHistogram latency = stats.latency;
+            sb.append(String.format("%-26s %8d %6d %10d %8.2f %8.2f %8.2f %8.2f %8.2f %9.2f%n",
+                    stats.name, latency.getCount(), stats.errors.sum(), stats.rows.sum(),
+                    latency.getMeanMillis(), latency.getPercentileMillis(50), latency.getPercentileMillis(90),
+                    latency.getPercentileMillis(99), latency.getMaxMillis(), stats.acquire.getPercentileMillis(99)));
+        }
+        sb.append(String.format("connection acquire: %d borrows, p99 %.2f ms, max %.2f ms%n",
+                CONNECTION_ACQUIRE.getCount(), CONNECTION_ACQUIRE.getPercentileMillis(99),
+                CONNECTION_ACQUIRE.getMaxMillis()));
+        return sb.toString();
+    }
+
+    private static Operation begin(String method, UserSession session) {
+        Operation op = new Operation(method, session, CURRENT.get());
+        CURRENT.set(op);
+        op.event.begin();
+        op.start = System.nanoTime();
+        return op;
+    }
+
+    private static void end(Operation op) {
+        long nanos = System.nanoTime() - op.start;
+        op.event.end();
+        if (op.parent != null) {
+            CURRENT.set(op.parent);
+        } else {
+            CURRENT.remove();
+        }
+
+        MethodStats stats = METHODS.computeIfAbsent(op.method, MethodStats::new);
+        stats.latency.recordNanos(nanos);
+        stats.rows.add(op.rows);
+        if (op.failed) {
+            stats.errors.increment();
+        }
+        if (op.acquireNanos > 0) {
+            stats.acquire.recordNanos(op.acquireNanos);
+        }
+
+        if (nanos >= slowQueryNanos) {
+            logSlowQuery(op, nanos);
+        }
+
+        LibraryEvents.DatabaseQuery event = op.event;
+        if (event.shouldCommit()) {
+            event.method = op.method;
+            event.userId = op.session != null ? op.session.getUserId() : -1;
+            event.rows = op.rows;
+            event.acquireTime = op.acquireNanos;
+            event.failed = op.failed;
+            event.commit();
+        }
+    }
+
+    private static void logSlowQuery(Operation op, long nanos) {
+        String entry = String.format("%s %s %d ms (rows=%d, acquire=%d ms, user=%s, thread=%s%s)",
+                LocalDateTime.now().format(TIME_FORMAT), op.method, TimeUnit.NANOSECONDS.toMillis(nanos), op.rows,
+                TimeUnit.NANOSECONDS.toMillis(op.acquireNanos),
+                op.session != null ? op.session.getUserId() : "-", Thread.currentThread().getName(),
+                op.failed ? ", failed" : "");
+        System.err.println("🐢 Slow query: " + entry);
+        synchronized (SLOW_QUERIES) {
+            if (SLOW_QUERIES.size() == SLOW_LOG_SIZE) {
+                SLOW_QUERIES.removeFirst();
+            }
+            SLOW_QUERIES.addLast(entry);
+        }
+    }
+
+    private static long rowsOf(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result == null || result instanceof Boolean || result instanceof Number) {
+            return 0;
+        }
+        return 1;
+    }
+
+    private static void registerMBeans() {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(new StandardMBean(new Registry(), RegistryMBean.class),
+                    new ObjectName("MyLibrary:type=QueryMetrics"));
+        } catch (Exception e) {
+            System.err.println("⚠️ Could not register query metrics MBean: " + e.getMessage());
+        }
+    }
+
+    private static void registerMBean(MethodStats stats) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(new StandardMBean(stats, MethodStatsMBean.class),
+                    new ObjectName("MyLibrary:type=QueryMetrics,method=" + ObjectName.quote(stats.name)));
+        } catch (Exception e) {
+            System.err.println("⚠️ Could not register MBean for " + stats.name + ": " + e.getMessage());
+        }
+    }
+
+    private static class Operation {
+        private final String method;
+        private final UserSession session;
+        private final Operation parent;
+        private final LibraryEvents.DatabaseQuery event = new LibraryEvents.DatabaseQuery();
+        private long start;
+        private long rows;
+        private long acquireNanos;
+        private boolean failed;
+
+        private Operation(String method, UserSession session, Operation parent) {
+            this.method = method;
+            this.session = session;
+            this.parent = parent;
+        }
+    }
+
+    /**
+     * JMX view of one DatabaseHelper method
+     */
+    public interface MethodStatsMBean {
+        long getCalls();
+        long getErrors();
+        long getRows();
+        double getMeanMillis();
+        double getP50Millis();
+        double getP90Millis();
+        double getP99Millis();
+        double getP999Millis();
+        double getMaxMillis();
+        double getConnectionAcquireP99Millis();
+        void reset();
+    }
+
+    public static class MethodStats implements MethodStatsMBean {
+        private final String name;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LatencyHistogram acquire = new LatencyHistogram();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        private MethodStats(String name) {
+            this.name = name;
+            registerMBean(this);
+        }
+
+        public String getName() { return name; }
+        public LatencyHistogram getLatency() { return latency; }
+
+        @Override public long getCalls() { return latency.getCount(); }
+        @Override public long getErrors() { return errors.sum(); }
+        @Override public long getRows() { return rows.sum(); }
+        @Override public double getMeanMillis() { return latency.getMeanMillis(); }
+        @Override public double getP50Millis() { return latency.getPercentileMillis(50); }
+        @Override public double getP90Millis() { return latency.getPercentileMillis(90); }
+        @Override public double getP99Millis() { return latency.getPercentileMillis(99); }
+        @Override public double getP999Millis() { return latency.getPercentileMillis(99.9); }
+        @Override public double getMaxMillis() { return latency.getMaxMillis(); }
+        @Override public double getConnectionAcquireP99Millis() { return acquire.getPercentileMillis(99); }
+
+        @Override
+        public void reset() {
+            latency.reset();
+            acquire.reset();
+            rows.reset();
+            errors.reset();
+        }
+    }
+
+    /**
+     * JMX view of the registry as a whole
+     */
+    public interface RegistryMBean {
+        String[] getMethodNames();
+        String[] getSlowQueries();
+        long getSlowQueryThresholdMillis();
+        void setSlowQueryThresholdMillis(long millis);
+        double getConnectionAcquireP99Millis();
+        double getConnectionAcquireMaxMillis();
+        String dump();
+        void reset();
+    }
+
+    private static class Registry implements RegistryMBean {
+        @Override
+        public String[] getMethodNames() {
+            return new TreeMap<>(METHODS).keySet().toArray(new String[0]);
+        }
+
+        @Override
+        public String[] getSlowQueries() {
+            return QueryMetrics.getSlowQueries().toArray(new String[0]);
+        }
+
+        @Override
+        public long getSlowQueryThresholdMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(slowQueryNanos);
+        }
+
+        @Override
+        public void setSlowQueryThresholdMillis(long millis) {
+            slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+
+        @Override
+        public double getConnectionAcquireP99Millis() {
+            return CONNECTION_ACQUIRE.getPercentileMillis(99);
+        }
+
+        @Override
+        public double getConnectionAcquireMaxMillis() {
+            return CONNECTION_ACQUIRE.getMaxMillis();
+        }
+
+        @Override
+        public String dump() {
+            return QueryMetrics.dump();
+        }
+
+        @Override
+        public void reset() {
+            QueryMetrics.reset();
+        }
+    }
+}
@@ -0,0 +1,406 @@
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * In-memory inverted index over documents made of a few weighted text fields.
+ *
+ * Text is folded (lower case, accents and Turkish letters mapped to ASCII, so
+ * "Işık" matches "isik") and split into tokens. Each term keeps a postings list
+ * sorted by document id; a query intersects the postings of its terms and ranks
+ * documents by field-weighted TF-IDF. The last query term also matches as a prefix,
+ * so results follow the user while they type.
+ *
+ * Not thread-safe; callers synchronize (see LibrarySearch).
+ */
+public class SearchIndex {
+    private static final int MAX_TOKEN_LENGTH = 32;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final float PREFIX_PENALTY = 0.7f;
+
+    private final float[] fieldWeights;
+    private final Map<String, Postings> terms = new HashMap<>();
+    // Same postings in term order, for prefix matches; only touched when a term appears or disappears
+    private final TreeMap<String, Postings> sortedTerms = new TreeMap<>();
+    private final Map<Integer, String[]> docTerms = new HashMap<>();
+
+    /**
+     * One weight per field, in the order values are passed to put()
+     */
+    public SearchIndex(float... fieldWeights) {
+        this.fieldWeights = fieldWeights.clone();
+    }
+
+    /**
+     * A search result: document id and its relevance score
+     */
+    public record Hit(int docId, float score) {
+    }
+
+    /**
+     * Add or replace a document. Null field values are skipped.
+     */
+    public void put(int docId, String... fieldValues) {
+        remove(docId);
+
+        Map<String, float[]> weights = new HashMap<>();
+        Map<String, int[]> counts = new HashMap<>();
+        for (int field = 0; field < fieldValues.length && field < fieldWeights.length; field++) {
+            counts.clear();
+            forEachToken(fieldValues[field], token -> counts.computeIfAbsent(token, t -> new int[1])[0]++);
+
+            float fieldWeight = fieldWeights[field];
+            for (Map.Entry<String, int[]> count : counts.entrySet()) {
+                // Sub-linear term frequency so long descriptions don't drown out titles
+                float weight = fieldWeight * (1f + (float) Math.log(count.getValue()[0]));
+                weights.computeIfAbsent(count.getKey(), t -> new float[1])[0] += weight;
+            }
+        }
+        if (weights.isEmpty()) {
+            return;
+        }
+
+        String[] docTermList = new String[weights.size()];
+        int i = 0;
+        for (Map.Entry<String, float[]> weight : weights.entrySet()) {
+            String term = weight.getKey();
+            Postings postings = terms.get(term);
+            if (postings == null) {
+                postings = new Postings();
+                terms.put(term, postings);
+                sortedTerms.put(term, postings);
+            }
+            postings.put(docId, weight.getValue()[0]);
+            docTermList[i++] = term;
+        }
+        docTerms.put(docId, docTermList);
+    }
+
+    public void remove(int docId) {
+        String[] old = docTerms.remove(docId);
+        if (old == null) {
+            return;
+        }
+        for (String term : old) {
+            Postings postings = terms.get(term);
+            if (postings != null && postings.remove(docId) && postings.size == 0) {
+                terms.remove(term);
+                sortedTerms.remove(term);
+            }
+        }
+    }
+
+    public void clear() {
+        terms.clear();
+        sortedTerms.clear();
+        docTerms.clear();
+    }
+
+    public boolean contains(int docId) {
+        return docTerms.containsKey(docId);
+    }
+
+    public int size() {
+        return docTerms.size();
+    }
+
+    public int termCount() {
+        return terms.size();
+    }
+
+    public List<Hit> search(String query, int limit) {
+        return search(query, limit, this);
+    }
+
+    /**
+     * Search several indexes over the same document ids at once (e.g. shared book
+     * fields plus one user's comments). A document matches when every query term
+     * appears in at least one of the indexes; scores are summed.
+     */
+    public static List<Hit> search(String query, int limit, SearchIndex... indexes) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        // Trailing whitespace means the last word is complete
+        boolean lastIsPrefix = !Character.isWhitespace(query.charAt(query.length() - 1));
+
+        ScoredDocs result = null;
+        for (int i = 0; i < queryTerms.size(); i++) {
+            String term = queryTerms.get(i);
+            boolean prefix = lastIsPrefix && i == queryTerms.size() - 1 && term.length() >= MIN_PREFIX_LENGTH;
+
+            ScoredDocs matches = null;
+            for (SearchIndex index : indexes) {
+                matches = ScoredDocs.union(matches, index.match(term, prefix));
+            }
+            result = result == null ? matches : ScoredDocs.intersect(result, matches);
+            if (result == null || result.size == 0) {
+                return new ArrayList<>();
+            }
+        }
+        return result.top(limit);
+    }
+
+    /**
+     * Documents containing the term (or, for a prefix, any term starting with it), scored by weight * idf
+     */
+    private ScoredDocs match(String term, boolean prefix) {
+        if (docTerms.isEmpty()) {
+            return null;
+        }
+
+        Postings exact = terms.get(term);
+        ScoredDocs matches = exact != null ? ScoredDocs.scaled(exact, idf(exact)) : null;
+        if (!prefix) {
+            return matches;
+        }
+
+        NavigableMap<String, Postings> expansions = sortedTerms.subMap(term, false, term + Character.MAX_VALUE, false);
+        int expanded = 0;
+        for (Postings postings : expansions.values()) {
+            if (++expanded > MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+            matches = ScoredDocs.union(matches, ScoredDocs.scaled(postings, idf(postings) * PREFIX_PENALTY));
+        }
+        return matches;
+    }
+
+    private float idf(Postings postings) {
+        return (float) Math.log(1.0 + (double) docTerms.size() / postings.size);
+    }
+
+    // ---- Text folding ----
+
+    // Folded form of every char up to the end of Latin Extended-B
+    private static final char[] FOLD = new char[0x250];
+
+    static {
+        for (char c = 0; c < FOLD.length; c++) {
+            FOLD[c] = foldSlow(c);
+        }
+    }
+
+    private static char foldSlow(char c) {
+        switch (c) {
+            // Turkish dotless/dotted i have no decomposition to plain "i"
+            case 'ı': case 'İ': return 'i';
+            case 'ß': return 's';
+            case 'æ': case 'Æ': return 'a';
+            case 'ø': case 'Ø': return 'o';
+            case 'đ': case 'Đ': return 'd';
+            case 'ł': case 'Ł': return 'l';
+            default:
+                String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+                return Character.toLowerCase(decomposed.charAt(0));
+        }
+    }
+
+    /**
+     * Lower-case, accent-free form of a character
+     */
+    static char fold(char c) {
+        return c < FOLD.length ? FOLD[c] : Character.toLowerCase(c);
+    }
+
+    /**
+     * Lower-case, accent-free form of a string, keeping its length
+     */
+    static String fold(String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = fold(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Distinct folded tokens of a text, in order of first appearance
+     */
+    static List<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        forEachToken(text, tokens::add);
+        return new ArrayList<>(tokens);
+    }
+
+    private static void forEachToken(String text, Consumer<String> action) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x300 && Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue; // combining accent of an already decomposed letter
+            }
+            char folded = fold(c);
+            boolean wordChar = folded < 128
+                    ? (folded >= 'a' && folded <= 'z') || (folded >= '0' && folded <= '9')
+                    : Character.isLetterOrDigit(folded);
+            if (wordChar) {
+                if (token.length() < MAX_TOKEN_LENGTH) {
+                    token.append(folded);
+                }
+            } else if (token.length() > 0) {
+                action.accept(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (token.length() > 0) {
+            action.accept(token.toString());
+        }
+    }
+
+    /**
+     * Document ids in ascending order with their weight for one term
+     */
+    private static final class Postings {
+        int[] docs = new int[4];
+        float[] weights = new float[4];
+        int size = 0;
+
+        void put(int docId, float weight) {
+            // Bulk loads arrive mostly in id order, so check the end first
+            int index = size > 0 && docs[size - 1] < docId ? -(size + 1) : Arrays.binarySearch(docs, 0, size, docId);
+            if (index >= 0) {
+                weights[index] = weight;
+                return;
+            }
+            index = -(index + 1);
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            System.arraycopy(docs, index, docs, index + 1, size - index);
+            System.arraycopy(weights, index, weights, index + 1, size - index);
+            docs[index] = docId;
+            weights[index] = weight;
+            size++;
+        }
+
+        boolean remove(int docId) {
+            int index = Arrays.binarySearch(docs, 0, size, docId);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(docs, index + 1, docs, index, size - index - 1);
+            System.arraycopy(weights, index + 1, weights, index, size - index - 1);
+            size--;
+            return true;
+        }
+    }
+
+    /**
+     * Query-time list of document ids (ascending) with accumulated scores
+     */
+    private static final class ScoredDocs {
+        final int[] docs;
+        final float[] scores;
+        final int size;
+
+        ScoredDocs(int[] docs, float[] scores, int size) {
+            this.docs = docs;
+            this.scores = scores;
+            this.size = size;
+        }
+
+        static ScoredDocs scaled(Postings postings, float factor) {
+            float[] scores = new float[postings.size];
+            for (int i = 0; i < postings.size; i++) {
+                scores[i] = postings.weights[i] * factor;
+            }
+            return new ScoredDocs(postings.docs, scores, postings.size);
+        }
+
+        /**
+         * Documents in either list; scores of documents in both are added
+         */
+        static ScoredDocs union(ScoredDocs a, ScoredDocs b) {
+            if (a == null) return b;
+            if (b == null) return a;
+
+            int[] docs = new int[a.size + b.size];
+            float[] scores = new float[a.size + b.size];
+            int i = 0, j = 0, n = 0;
+            while (i < a.size && j < b.size) {
+                if (a.docs[i] == b.docs[j]) {
+                    docs[n] = a.docs[i];
+                    scores[n++] = a.scores[i++] + b.scores[j++];
+                } else if (a.docs[i] < b.docs[j]) {
+                    docs[n] = a.docs[i];
+                    scores[n++] = a.scores[i++];
+                } else {
+                    docs[n] = b.docs[j];
+                    scores[n++] = b.scores[j++];
+                }
+            }
+            while (i < a.size) {
+                docs[n] = a.docs[i];
+                scores[n++] = a.scores[i++];
+            }
+            while (j < b.size) {
+                docs[n] = b.docs[j];
+                scores[n++] = b.scores[j++];
+            }
+            return new ScoredDocs(docs, scores, n);
+        }
+
+        /**
+         * Documents in both lists, with scores added
+         */
+        static ScoredDocs intersect(ScoredDocs a, ScoredDocs b) {
+            if (a == null || b == null) {
+                return null;
+            }
+            int capacity = Math.min(a.size, b.size);
+            int[] docs = new int[capacity];
+            float[] scores = new float[capacity];
+            int i = 0, j = 0, n = 0;
+            while (i < a.size && j < b.size) {
+                if (a.docs[i] == b.docs[j]) {
+                    docs[n] = a.docs[i];
+                    scores[n++] = a.scores[i++] + b.scores[j++];
+                } else if (a.docs[i] < b.docs[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return new ScoredDocs(docs, scores, n);
+        }
+
+        /**
+         * The best-scoring documents, highest score first (ties by lower id)
+         */
+        List<Hit> top(int limit) {
+            PriorityQueue<Hit> best = new PriorityQueue<>(Math.min(limit, size) + 1,
+                    (x, y) -> x.score() != y.score() ? Float.compare(x.score(), y.score())
+                            : Integer.compare(y.docId(), x.docId()));
+            for (int i = 0; i < size; i++) {
+                if (best.size() < limit) {
+                    best.add(new Hit(docs[i], scores[i]));
+                } else if (scores[i] > best.peek().score()) {
+                    best.poll();
+                    best.add(new Hit(docs[i], scores[i]));
+                }
+            }
+
+            List<Hit> hits = new ArrayList<>(best);
+            hits.sort((x, y) -> x.score() != y.score() ? Float.compare(y.score(), x.score())
+                    : Integer.compare(x.docId(), y.docId()));
+            return hits;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sizes for IN (...) lists and multi-row VALUES.
+ *
+ * Every distinct list length is different SQL text, and so a separate entry in the
+ * connection's StatementCache and a separate server-side prepare. Lists are therefore
+ * padded, by repeating their last element, to one of a few fixed sizes; a repeated
+ * IN value or upsert row changes nothing.
+ */
+final class SqlLists {
+    private static final int[] SIZES = {1, 8, 32, 128, 512};
+
+    /** Most elements in one statement; longer lists are split into chunks of this size */
+    static final int MAX_SIZE = SIZES[SIZES.length - 1];
+
+    private SqlLists() {
+    }
+
+    /**
+     * The elements padded to the next fixed size (at most MAX_SIZE elements expected)
+     */
+    static <T> List<T> padded(List<T> elements) {
+        int size = SIZES[0];
+        for (int candidate : SIZES) {
+            size = candidate;
+            if (candidate >= elements.size()) {
+                break;
+            }
+        }
+        List<T> padded = new ArrayList<>(size);
+        padded.addAll(elements);
+        T last = elements.get(elements.size() - 1);
+        while (padded.size() < size) {
+            padded.add(last);
+        }
+        return padded;
+    }
+
+    /**
+     * "?, ?, ..., ?" with count placeholders
+     */
+    static String placeholders(int count) {
+        return "?, ".repeat(count - 1) + "?";
+    }
+}
@@ -0,0 +1,156 @@
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Application startup: shows the login window right away and prepares everything
+ * else in the background, in parallel.
+ *
+ * Background phases: connectivity check, connection pool warm-up, author/title
+ * prefetch (typeahead), catalog prefetch, replaying pending writes, sample cover
+ * images, assigning them to the first books and preparing their thumbnails. Each phase's start offset and duration
+ * is recorded, and the timeline is printed once all phases have finished.
+ */
+public class StartupOrchestrator {
+    private static final int SAMPLE_COVERS = 5;
+
+    /**
+     * One startup phase, in milliseconds since the orchestrator started
+     */
+    public record Phase(String name, long startMillis, long durationMillis, boolean ok, String detail) {
+        @Override
+        public String toString() {
+            return String.format("%-20s +%5d ms %6d ms %s%s", name, startMillis, durationMillis,
+                    ok ? "✅" : "❌", detail != null ? " " + detail : "");
+        }
+    }
+
+    private final long startNanos = System.nanoTime();
+    private final List<Phase> timeline = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Start all phases; returns a future that completes when the background phases are done
+     */
+    public CompletableFuture<Void> start() {
+        // Only Swing stands between launch and the login window
+        SwingUtilities.invokeLater(() -> {
+            long start = System.nanoTime();
+            new LoginFrame().setVisible(true);
+            record("login window", start, true, "shown " + millisSince(startNanos) + " ms after launch");
+        });
+
+        CompletableFuture<?> connectivity = phase("connectivity check", () -> {
+            if (!DatabaseHelper.checkConnection()) {
+                throw new IllegalStateException("database not reachable");
+            }
+            return DatabaseHelper.getBookCount() + " books in catalog";
+        });
+        CompletableFuture<?> warmUp = phase("pool warm-up", () -> {
+            DatabaseHelper.warmUpConnectionPool();
+            return DatabaseHelper.getPoolStats().toString();
+        });
+        CompletableFuture<?> authors = phase("author prefetch", () -> {
+            DatabaseHelper.loadTypeahead();
+            return null;
+        });
+        CompletableFuture<?> catalog = phase("catalog prefetch", () -> {
+            DatabaseHelper.prefetchCatalog();
+            return null;
+        });
+        // Rows the write-behind queue could not write last time
+        CompletableFuture<?> pendingWrites = connectivity.thenCompose(ignored -> phase("pending writes", () -> {
+            DatabaseHelper.flushPendingWrites();
+            return DatabaseHelper.getWriteBehindStats();
+        }));
+
+        CompletableFuture<?> sampleCovers = phase("sample covers", () -> {
+            BookCoverDisplayPanel.createSampleImages();
+            return null;
+        });
+        CompletableFuture<?> assignCovers = sampleCovers.thenCompose(ignored -> phase("assign covers",
+                StartupOrchestrator::assignSampleCovers));
+        CompletableFuture<?> thumbnails = sampleCovers.thenCompose(ignored -> phase("cover thumbnails",
+                StartupOrchestrator::prepareSampleThumbnails));
+
+        return CompletableFuture.allOf(connectivity, warmUp, authors, catalog, pendingWrites, assignCovers, thumbnails)
+                .thenRun(this::printTimeline);
+    }
+
+    public List<Phase> getTimeline() {
+        synchronized (timeline) {
+            return new ArrayList<>(timeline);
+        }
+    }
+
+    /**
+     * Run a phase in the background; a failed phase is recorded and does not fail the others
+     */
+    private CompletableFuture<Void> phase(String name, Callable<String> task) {
+        long[] start = new long[1];
+        return AsyncDataService.submit(() -> {
+            start[0] = System.nanoTime();
+            return task.call();
+        }).handle((detail, error) -> {
+            if (error != null) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                System.err.println("❌ Startup phase " + name + " failed: " + cause.getMessage());
+                record(name, start[0] != 0 ? start[0] : System.nanoTime(), false, cause.getMessage());
+            } else {
+                record(name, start[0], true, detail);
+            }
+            return null;
+        });
+    }
+
+    private void record(String name, long phaseStartNanos, boolean ok, String detail) {
+        timeline.add(new Phase(name, (phaseStartNanos - startNanos) / 1_000_000,
+                millisSince(phaseStartNanos), ok, detail));
+    }
+
+    private void printTimeline() {
+        List<Phase> phases = getTimeline();
+        phases.sort((a, b) -> Long.compare(a.startMillis(), b.startMillis()));
+        StringBuilder sb = new StringBuilder("⏱️ Startup timeline (" + millisSince(startNanos) + " ms)\n");
+        for (Phase phase : phases) {
+            sb.append("   ").append(phase).append('\n');
+        }
+        System.out.print(sb);
+    }
+
+    /**
+     * Sample covers Book1.jpg..Book5.jpg go to the first five books in title order,
+     * in one batched update; books that already have a cover keep it
+     */
+    private static String assignSampleCovers() {
+        List<Integer> bookIds = DatabaseHelper.getFirstBookIds(SAMPLE_COVERS);
+        Map<Integer, String> covers = new LinkedHashMap<>();
+        for (int i = 0; i < bookIds.size(); i++) {
+            covers.put(bookIds.get(i), "Book" + (i + 1) + ".jpg");
+        }
+        int filled = DatabaseHelper.fillMissingBookCovers(covers);
+        if (filled < 0) {
+            throw new IllegalStateException("could not update book covers");
+        }
+        return filled + " of " + covers.size() + " books";
+    }
+
+    /**
+     * Decode and scale the sample covers now so the cover panel shows them from cache
+     */
+    private static String prepareSampleThumbnails() throws Exception {
+        CoverImageLoader loader = CoverImageLoader.getShared();
+        for (int i = 1; i <= SAMPLE_COVERS; i++) {
+            loader.load("Book" + i + ".jpg", BookCoverDisplayPanel.COVER_WIDTH, BookCoverDisplayPanel.COVER_HEIGHT);
+        }
+        return loader.getStats();
+    }
+
+    private static long millisSince(long nanos) {
+        return (System.nanoTime() - nanos) / 1_000_000;
+    }
+}
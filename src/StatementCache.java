@@ -0,0 +1,227 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-connection LRU cache of prepared statements, keyed by SQL text.
+ * With useServerPrepStmts=true each cached entry is a server-side prepared
+ * statement, so repeated calls skip MySQL's parse and plan step.
+ * Handed-out statements are proxies whose close() clears parameters and pending
+ * batches and restores fetch size, max rows, query timeout and the like, so the next
+ * borrower gets the statement as it was prepared. A statement whose other settings
+ * were changed (escape processing, cursor name, ...) is closed instead of reused.
+ */
+public class StatementCache {
+    private final Connection physical;
+    private final int maxSize;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+
+    // Access-ordered so the eldest entry is the least recently used statement
+    private final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+    public StatementCache(Connection physical, int maxSize, AtomicLong hits, AtomicLong misses, AtomicLong evictions) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    /**
+     * Return a cached statement for sql, preparing (and caching) it on a miss
+     */
+    public PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        if (maxSize <= 0) {
+            misses.incrementAndGet();
+            return physical.prepareStatement(sql, autoGeneratedKeys);
+        }
+
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "K:" + sql : "N:" + sql;
+        CachedStatement cached = statements.get(key);
+        if (cached != null && cached.discarded) {
+            statements.remove(key);
+            cached = null;
+        }
+
+        if (cached != null) {
+            if (cached.inUse) {
+                // Same SQL already open on this connection (nested use): hand out an uncached one
+                misses.incrementAndGet();
+                return physical.prepareStatement(sql, autoGeneratedKeys);
+            }
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            cached = new CachedStatement(physical.prepareStatement(sql, autoGeneratedKeys));
+            cached.captureDefaults();
+            statements.put(key, cached);
+            evictIfNeeded();
+        }
+
+        cached.inUse = true;
+        return cached.lease();
+    }
+
+    /**
+     * Called when the owning connection goes back to the pool
+     */
+    public void resetInUse() {
+        for (CachedStatement cached : statements.values()) {
+            cached.inUse = false;
+        }
+    }
+
+    public int size() {
+        return statements.size();
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, CachedStatement>> it = statements.entrySet().iterator();
+        while (statements.size() > maxSize && it.hasNext()) {
+            CachedStatement eldest = it.next().getValue();
+            if (eldest.inUse) {
+                continue;
+            }
+            it.remove();
+            evictions.incrementAndGet();
+            try {
+                eldest.statement.close();
+            } catch (SQLException e) {
+                // ignore
+            }
+        }
+    }
+
+    private static class CachedStatement {
+        final PreparedStatement statement;
+        boolean inUse;
+        boolean discarded; // settings changed that cannot be restored; closed on release
+        boolean settingsChanged;
+
+        // Settings as prepared, restored when a lease changed them
+        private int fetchSize;
+        private int fetchDirection;
+        private int maxRows;
+        private int maxFieldSize;
+        private int queryTimeout;
+
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        void captureDefaults() throws SQLException {
+            fetchSize = statement.getFetchSize();
+            fetchDirection = statement.getFetchDirection();
+            maxRows = statement.getMaxRows();
+            maxFieldSize = statement.getMaxFieldSize();
+            queryTimeout = statement.getQueryTimeout();
+        }
+
+        /**
+         * Make the statement ready for the next borrower
+         */
+        void reset() throws SQLException {
+            if (discarded) {
+                statement.close();
+                return;
+            }
+            // A borrower that did not close its result set must not leave it open on the cached statement
+            ResultSet results = statement.getResultSet();
+            if (results != null) {
+                results.close();
+            }
+            statement.clearParameters();
+            statement.clearBatch();
+            if (settingsChanged) {
+                statement.setFetchSize(fetchSize);
+                statement.setFetchDirection(fetchDirection);
+                statement.setMaxRows(maxRows);
+                statement.setMaxFieldSize(maxFieldSize);
+                statement.setQueryTimeout(queryTimeout);
+                settingsChanged = false;
+            }
+        }
+
+        PreparedStatement lease() {
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    new LeaseHandler(this));
+        }
+    }
+
+    private static class LeaseHandler implements InvocationHandler {
+        private final CachedStatement cached;
+        private boolean released = false;
+
+        LeaseHandler(CachedStatement cached) {
+            this.cached = cached;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!released) {
+                        released = true;
+                        try {
+                            cached.reset();
+                        } catch (SQLException e) {
+                            cached.discarded = true;
+                            throw e;
+                        } finally {
+                            cached.inUse = false;
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return released || cached.statement.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "setFetchSize":
+                case "setFetchDirection":
+                case "setMaxRows":
+                case "setMaxFieldSize":
+                case "setQueryTimeout":
+                    Object result = forward(method, args);
+                    cached.settingsChanged = true;
+                    return result;
+                case "setLargeMaxRows":
+                case "setEscapeProcessing":
+                case "setCursorName":
+                case "setPoolable":
+                case "closeOnCompletion":
+                    Object changed = forward(method, args);
+                    cached.discarded = true;
+                    return changed;
+                default:
+                    return forward(method, args);
+            }
+        }
+
+        private Object forward(Method method, Object[] args) throws Throwable {
+            if (released) {
+                throw new SQLException("Statement has already been closed");
+            }
+            try {
+                return method.invoke(cached.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,279 @@
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Pre-scaled cover thumbnails on disk, so a cold start reads one small file per cover
+ * instead of decoding the full-size image.
+ *
+ * Thumbnails are content-addressed: thumbnails/<sha256 of the source>-<w>x<h>.jpg
+ * (.png for sources that are not JPEGs), so identical covers share one file. The
+ * index (thumbnails/index.properties) remembers each source file's hash together with
+ * its modification time and length; a source is only re-hashed when those change,
+ * which is also what invalidates its thumbnails. All files are written to a temp file
+ * and moved into place atomically. When the directory grows past maxBytes the least
+ * recently used thumbnails are deleted.
+ */
+public class ThumbnailDiskCache {
+    private static final String INDEX_FILE = "index.properties";
+    private static final float JPEG_QUALITY = 0.9f;
+
+    private final Path dir;
+    private final long maxBytes;
+    private final Properties index = new Properties();
+
+    private boolean initialized = false;
+    private long currentBytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    public ThumbnailDiskCache(Path dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Thumbnail of the source at the given size, or null if it is not cached (or unreadable)
+     */
+    public BufferedImage get(File source, int width, int height) {
+        try {
+            Path file = thumbnailFile(source, width, height);
+            if (file == null || !Files.isRegularFile(file)) {
+                count(false);
+                return null;
+            }
+            BufferedImage image = ImageIO.read(file.toFile());
+            if (image == null) {
+                count(false);
+                return null;
+            }
+            // Modification time doubles as last-access time for eviction
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            count(true);
+            return image;
+        } catch (IOException e) {
+            System.err.println("⚠️ Could not read cached thumbnail for " + source + ": " + e.getMessage());
+            count(false);
+            return null;
+        }
+    }
+
+    /**
+     * Store a thumbnail of the source; failures are logged and otherwise ignored
+     */
+    public void put(File source, int width, int height, BufferedImage thumbnail) {
+        try {
+            Path file = thumbnailFile(source, width, height);
+            if (file == null) {
+                return;
+            }
+            Path temp = Files.createTempFile(dir, "thumb", ".tmp");
+            try {
+                write(thumbnail, temp, file.getFileName().toString().endsWith(".png"));
+                long size = Files.size(temp);
+                long previous = Files.isRegularFile(file) ? Files.size(file) : 0;
+                moveAtomically(temp, file);
+                synchronized (this) {
+                    currentBytes += size - previous;
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            evictIfNeeded();
+        } catch (IOException e) {
+            System.err.println("⚠️ Could not cache thumbnail for " + source + ": " + e.getMessage());
+        }
+    }
+
+    public synchronized String getStats() {
+        return String.format("%d KB of %d KB on disk, %d hits, %d misses",
+                currentBytes / 1024, maxBytes / 1024, hits, misses);
+    }
+
+    /**
+     * thumbnails/<hash>-<w>x<h>.jpg|png for the source's current content
+     */
+    private Path thumbnailFile(File source, int width, int height) throws IOException {
+        String hash = contentHash(source);
+        if (hash == null) {
+            return null;
+        }
+        // JPEG sources have no transparency, so their thumbnails can stay JPEG
+        String name = source.getName().toLowerCase();
+        String extension = name.endsWith(".jpg") || name.endsWith(".jpeg") ? ".jpg" : ".png";
+        return dir.resolve(hash + "-" + width + "x" + height + extension);
+    }
+
+    /**
+     * SHA-256 of the source, re-computed only when its modification time or length changed
+     */
+    private String contentHash(File source) throws IOException {
+        init();
+        String key = source.getAbsolutePath();
+        long modified = source.lastModified();
+        long length = source.length();
+        if (modified == 0) {
+            return null; // Source does not exist
+        }
+
+        String stamp = modified + "," + length + ",";
+        synchronized (this) {
+            String entry = index.getProperty(key);
+            if (entry != null && entry.startsWith(stamp)) {
+                return entry.substring(stamp.length());
+            }
+        }
+
+        String hash = sha256(source.toPath());
+        synchronized (this) {
+            index.setProperty(key, stamp + hash);
+            saveIndex();
+        }
+        return hash;
+    }
+
+    private synchronized void init() throws IOException {
+        if (initialized) {
+            return;
+        }
+        initialized = true;
+        Files.createDirectories(dir);
+
+        Path indexFile = dir.resolve(INDEX_FILE);
+        if (Files.isRegularFile(indexFile)) {
+            try (InputStream in = Files.newInputStream(indexFile)) {
+                index.load(in);
+            }
+        }
+        for (ThumbnailFile thumbnail : listThumbnails()) {
+            currentBytes += thumbnail.size;
+        }
+        evictIfNeeded();
+    }
+
+    private synchronized void saveIndex() throws IOException {
+        Path temp = Files.createTempFile(dir, "index", ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                index.store(out, "Cover thumbnail index: source path = modified,length,sha256");
+            }
+            moveAtomically(temp, dir.resolve(INDEX_FILE));
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Delete least recently used thumbnails until the directory fits in maxBytes
+     */
+    private synchronized void evictIfNeeded() throws IOException {
+        if (currentBytes <= maxBytes) {
+            return;
+        }
+        List<ThumbnailFile> thumbnails = listThumbnails();
+        thumbnails.sort(Comparator.comparingLong(ThumbnailFile::lastUsed));
+        currentBytes = thumbnails.stream().mapToLong(ThumbnailFile::size).sum();
+        // Go a bit below the limit so the next few puts do not scan again
+        long target = maxBytes - maxBytes / 10;
+        for (ThumbnailFile thumbnail : thumbnails) {
+            if (currentBytes <= target) {
+                break;
+            }
+            if (Files.deleteIfExists(thumbnail.path)) {
+                currentBytes -= thumbnail.size;
+            }
+        }
+    }
+
+    private List<ThumbnailFile> listThumbnails() throws IOException {
+        List<ThumbnailFile> thumbnails = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*-*x*.{jpg,png}")) {
+            for (Path file : files) {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                thumbnails.add(new ThumbnailFile(file, attributes.size(), attributes.lastModifiedTime().toMillis()));
+            }
+        }
+        return thumbnails;
+    }
+
+    private static void write(BufferedImage image, Path file, boolean png) throws IOException {
+        if (png) {
+            ImageIO.write(image, "png", file.toFile());
+            return;
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(file.toFile())) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static void moveAtomically(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private synchronized void count(boolean hit) {
+        if (hit) {
+            hits++;
+        } else {
+            misses++;
+        }
+    }
+
+    private record ThumbnailFile(Path path, long size, long lastUsed) {
+    }
+}
@@ -3,26 +3,45 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class Type1MainFrame extends JFrame {
+    private final UserSession session;
     private JTabbedPane tabbedPane;
     private JTable booksTable;
     private JTable authorsTable;
-    private DefaultTableModel booksTableModel;
+    private BookTableModel booksTableModel;
     private DefaultTableModel authorsTableModel;
 
     // Form components for adding/editing books
     private JTextField titleField, yearField, pagesField, coverField;
     private JTextArea aboutArea, commentsArea;
-    private JComboBox<Author> authorComboBox;
     private JComboBox<String> statusComboBox;
     private JSpinner ratingSpinner;
 
-    public Type1MainFrame() {
+    // Selection changes are coalesced: only the row the user settles on is re-fetched
+    private static final int SELECTION_DEBOUNCE_MS = 150;
+    private Timer selectionTimer;
+    private int selectedBookId = -1;
+
+    public Type1MainFrame(UserSession session) {
+        this(session, null);
+    }
+
+    /**
+     * Frame filled from a snapshot prefetched during login, or loaded from the database if it is null
+     */
+    public Type1MainFrame(UserSession session, LibrarySnapshot snapshot) {
+        this.session = session;
         initializeComponents();
         setupLayout();
-        loadData();
+        loadData(snapshot);
         addEventListeners();
 
         setTitle("MyLibrary - Admin Panel");
@@ -38,19 +57,21 @@ public class Type1MainFrame extends JFrame {
         }
     }
 
+    @Override
+    public void dispose() {
+        booksTableModel.detach();
+        super.dispose();
+    }
+
     private void initializeComponents() {
         tabbedPane = new JTabbedPane();
 
         // Books table
-        String[] bookColumns = {"ID", "Title", "Author", "Year", "Pages", "Status", "Rating"};
-        booksTableModel = new DefaultTableModel(bookColumns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make table read-only
-            }
-        };
+        booksTableModel = new BookTableModel(session); // Pages are loaded as the table scrolls
         booksTable = new JTable(booksTableModel);
-        booksTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        // Several rows can be selected for Delete, Set Status and Rate; the form shows the first
+        booksTable.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+        booksTableModel.attach(booksTable); // Rows follow book changes without reloading
 
         // Authors table
         String[] authorColumns = {"ID", "Name", "Surname", "Website"};
@@ -70,10 +91,12 @@ public class Type1MainFrame extends JFrame {
         aboutArea = new JTextArea(3, 20);
         commentsArea = new JTextArea(2, 20);
 
-        authorComboBox = new JComboBox<>();
         statusComboBox = new JComboBox<>(new String[]{"Not Read", "Read", "Reading", "Want to Read"});
         ratingSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 5, 1));
 
+        selectionTimer = new Timer(SELECTION_DEBOUNCE_MS, e -> fetchSelectedBook());
+        selectionTimer.setRepeats(false);
+
         aboutArea.setLineWrap(true);
         aboutArea.setWrapStyleWord(true);
         commentsArea.setLineWrap(true);
@@ -98,9 +121,13 @@ public class Type1MainFrame extends JFrame {
         tabbedPane.addTab("📊 Reports", reportsPanel);
 
         // Book Cover Display Panel
-        BookCoverDisplayPanel coverPanel = new BookCoverDisplayPanel();
+        BookCoverDisplayPanel coverPanel = new BookCoverDisplayPanel(session);
         tabbedPane.addTab("🖼️ Book Covers", coverPanel);
 
+        // Full-text search
+        BookSearchPanel searchPanel = new BookSearchPanel(session);
+        tabbedPane.addTab("🔍 Search", searchPanel);
+
         add(tabbedPane);
     }
 
@@ -119,17 +146,29 @@ public class Type1MainFrame extends JFrame {
         JButton addButton = new JButton("Add Book");
         JButton updateButton = new JButton("Update Book");
         JButton deleteButton = new JButton("Delete Book");
+        JButton statusButton = new JButton("Set Status...");
+        JButton rateButton = new JButton("Rate...");
         JButton refreshButton = new JButton("Refresh");
+        JButton importButton = new JButton("Import Catalog...");
+        JButton exportButton = new JButton("Export Library...");
 
         addButton.addActionListener(e -> addBook());
         updateButton.addActionListener(e -> updateBook());
         deleteButton.addActionListener(e -> deleteBook());
+        statusButton.addActionListener(e -> setStatusOfSelectedBooks());
+        rateButton.addActionListener(e -> rateSelectedBooks());
         refreshButton.addActionListener(e -> loadBooksData());
+        importButton.addActionListener(e -> importCatalog());
+        exportButton.addActionListener(e -> exportLibrary());
 
         buttonPanel.add(addButton);
         buttonPanel.add(updateButton);
         buttonPanel.add(deleteButton);
+        buttonPanel.add(statusButton);
+        buttonPanel.add(rateButton);
         buttonPanel.add(refreshButton);
+        buttonPanel.add(importButton);
+        buttonPanel.add(exportButton);
 
         // Layout
         panel.add(tableScrollPane, BorderLayout.CENTER);
@@ -221,9 +260,23 @@ public class Type1MainFrame extends JFrame {
         panel.putClientProperty("authorSurnameField", authorSurnameField);
         panel.putClientProperty("authorWebsiteField", authorWebsiteField);
 
+        // Suggest existing authors so a typo doesn't create a duplicate author
+        TypeaheadPopup.attach(authorNameField, typed -> DatabaseHelper.suggestAuthors(typed, 8),
+                author -> fillAuthorFields(panel, author));
+        TypeaheadPopup.attach(authorSurnameField, typed -> DatabaseHelper.suggestAuthors(typed, 8),
+                author -> fillAuthorFields(panel, author));
+        TypeaheadPopup.attach(titleField, typed -> DatabaseHelper.suggestTitles(typed, 8), titleField::setText);
+
         return panel;
     }
 
+    private static void fillAuthorFields(JPanel formPanel, Author author) {
+        ((JTextField) formPanel.getClientProperty("authorNameField")).setText(author.getName());
+        ((JTextField) formPanel.getClientProperty("authorSurnameField")).setText(author.getSurname());
+        ((JTextField) formPanel.getClientProperty("authorWebsiteField"))
+                .setText(author.getWebsite() != null ? author.getWebsite() : "");
+    }
+
     private JPanel createAuthorsPanel() {
         JPanel panel = new JPanel(new BorderLayout());
 
@@ -269,10 +322,8 @@ public class Type1MainFrame extends JFrame {
         JScrollPane favBooksScroll = new JScrollPane(favBooksList);
 
         JButton loadFavBooksButton = new JButton("Load Favorite Books");
-        loadFavBooksButton.addActionListener(e -> {
-            List<Book> favBooks = DatabaseHelper.getFavoriteBooks();
-            favBooksList.setListData(favBooks.toArray(new Book[0]));
-        });
+        loadFavBooksButton.addActionListener(e -> AsyncDataService.load(() -> DatabaseHelper.getFavoriteBooks(session),
+                favBooks -> favBooksList.setListData(favBooks.toArray(new Book[0]))));
 
         favBooksPanel.add(favBooksScroll, BorderLayout.CENTER);
         favBooksPanel.add(loadFavBooksButton, BorderLayout.SOUTH);
@@ -285,10 +336,8 @@ public class Type1MainFrame extends JFrame {
         JScrollPane favAuthorsScroll = new JScrollPane(favAuthorsList);
 
         JButton loadFavAuthorsButton = new JButton("Load Favorite Authors");
-        loadFavAuthorsButton.addActionListener(e -> {
-            List<Author> favAuthors = DatabaseHelper.getFavoriteAuthors();
-            favAuthorsList.setListData(favAuthors.toArray(new Author[0]));
-        });
+        loadFavAuthorsButton.addActionListener(e -> AsyncDataService.load(() -> DatabaseHelper.getFavoriteAuthors(session),
+                favAuthors -> favAuthorsList.setListData(favAuthors.toArray(new Author[0]))));
 
         favAuthorsPanel.add(favAuthorsScroll, BorderLayout.CENTER);
         favAuthorsPanel.add(loadFavAuthorsButton, BorderLayout.SOUTH);
@@ -310,10 +359,8 @@ public class Type1MainFrame extends JFrame {
         JScrollPane unreadScroll = new JScrollPane(unreadList);
 
         JButton loadUnreadButton = new JButton("Load Unread Books");
-        loadUnreadButton.addActionListener(e -> {
-            List<Book> unreadBooks = DatabaseHelper.getUnreadBooks();
-            unreadList.setListData(unreadBooks.toArray(new Book[0]));
-        });
+        loadUnreadButton.addActionListener(e -> AsyncDataService.load(() -> DatabaseHelper.getUnreadBooks(session),
+                unreadBooks -> unreadList.setListData(unreadBooks.toArray(new Book[0]))));
 
         unreadPanel.add(unreadScroll, BorderLayout.CENTER);
         unreadPanel.add(loadUnreadButton, BorderLayout.SOUTH);
@@ -326,10 +373,8 @@ public class Type1MainFrame extends JFrame {
         JScrollPane releasesScroll = new JScrollPane(releasesList);
 
         JButton loadReleasesButton = new JButton("Check Releases");
-        loadReleasesButton.addActionListener(e -> {
-            List<Book> upcomingBooks = DatabaseHelper.getUpcomingReleases();
-            releasesList.setListData(upcomingBooks.toArray(new Book[0]));
-        });
+        loadReleasesButton.addActionListener(e -> AsyncDataService.load(() -> DatabaseHelper.getUpcomingReleases(session),
+                upcomingBooks -> releasesList.setListData(upcomingBooks.toArray(new Book[0]))));
 
         releasesPanel.add(releasesScroll, BorderLayout.CENTER);
         releasesPanel.add(loadReleasesButton, BorderLayout.SOUTH);
@@ -343,13 +388,12 @@ public class Type1MainFrame extends JFrame {
         JScrollPane statsScroll = new JScrollPane(statsArea);
 
         JButton loadStatsButton = new JButton("Generate Statistics");
-        loadStatsButton.addActionListener(e -> {
-            List<Book> allBooks = DatabaseHelper.getAllBooks();
-            List<Author> allAuthors = DatabaseHelper.getAllAuthors();
-
-            long readBooks = allBooks.stream().filter(b -> b.getReadStatus() == 1).count();
-            long unreadBooks = allBooks.stream().filter(b -> b.getReadStatus() == 0).count();
-            double avgRating = allBooks.stream().mapToInt(Book::getRating).filter(r -> r > 0).average().orElse(0.0);
+        loadStatsButton.addActionListener(e -> AsyncDataService.loadLatest("type1.stats",
+                () -> DatabaseHelper.getLibraryStatistics(session), statistics -> {
+            if (statistics == null) {
+                statsArea.setText("Could not load statistics.");
+                return;
+            }
 
             String stats = String.format(
                     "📚 Total Books: %d\n" +
@@ -357,14 +401,31 @@ public class Type1MainFrame extends JFrame {
                             "✅ Read Books: %d\n" +
                             "📖 Unread Books: %d\n" +
                             "⭐ Average Rating: %.1f/5\n",
-                    allBooks.size(), allAuthors.size(), readBooks, unreadBooks, avgRating
+                    statistics.totalBooks(), statistics.totalAuthors(), statistics.readBooks(),
+                    statistics.unreadBooks(), statistics.averageRating()
             );
 
             statsArea.setText(stats);
-        });
+        }));
+
+        JButton verifyStatsButton = new JButton("Verify Counters");
+        verifyStatsButton.addActionListener(e -> AsyncDataService.loadLatest("type1.stats",
+                DatabaseHelper::rebuildUserStats, drift -> {
+            if (drift == null) {
+                statsArea.setText("Could not rebuild statistics counters.");
+            } else if (drift.isEmpty()) {
+                statsArea.setText("✅ All statistics counters match user_books.");
+            } else {
+                statsArea.setText("⚠️ Fixed drift in " + drift.size() + " counter row(s):\n" + String.join("\n", drift));
+            }
+        }));
+
+        JPanel statsButtonPanel = new JPanel(new FlowLayout());
+        statsButtonPanel.add(loadStatsButton);
+        statsButtonPanel.add(verifyStatsButton);
 
         statsPanel.add(statsScroll, BorderLayout.CENTER);
-        statsPanel.add(loadStatsButton, BorderLayout.SOUTH);
+        statsPanel.add(statsButtonPanel, BorderLayout.SOUTH);
 
         panel.add(unreadPanel);
         panel.add(releasesPanel);
@@ -385,34 +446,34 @@ public class Type1MainFrame extends JFrame {
         });
     }
 
-    private void loadData() {
-        loadBooksData();
-        loadAuthorsData();
-        loadAuthorsComboBox();
+    private void loadData(LibrarySnapshot snapshot) {
+        if (snapshot != null) {
+            booksTableModel.prime(snapshot.getBookCount(), snapshot.getFirstPage());
+            showAuthors(snapshot.getAuthors());
+        } else {
+            loadBooksData();
+            loadAuthorsData();
+        }
+        // Author/title suggestions for the book form; kept current by DatabaseHelper afterwards
+        AsyncDataService.submit(() -> {
+            DatabaseHelper.loadTypeahead();
+            return null;
+        });
     }
 
     private void loadBooksData() {
-        booksTableModel.setRowCount(0);
-        List<Book> books = DatabaseHelper.getAllBooks();
-
-        for (Book book : books) {
-            Object[] row = {
-                    book.getBookId(),
-                    book.getTitle(),
-                    book.getAuthorName(),
-                    book.getYear(),
-                    book.getNumberOfPages(),
-                    book.getReadStatusText(),
-                    book.getRatingStars()
-            };
-            booksTableModel.addRow(row);
-        }
+        booksTableModel.reload("Type1MainFrame.books");
     }
 
     private void loadAuthorsData() {
-        authorsTableModel.setRowCount(0);
-        List<Author> authors = DatabaseHelper.getAllAuthors();
+        // Same channel as searchAuthors so a late full list never overwrites search results
+        AsyncDataService.loadLatest("type1.authors", DatabaseHelper::getAllAuthors, this::showAuthors);
+    }
 
+    private void showAuthors(List<Author> authors) {
+        LibraryEvents.TableReload event = new LibraryEvents.TableReload();
+        event.begin();
+        authorsTableModel.setRowCount(0);
         for (Author author : authors) {
             Object[] row = {
                     author.getAuthorId(),
@@ -422,21 +483,38 @@ public class Type1MainFrame extends JFrame {
             };
             authorsTableModel.addRow(row);
         }
+        event.table = "Type1MainFrame.authors";
+        event.rows = authors.size();
+        event.commit();
     }
 
-    private void loadAuthorsComboBox() {
-        authorComboBox.removeAllItems();
-        List<Author> authors = DatabaseHelper.getAllAuthors();
-        for (Author author : authors) {
-            authorComboBox.addItem(author);
+    private void loadBookToForm(int selectedRow) {
+        int bookId = booksTableModel.getBookIdAt(selectedRow);
+        if (bookId < 0) {
+            return; // Row not loaded yet
+        }
+        selectedBookId = bookId;
+
+        // Show the row the table already loaded straight away
+        Book cached = DatabaseHelper.peekBookInfo(session, bookId);
+        if (cached != null) {
+            showBookInForm(cached);
+        }
+        if (DatabaseHelper.isBookInfoFresh(session, bookId)) {
+            selectionTimer.stop();
+        } else {
+            selectionTimer.restart();
         }
     }
 
-    private void loadBookToForm(int selectedRow) {
-        int bookId = (Integer) booksTableModel.getValueAt(selectedRow, 0);
-        Book book = DatabaseHelper.getBookInfo(bookId);
+    private void fetchSelectedBook() {
+        int bookId = selectedBookId;
+        // Rapid selection changes cancel the previous lookup
+        AsyncDataService.loadLatest("type1.selection", () -> DatabaseHelper.getBookInfo(session, bookId), this::showBookInForm);
+    }
 
-        if (book != null) {
+    private void showBookInForm(Book book) {
+        if (book != null && book.getBookId() == selectedBookId) {
             titleField.setText(book.getTitle());
             yearField.setText(String.valueOf(book.getYear()));
             pagesField.setText(String.valueOf(book.getNumberOfPages()));
@@ -446,13 +524,11 @@ public class Type1MainFrame extends JFrame {
             statusComboBox.setSelectedIndex(book.getReadStatus());
             ratingSpinner.setValue(book.getRating());
 
-            // Select the correct author
-            for (int i = 0; i < authorComboBox.getItemCount(); i++) {
-                Author author = authorComboBox.getItemAt(i);
-                if (author.getAuthorId() == book.getAuthorId()) {
-                    authorComboBox.setSelectedIndex(i);
-                    break;
-                }
+            // Show the book's author in the author fields
+            Author author = DatabaseHelper.getKnownAuthor(book.getAuthorId());
+            if (author != null) {
+                JPanel formPanel = (JPanel) ((JPanel) tabbedPane.getComponentAt(0)).getComponent(1);
+                fillAuthorFields(formPanel, author);
             }
         }
     }
@@ -489,31 +565,33 @@ public class Type1MainFrame extends JFrame {
             int rating = (Integer) ratingSpinner.getValue();
             String comments = commentsArea.getText().trim();
 
-            // Step 1: Check if author exists, if not create new one
-            int authorId = DatabaseHelper.getOrCreateAuthor(authorName, authorSurname, authorWebsite);
-
-            if (authorId == -1) {
-                JOptionPane.showMessageDialog(this, "Failed to create or find author!");
-                return;
-            }
-
-            // Step 2: Add the book with the authorId
-            boolean success = DatabaseHelper.addBookComplete(
-                    authorId, title, year, pages, cover, about, readStatus, rating, comments
-            );
+            AsyncDataService.load(() -> {
+                // Step 1: Check if author exists, if not create new one
+                int authorId = DatabaseHelper.getOrCreateAuthor(authorName, authorSurname, authorWebsite);
+                if (authorId == -1) {
+                    return "Failed to create or find author!";
+                }
 
-            if (success) {
+                // Step 2: Add the book with the authorId
+                boolean success = DatabaseHelper.addBookComplete(session, 
+                        authorId, title, year, pages, cover, about, readStatus, rating, comments
+                );
+                return success ? null : "Failed to add book!";
+            }, failure -> {
+                if (failure != null) {
+                    JOptionPane.showMessageDialog(this, failure);
+                    return;
+                }
                 JOptionPane.showMessageDialog(this,
                         "Book added successfully!\n" +
                                 "Title: " + title + "\n" +
                                 "Author: " + authorName + " " + authorSurname);
-                loadBooksData();
                 loadAuthorsData(); // Refresh in case new author was added
-                loadAuthorsComboBox();
                 clearForm();
-            } else {
-                JOptionPane.showMessageDialog(this, "Failed to add book!");
-            }
+            }, e -> {
+                JOptionPane.showMessageDialog(this, "Error adding book: " + e.getMessage());
+                e.printStackTrace();
+            });
 
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this, "Please enter valid numbers for year and pages!");
@@ -530,8 +608,14 @@ public class Type1MainFrame extends JFrame {
             return;
         }
 
+        int bookId = booksTableModel.getBookIdAt(selectedRow);
+        if (bookId < 0 || bookId != selectedBookId) {
+            // Row not loaded yet, or the form does not show it yet
+            JOptionPane.showMessageDialog(this, "The selected book is still loading, please try again.");
+            return;
+        }
+
         try {
-            int bookId = (Integer) booksTableModel.getValueAt(selectedRow, 0);
             String title = titleField.getText().trim();
             int year = Integer.parseInt(yearField.getText().trim());
             int pages = Integer.parseInt(pagesField.getText().trim());
@@ -540,16 +624,15 @@ public class Type1MainFrame extends JFrame {
             int rating = (Integer) ratingSpinner.getValue();
             String comments = commentsArea.getText().trim();
 
-            boolean success = DatabaseHelper.updateBook(
+            AsyncDataService.load(() -> DatabaseHelper.updateBook(session, 
                     bookId, title, year, pages, about, readStatus, rating, comments
-            );
-
-            if (success) {
-                JOptionPane.showMessageDialog(this, "Book updated successfully!");
-                loadBooksData();
-            } else {
-                JOptionPane.showMessageDialog(this, "Failed to update book!");
-            }
+            ), success -> {
+                if (success) {
+                    JOptionPane.showMessageDialog(this, "Book updated successfully!");
+                } else {
+                    JOptionPane.showMessageDialog(this, "Failed to update book!");
+                }
+            });
 
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this, "Please enter valid numbers!");
@@ -557,55 +640,185 @@ public class Type1MainFrame extends JFrame {
     }
 
     private void deleteBook() {
-        int selectedRow = booksTable.getSelectedRow();
-        if (selectedRow < 0) {
-            JOptionPane.showMessageDialog(this, "Please select a book to delete!");
-            return;
-        }
+        withSelectedBookIds("Please select a book to delete!", this::deleteBooks);
+    }
 
+    private void deleteBooks(int[] bookIds) {
         int confirm = JOptionPane.showConfirmDialog(
                 this,
-                "Are you sure you want to delete this book?",
+                bookIds.length == 1 ? "Are you sure you want to delete this book?"
+                        : "Are you sure you want to delete these " + bookIds.length + " books?",
                 "Confirm Delete",
                 JOptionPane.YES_NO_OPTION
         );
 
         if (confirm == JOptionPane.YES_OPTION) {
-            int bookId = (Integer) booksTableModel.getValueAt(selectedRow, 0);
-            boolean success = DatabaseHelper.deleteBook(bookId);
+            AsyncDataService.load(() -> bookIds.length == 1 ? DatabaseHelper.deleteBook(session, bookIds[0])
+                    : DatabaseHelper.deleteBooks(session, bookIds), success -> {
+                if (success) {
+                    JOptionPane.showMessageDialog(this, bookIds.length == 1 ? "Book deleted successfully!"
+                            : bookIds.length + " books deleted successfully!");
+                    clearForm();
+                } else {
+                    JOptionPane.showMessageDialog(this, "Failed to delete book!");
+                }
+            });
+        }
+    }
 
+    private void setStatusOfSelectedBooks() {
+        withSelectedBookIds("Please select one or more books first!", this::setStatusOfBooks);
+    }
+
+    private void setStatusOfBooks(int[] bookIds) {
+        String[] statuses = {"Not Read", "Read", "Reading", "Want to Read"};
+        Object choice = JOptionPane.showInputDialog(
+                this,
+                "Status for " + bookIds.length + " selected book(s):",
+                "Set Status",
+                JOptionPane.QUESTION_MESSAGE,
+                null,
+                statuses,
+                statuses[1]
+        );
+        if (choice == null) {
+            return;
+        }
+
+        int readStatus = Arrays.asList(statuses).indexOf(choice);
+        AsyncDataService.load(() -> DatabaseHelper.updateReadStatus(session, bookIds, readStatus), success -> {
             if (success) {
-                JOptionPane.showMessageDialog(this, "Book deleted successfully!");
-                loadBooksData();
-                clearForm();
+                JOptionPane.showMessageDialog(this, bookIds.length + " book(s) marked as " + choice + "!");
             } else {
-                JOptionPane.showMessageDialog(this, "Failed to delete book!");
+                JOptionPane.showMessageDialog(this, "Failed to update book status!");
+            }
+        });
+    }
+
+    private void rateSelectedBooks() {
+        withSelectedBookIds("Please select one or more books first!", this::rateBooks);
+    }
+
+    private void rateBooks(int[] bookIds) {
+        String ratingStr = JOptionPane.showInputDialog(
+                this,
+                "Rate " + bookIds.length + " selected book(s) (0-5 stars):",
+                "Rate Books",
+                JOptionPane.QUESTION_MESSAGE
+        );
+        if (ratingStr == null) {
+            return;
+        }
+
+        try {
+            int rating = Integer.parseInt(ratingStr.trim());
+            if (rating < 0 || rating > 5) {
+                JOptionPane.showMessageDialog(this, "Rating must be between 0 and 5!");
+                return;
+            }
+
+            Map<Integer, Integer> ratings = new LinkedHashMap<>();
+            for (int bookId : bookIds) {
+                ratings.put(bookId, rating);
             }
+            AsyncDataService.load(() -> DatabaseHelper.updateRatings(session, ratings), success -> {
+                if (success) {
+                    JOptionPane.showMessageDialog(this, bookIds.length + " book(s) rated successfully!");
+                } else {
+                    JOptionPane.showMessageDialog(this, "Failed to rate books!");
+                }
+            });
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Please enter a valid number!");
         }
     }
 
-    private void searchAuthors(String searchTerm) {
-        if (searchTerm.trim().isEmpty()) {
-            loadAuthorsData();
+    /**
+     * Run a bulk action on the IDs of all selected rows. Rows on pages that are not loaded
+     * are resolved in the background; if any cannot be, the action does not run at all.
+     */
+    private void withSelectedBookIds(String noSelectionMessage, Consumer<int[]> action) {
+        int[] rows = booksTable.getSelectedRows();
+        if (rows.length == 0) {
+            JOptionPane.showMessageDialog(this, noSelectionMessage);
             return;
         }
+        booksTableModel.getBookIdsAt(rows).whenCompleteAsync((bookIds, error) -> {
+            if (error != null) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                JOptionPane.showMessageDialog(this, "Could not read the selected books: " + cause.getMessage()
+                        + "\nNothing was changed.");
+                return;
+            }
+            action.accept(bookIds);
+        }, AsyncDataService.EDT);
+    }
 
-        authorsTableModel.setRowCount(0);
-        List<Author> authors = DatabaseHelper.searchAuthors(searchTerm);
+    private void importCatalog() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import Catalog (CSV, JSON or JSON Lines)");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
 
-        for (Author author : authors) {
-            Object[] row = {
-                    author.getAuthorId(),
-                    author.getName(),
-                    author.getSurname(),
-                    author.getWebsite()
-            };
-            authorsTableModel.addRow(row);
+        int choice = JOptionPane.showConfirmDialog(
+                this,
+                "Also add the imported books to your library?",
+                "Import Catalog",
+                JOptionPane.YES_NO_CANCEL_OPTION
+        );
+        if (choice == JOptionPane.CANCEL_OPTION || choice == JOptionPane.CLOSED_OPTION) {
+            return;
+        }
+        int userId = choice == JOptionPane.YES_OPTION ? session.getUserId() : 0;
+
+        CatalogImporter importer = new CatalogImporter(chooser.getSelectedFile().toPath(), userId,
+                CatalogImporter.DEFAULT_CHUNK_SIZE);
+        AsyncDataService.load(() -> importer.run(false), result -> {
+            JOptionPane.showMessageDialog(this, "Import finished:\n" + result);
+            loadBooksData();
+            loadAuthorsData();
+        }, error -> JOptionPane.showMessageDialog(this,
+                "Import failed: " + error.getMessage() + "\nImport the same file again to resume.",
+                "Import Catalog", JOptionPane.ERROR_MESSAGE));
+    }
+
+    private void exportLibrary() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Export Library (.csv, .jsonl or .bin)");
+        chooser.setSelectedFile(new File("library.csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        Path file = chooser.getSelectedFile().toPath();
+        LibraryExporter.Format format;
+        try {
+            format = LibraryExporter.Format.forFile(file);
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage());
+            return;
         }
 
-        if (authors.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "No authors found matching: " + searchTerm);
+        int userId = session.getUserId();
+        AsyncDataService.load(() -> LibraryExporter.export(userId, format, file),
+                result -> JOptionPane.showMessageDialog(this, "Export finished:\n" + result),
+                error -> JOptionPane.showMessageDialog(this, "Export failed: " + error.getMessage(),
+                        "Export Library", JOptionPane.ERROR_MESSAGE));
+    }
+
+    private void searchAuthors(String searchTerm) {
+        if (searchTerm.trim().isEmpty()) {
+            loadAuthorsData();
+            return;
         }
+
+        AsyncDataService.loadLatest("type1.authors", () -> DatabaseHelper.searchAuthors(searchTerm), authors -> {
+            showAuthors(authors);
+            if (authors.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "No authors found matching: " + searchTerm);
+            }
+        });
     }
 
     private void addAuthor() {
@@ -616,17 +829,16 @@ public class Type1MainFrame extends JFrame {
         if (surname == null || surname.trim().isEmpty()) return;
 
         String website = JOptionPane.showInputDialog(this, "Enter author website (optional):");
-        if (website == null) website = "";
-
-        boolean success = DatabaseHelper.addAuthor(name.trim(), surname.trim(), website.trim());
+        String authorWebsite = website == null ? "" : website.trim();
 
-        if (success) {
-            JOptionPane.showMessageDialog(this, "Author added successfully!");
-            loadAuthorsData();
-            loadAuthorsComboBox();
-        } else {
-            JOptionPane.showMessageDialog(this, "Failed to add author!");
-        }
+        AsyncDataService.load(() -> DatabaseHelper.addAuthor(name.trim(), surname.trim(), authorWebsite), success -> {
+            if (success) {
+                JOptionPane.showMessageDialog(this, "Author added successfully!");
+                loadAuthorsData();
+            } else {
+                JOptionPane.showMessageDialog(this, "Failed to add author!");
+            }
+        });
     }
 
     private void clearForm() {
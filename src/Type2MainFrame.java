@@ -1,22 +1,35 @@
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.List;
 
 public class Type2MainFrame extends JFrame {
+    private final UserSession session;
     private JTabbedPane tabbedPane;
     private JTable booksTable;
-    private DefaultTableModel booksTableModel;
+    private BookTableModel booksTableModel;
     private JTextArea bookDetailsArea;
 
+    // Selection changes are coalesced: only the row the user settles on is re-fetched
+    private static final int SELECTION_DEBOUNCE_MS = 150;
+    private Timer selectionTimer;
+    private int selectedBookId = -1;
+
 // In Type2MainFrame.java - Replace the constructor with this:
 
-    public Type2MainFrame() {
+    public Type2MainFrame(UserSession session) {
+        this(session, null);
+    }
+
+    /**
+     * Frame filled from a snapshot prefetched during login, or loaded from the database if it is null
+     */
+    public Type2MainFrame(UserSession session, LibrarySnapshot snapshot) {
+        this.session = session;
         initializeComponents();
         setupLayout();
-        loadData();
+        loadData(snapshot);
         addEventListeners();
 
         setTitle("MyLibrary - User Panel");
@@ -32,25 +45,29 @@ public class Type2MainFrame extends JFrame {
         }
     }
 
+    @Override
+    public void dispose() {
+        booksTableModel.detach();
+        super.dispose();
+    }
+
     private void initializeComponents() {
         tabbedPane = new JTabbedPane();
 
         // Books table (read-only for users)
-        String[] bookColumns = {"ID", "Title", "Author", "Year", "Pages", "Status", "Rating"};
-        booksTableModel = new DefaultTableModel(bookColumns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Read-only for users
-            }
-        };
+        booksTableModel = new BookTableModel(session); // Pages are loaded as the table scrolls
         booksTable = new JTable(booksTableModel);
         booksTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        booksTableModel.attach(booksTable); // Rows follow book changes without reloading
 
         bookDetailsArea = new JTextArea();
         bookDetailsArea.setEditable(false);
         bookDetailsArea.setFont(new Font("Arial", Font.PLAIN, 12));
         bookDetailsArea.setLineWrap(true);
         bookDetailsArea.setWrapStyleWord(true);
+
+        selectionTimer = new Timer(SELECTION_DEBOUNCE_MS, e -> fetchSelectedBook());
+        selectionTimer.setRepeats(false);
     }
 
     private void setupLayout() {
@@ -75,9 +92,13 @@ public class Type2MainFrame extends JFrame {
         tabbedPane.addTab("🔔 Notifications", notificationsPanel);
 
         // Book Cover Display Panel
-        BookCoverDisplayPanel coverPanel = new BookCoverDisplayPanel();
+        BookCoverDisplayPanel coverPanel = new BookCoverDisplayPanel(session);
         tabbedPane.addTab("🖼️ Book Covers", coverPanel);
 
+        // Full-text search
+        BookSearchPanel searchPanel = new BookSearchPanel(session);
+        tabbedPane.addTab("🔍 Search", searchPanel);
+
         add(tabbedPane);
     }
 
@@ -135,13 +156,8 @@ public class Type2MainFrame extends JFrame {
         JScrollPane readScroll = new JScrollPane(readList);
 
         JButton loadReadButton = new JButton("Load Read Books");
-        loadReadButton.addActionListener(e -> {
-            List<Book> allBooks = DatabaseHelper.getAllBooks();
-            Book[] readBooks = allBooks.stream()
-                    .filter(book -> book.getReadStatus() == 1)
-                    .toArray(Book[]::new);
-            readList.setListData(readBooks);
-        });
+        loadReadButton.addActionListener(e -> AsyncDataService.load(() -> DatabaseHelper.getBooksByStatus(session, 1),
+                readBooks -> readList.setListData(readBooks.toArray(new Book[0]))));
 
         readPanel.add(readScroll, BorderLayout.CENTER);
         readPanel.add(loadReadButton, BorderLayout.SOUTH);
@@ -154,13 +170,8 @@ public class Type2MainFrame extends JFrame {
         JScrollPane readingScroll = new JScrollPane(readingList);
 
         JButton loadReadingButton = new JButton("Load Currently Reading");
-        loadReadingButton.addActionListener(e -> {
-            List<Book> allBooks = DatabaseHelper.getAllBooks();
-            Book[] readingBooks = allBooks.stream()
-                    .filter(book -> book.getReadStatus() == 2)
-                    .toArray(Book[]::new);
-            readingList.setListData(readingBooks);
-        });
+        loadReadingButton.addActionListener(e -> AsyncDataService.load(() -> DatabaseHelper.getBooksByStatus(session, 2),
+                readingBooks -> readingList.setListData(readingBooks.toArray(new Book[0]))));
 
         readingPanel.add(readingScroll, BorderLayout.CENTER);
         readingPanel.add(loadReadingButton, BorderLayout.SOUTH);
@@ -173,13 +184,8 @@ public class Type2MainFrame extends JFrame {
         JScrollPane wantScroll = new JScrollPane(wantList);
 
         JButton loadWantButton = new JButton("Load Want to Read");
-        loadWantButton.addActionListener(e -> {
-            List<Book> allBooks = DatabaseHelper.getAllBooks();
-            Book[] wantBooks = allBooks.stream()
-                    .filter(book -> book.getReadStatus() == 3)
-                    .toArray(Book[]::new);
-            wantList.setListData(wantBooks);
-        });
+        loadWantButton.addActionListener(e -> AsyncDataService.load(() -> DatabaseHelper.getBooksByStatus(session, 3),
+                wantBooks -> wantList.setListData(wantBooks.toArray(new Book[0]))));
 
         wantPanel.add(wantScroll, BorderLayout.CENTER);
         wantPanel.add(loadWantButton, BorderLayout.SOUTH);
@@ -192,10 +198,8 @@ public class Type2MainFrame extends JFrame {
         JScrollPane unreadScroll = new JScrollPane(unreadList);
 
         JButton loadUnreadButton = new JButton("Load Unread Books");
-        loadUnreadButton.addActionListener(e -> {
-            List<Book> unreadBooks = DatabaseHelper.getUnreadBooks();
-            unreadList.setListData(unreadBooks.toArray(new Book[0]));
-        });
+        loadUnreadButton.addActionListener(e -> AsyncDataService.load(() -> DatabaseHelper.getUnreadBooks(session),
+                unreadBooks -> unreadList.setListData(unreadBooks.toArray(new Book[0]))));
 
         unreadPanel.add(unreadScroll, BorderLayout.CENTER);
         unreadPanel.add(loadUnreadButton, BorderLayout.SOUTH);
@@ -222,10 +226,8 @@ public class Type2MainFrame extends JFrame {
         JButton loadFavBooksButton = new JButton("Load Favorites");
         JButton showDetailsButton = new JButton("Show Details");
 
-        loadFavBooksButton.addActionListener(e -> {
-            List<Book> favBooks = DatabaseHelper.getFavoriteBooks();
-            favBooksList.setListData(favBooks.toArray(new Book[0]));
-        });
+        loadFavBooksButton.addActionListener(e -> AsyncDataService.load(() -> DatabaseHelper.getFavoriteBooks(session),
+                favBooks -> favBooksList.setListData(favBooks.toArray(new Book[0]))));
 
         showDetailsButton.addActionListener(e -> {
             Book selectedBook = favBooksList.getSelectedValue();
@@ -253,10 +255,8 @@ public class Type2MainFrame extends JFrame {
         JButton loadFavAuthorsButton = new JButton("Load Favorite Authors");
         JButton showAuthorInfoButton = new JButton("Show Author Info");
 
-        loadFavAuthorsButton.addActionListener(e -> {
-            List<Author> favAuthors = DatabaseHelper.getFavoriteAuthors();
-            favAuthorsList.setListData(favAuthors.toArray(new Author[0]));
-        });
+        loadFavAuthorsButton.addActionListener(e -> AsyncDataService.load(() -> DatabaseHelper.getFavoriteAuthors(session),
+                favAuthors -> favAuthorsList.setListData(favAuthors.toArray(new Author[0]))));
 
         showAuthorInfoButton.addActionListener(e -> {
             Author selectedAuthor = favAuthorsList.getSelectedValue();
@@ -310,10 +310,8 @@ public class Type2MainFrame extends JFrame {
         JButton loadAllAuthorsButton = new JButton("Load All Authors");
         JButton showAuthorBooksButton = new JButton("Show Author's Books");
 
-        loadAllAuthorsButton.addActionListener(e -> {
-            List<Author> allAuthors = DatabaseHelper.getAllAuthors();
-            authorsList.setListData(allAuthors.toArray(new Author[0]));
-        });
+        loadAllAuthorsButton.addActionListener(e -> AsyncDataService.load(DatabaseHelper::getAllAuthors,
+                allAuthors -> authorsList.setListData(allAuthors.toArray(new Author[0]))));
 
         showAuthorBooksButton.addActionListener(e -> {
             Author selectedAuthor = authorsList.getSelectedValue();
@@ -366,8 +364,8 @@ public class Type2MainFrame extends JFrame {
         JScrollPane releasesScroll = new JScrollPane(releasesList);
 
         JButton checkReleasesButton = new JButton("Check Upcoming Releases");
-        checkReleasesButton.addActionListener(e -> {
-            List<Book> upcomingBooks = DatabaseHelper.getUpcomingReleases();
+        checkReleasesButton.addActionListener(e -> AsyncDataService.load(() -> DatabaseHelper.getUpcomingReleases(session),
+                upcomingBooks -> {
             releasesList.setListData(upcomingBooks.toArray(new Book[0]));
 
             if (upcomingBooks.isEmpty()) {
@@ -376,7 +374,7 @@ public class Type2MainFrame extends JFrame {
                 JOptionPane.showMessageDialog(this,
                         String.format("Found %d upcoming releases!", upcomingBooks.size()));
             }
-        });
+        }));
 
         releasesPanel.add(releasesScroll, BorderLayout.CENTER);
         releasesPanel.add(checkReleasesButton, BorderLayout.SOUTH);
@@ -391,28 +389,12 @@ public class Type2MainFrame extends JFrame {
         JScrollPane statsScroll = new JScrollPane(statsArea);
 
         JButton generateStatsButton = new JButton("Generate My Statistics");
-        generateStatsButton.addActionListener(e -> {
-            List<Book> allBooks = DatabaseHelper.getAllBooks();
-
-            long totalBooks = allBooks.size();
-            long readBooks = allBooks.stream().filter(b -> b.getReadStatus() == 1).count();
-            long readingBooks = allBooks.stream().filter(b -> b.getReadStatus() == 2).count();
-            long wantToReadBooks = allBooks.stream().filter(b -> b.getReadStatus() == 3).count();
-            long unreadBooks = allBooks.stream().filter(b -> b.getReadStatus() == 0).count();
-
-            long ratedBooks = allBooks.stream().filter(b -> b.getRating() > 0).count();
-            double avgRating = allBooks.stream()
-                    .mapToInt(Book::getRating)
-                    .filter(r -> r > 0)
-                    .average()
-                    .orElse(0.0);
-
-            long favoriteBooks = allBooks.stream().filter(b -> b.getRating() >= 4).count();
-
-            int totalPages = allBooks.stream()
-                    .filter(b -> b.getReadStatus() == 1)
-                    .mapToInt(Book::getNumberOfPages)
-                    .sum();
+        generateStatsButton.addActionListener(e -> AsyncDataService.loadLatest("type2.stats",
+                () -> DatabaseHelper.getLibraryStatistics(session), statistics -> {
+            if (statistics == null) {
+                statsArea.setText("Could not load statistics.");
+                return;
+            }
 
             String stats = String.format(
                     "📚 MY READING STATISTICS\n\n" +
@@ -428,14 +410,14 @@ public class Type2MainFrame extends JFrame {
                             "📄 READING VOLUME\n" +
                             "📄 Total Pages Read: %,d pages\n" +
                             "📖 Average Pages per Book: %.0f pages\n",
-                    totalBooks, readBooks, totalBooks > 0 ? (readBooks * 100.0 / totalBooks) : 0,
-                    readingBooks, wantToReadBooks, unreadBooks,
-                    ratedBooks, avgRating, favoriteBooks,
-                    totalPages, readBooks > 0 ? (totalPages / (double) readBooks) : 0
+                    statistics.totalBooks(), statistics.readBooks(), statistics.readPercentage(),
+                    statistics.readingBooks(), statistics.wantToReadBooks(), statistics.unreadBooks(),
+                    statistics.ratedBooks(), statistics.averageRating(), statistics.favoriteBooks(),
+                    statistics.pagesRead(), statistics.averagePagesPerReadBook()
             );
 
             statsArea.setText(stats);
-        });
+        }));
 
         statsPanel.add(statsScroll, BorderLayout.CENTER);
         statsPanel.add(generateStatsButton, BorderLayout.SOUTH);
@@ -452,36 +434,50 @@ public class Type2MainFrame extends JFrame {
             if (!e.getValueIsAdjusting()) {
                 int selectedRow = booksTable.getSelectedRow();
                 if (selectedRow >= 0) {
-                    int bookId = (Integer) booksTableModel.getValueAt(selectedRow, 0);
-                    Book book = DatabaseHelper.getBookInfo(bookId);
-                    if (book != null) {
-                        displayBookDetails(book);
-                    }
+                    showSelectedBook(booksTableModel.getBookIdAt(selectedRow));
                 }
             }
         });
     }
 
-    private void loadData() {
-        loadBooksData();
+    private void showSelectedBook(int bookId) {
+        if (bookId < 0) {
+            return; // Row not loaded yet
+        }
+        selectedBookId = bookId;
+
+        // Show the row the table already loaded straight away
+        Book cached = DatabaseHelper.peekBookInfo(session, bookId);
+        if (cached != null) {
+            displayBookDetails(cached);
+        }
+        if (DatabaseHelper.isBookInfoFresh(session, bookId)) {
+            selectionTimer.stop();
+        } else {
+            selectionTimer.restart();
+        }
+    }
+
+    private void fetchSelectedBook() {
+        int bookId = selectedBookId;
+        // Rapid selection changes cancel the previous lookup
+        AsyncDataService.loadLatest("type2.selection", () -> DatabaseHelper.getBookInfo(session, bookId), book -> {
+            if (book != null && book.getBookId() == selectedBookId) {
+                displayBookDetails(book);
+            }
+        });
+    }
+
+    private void loadData(LibrarySnapshot snapshot) {
+        if (snapshot != null) {
+            booksTableModel.prime(snapshot.getBookCount(), snapshot.getFirstPage());
+        } else {
+            loadBooksData();
+        }
     }
 
     private void loadBooksData() {
-        booksTableModel.setRowCount(0);
-        List<Book> books = DatabaseHelper.getAllBooks();
-
-        for (Book book : books) {
-            Object[] row = {
-                    book.getBookId(),
-                    book.getTitle(),
-                    book.getAuthorName(),
-                    book.getYear(),
-                    book.getNumberOfPages(),
-                    book.getReadStatusText(),
-                    book.getRatingStars()
-            };
-            booksTableModel.addRow(row);
-        }
+        booksTableModel.reload("Type2MainFrame.books");
     }
 
     private void displayBookDetails(Book book) {
@@ -518,10 +514,15 @@ public class Type2MainFrame extends JFrame {
             return;
         }
 
-        int bookId = (Integer) booksTableModel.getValueAt(selectedRow, 0);
-        boolean success = DatabaseHelper.updateReadStatus(bookId, newStatus);
-
-        if (success) {
+        Book book = booksTableModel.getBookAt(selectedRow);
+        if (book == null) {
+            return; // Row still loading
+        }
+        // Written to the database in the background with the next batch
+        if (DatabaseHelper.queueReadStatus(session, book.getBookId(), newStatus)) {
+            Book updated = book.copy();
+            updated.setReadStatus(newStatus);
+            booksTableModel.updateBook(updated);
             String statusText = "";
             switch (newStatus) {
                 case 1: statusText = "read"; break;
@@ -529,7 +530,6 @@ public class Type2MainFrame extends JFrame {
                 case 3: statusText = "want to read"; break;
             }
             JOptionPane.showMessageDialog(this, "Book marked as " + statusText + "!");
-            loadBooksData();
         } else {
             JOptionPane.showMessageDialog(this, "Failed to update book status!");
         }
@@ -557,12 +557,15 @@ public class Type2MainFrame extends JFrame {
                     return;
                 }
 
-                int bookId = (Integer) booksTableModel.getValueAt(selectedRow, 0);
-                boolean success = DatabaseHelper.updateRating(bookId, rating);
-
-                if (success) {
+                Book book = booksTableModel.getBookAt(selectedRow);
+                if (book == null) {
+                    return; // Row still loading
+                }
+                if (DatabaseHelper.queueRating(session, book.getBookId(), rating)) {
+                    Book updated = book.copy();
+                    updated.setRating(rating);
+                    booksTableModel.updateBook(updated);
                     JOptionPane.showMessageDialog(this, "Book rated successfully!");
-                    loadBooksData();
                 } else {
                     JOptionPane.showMessageDialog(this, "Failed to rate book!");
                 }
@@ -579,15 +582,15 @@ public class Type2MainFrame extends JFrame {
             return;
         }
 
-        List<Author> authors = DatabaseHelper.searchAuthors(searchTerm);
-
-        if (authors.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "No authors found matching: " + searchTerm);
-        } else {
-            // Find the authors list in the authors panel and update it
-            Component authorsPanel = tabbedPane.getComponentAt(3); // Authors tab
-            updateAuthorsList(authorsPanel, authors);
-        }
+        AsyncDataService.loadLatest("type2.authorSearch", () -> DatabaseHelper.searchAuthors(searchTerm), authors -> {
+            if (authors.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "No authors found matching: " + searchTerm);
+            } else {
+                // Find the authors list in the authors panel and update it
+                Component authorsPanel = tabbedPane.getComponentAt(3); // Authors tab
+                updateAuthorsList(authorsPanel, authors);
+            }
+        });
     }
 
     private void updateAuthorsList(Component panel, List<Author> authors) {
@@ -639,7 +642,11 @@ public class Type2MainFrame extends JFrame {
     }
 
     private void showAuthorBooks(Author author, JTextArea infoArea) {
-        List<Book> allBooks = DatabaseHelper.getAllBooks();
+        AsyncDataService.loadLatest("type2.authorBooks", () -> DatabaseHelper.getAllBooks(session),
+                allBooks -> showAuthorBooks(author, allBooks, infoArea));
+    }
+
+    private void showAuthorBooks(Author author, List<Book> allBooks, JTextArea infoArea) {
         Book[] authorBooks = allBooks.stream()
                 .filter(book -> book.getAuthorId() == author.getAuthorId())
                 .toArray(Book[]::new);
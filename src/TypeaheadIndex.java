@@ -0,0 +1,381 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Suggestions for short typed prefixes (author names, book titles).
+ *
+ * Every entry is reachable from the start of any of its words through a compressed
+ * prefix trie, so "pam" finds "Orhan Pamuk". When the prefix matches fewer entries
+ * than asked for, a trigram index fills the rest with near matches, so "pamk" still
+ * finds "Pamuk". Text is folded the same way as SearchIndex.
+ *
+ * Not thread-safe; callers synchronize (see LibraryTypeahead).
+ */
+public class TypeaheadIndex<T> {
+    private static final int MAX_KEY_LENGTH = 64;
+    private static final double MIN_TRIGRAM_SIMILARITY = 0.6;
+
+    private final Node root = new Node("");
+    private final Map<Integer, Entry<T>> entries = new HashMap<>();
+    private final Map<Long, IntList> trigrams = new HashMap<>();
+
+    /**
+     * Add or replace an entry shown as value and matched on text
+     */
+    public void put(int id, String text, T value) {
+        remove(id);
+        if (text == null || text.trim().isEmpty()) {
+            return;
+        }
+
+        String folded = SearchIndex.fold(text.trim());
+        Entry<T> entry = new Entry<>(folded, value);
+        entries.put(id, entry);
+
+        for (int start : wordStarts(folded)) {
+            String key = folded.substring(start, Math.min(folded.length(), start + MAX_KEY_LENGTH));
+            insert(key, id);
+        }
+        for (long gram : entry.grams) {
+            trigrams.computeIfAbsent(gram, g -> new IntList()).add(id);
+        }
+    }
+
+    public void remove(int id) {
+        Entry<T> entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        for (int start : wordStarts(entry.folded)) {
+            String key = entry.folded.substring(start, Math.min(entry.folded.length(), start + MAX_KEY_LENGTH));
+            Node node = find(key);
+            if (node != null && node.keyEnds(key, root)) {
+                node.removeId(id);
+            }
+        }
+        for (long gram : entry.grams) {
+            IntList ids = trigrams.get(gram);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.size == 0) {
+                    trigrams.remove(gram);
+                }
+            }
+        }
+    }
+
+    public T get(int id) {
+        Entry<T> entry = entries.get(id);
+        return entry != null ? entry.value : null;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        root.clear();
+        entries.clear();
+        trigrams.clear();
+    }
+
+    /**
+     * Up to limit suggestions: prefix matches first (alphabetically), then near matches
+     */
+    public List<T> suggest(String typed, int limit) {
+        List<T> result = new ArrayList<>();
+        if (typed == null || typed.trim().isEmpty() || limit <= 0) {
+            return result;
+        }
+        String prefix = SearchIndex.fold(typed.trim());
+
+        Set<Integer> ids = new LinkedHashSet<>();
+        Node node = find(prefix);
+        if (node != null) {
+            collect(node, ids, limit);
+        }
+        if (ids.size() < limit && prefix.length() >= 3) {
+            addNearMatches(prefix, ids, limit);
+        }
+
+        for (int id : ids) {
+            result.add(entries.get(id).value);
+        }
+        return result;
+    }
+
+    // ---- Prefix trie ----
+
+    private void insert(String key, int id) {
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            Node child = node.child(key.charAt(i));
+            if (child == null) {
+                Node leaf = new Node(key.substring(i));
+                leaf.addId(id);
+                node.addChild(leaf);
+                return;
+            }
+
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length()) {
+                // Split the edge where the new key leaves it
+                Node middle = new Node(child.label.substring(0, common));
+                node.replaceChild(middle); // same first char, so it takes the child's slot
+                child.label = child.label.substring(common);
+                middle.addChild(child);
+                child = middle;
+            }
+            node = child;
+            i += common;
+        }
+        node.addId(id);
+    }
+
+    /**
+     * Node whose subtree holds every key starting with prefix, or null
+     */
+    private Node find(String prefix) {
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            Node child = node.child(prefix.charAt(i));
+            if (child == null) {
+                return null;
+            }
+            int remaining = prefix.length() - i;
+            if (remaining <= child.label.length()) {
+                // Prefix ends on or inside this edge
+                return child.label.regionMatches(0, prefix, i, remaining) ? child : null;
+            }
+            if (!prefix.regionMatches(i, child.label, 0, child.label.length())) {
+                return null;
+            }
+            node = child;
+            i += child.label.length();
+        }
+        return node;
+    }
+
+    /**
+     * Ids in the subtree, shorter keys first and then in key order, until limit
+     */
+    private static void collect(Node node, Set<Integer> ids, int limit) {
+        for (int i = 0; i < node.idCount && ids.size() < limit; i++) {
+            ids.add(node.ids[i]);
+        }
+        for (int i = 0; i < node.childCount && ids.size() < limit; i++) {
+            collect(node.children[i], ids, limit);
+        }
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int n = 0;
+        while (n < max && label.charAt(n) == key.charAt(offset + n)) {
+            n++;
+        }
+        return n;
+    }
+
+    private static List<Integer> wordStarts(String folded) {
+        List<Integer> starts = new ArrayList<>();
+        for (int i = 0; i < folded.length(); i++) {
+            boolean wordChar = Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && (i == 0 || !Character.isLetterOrDigit(folded.charAt(i - 1)))) {
+                starts.add(i);
+            }
+        }
+        if (starts.isEmpty()) {
+            starts.add(0);
+        }
+        return starts;
+    }
+
+    // ---- Trigrams ----
+
+    private void addNearMatches(String prefix, Set<Integer> ids, int limit) {
+        long[] queryGrams = grams(prefix);
+        Map<Integer, int[]> shared = new HashMap<>();
+        for (long gram : queryGrams) {
+            IntList posting = trigrams.get(gram);
+            if (posting == null) {
+                continue;
+            }
+            for (int i = 0; i < posting.size; i++) {
+                shared.computeIfAbsent(posting.values[i], id -> new int[1])[0]++;
+            }
+        }
+
+        // How much of what was typed appears in the entry; shorter entries win ties
+        List<Map.Entry<Integer, int[]>> candidates = new ArrayList<>();
+        for (Map.Entry<Integer, int[]> candidate : shared.entrySet()) {
+            int common = candidate.getValue()[0];
+            if (!ids.contains(candidate.getKey())
+                    && common >= 2 && common >= MIN_TRIGRAM_SIMILARITY * queryGrams.length) {
+                candidates.add(candidate);
+            }
+        }
+        candidates.sort((a, b) -> a.getValue()[0] != b.getValue()[0]
+                ? Integer.compare(b.getValue()[0], a.getValue()[0])
+                : Integer.compare(entries.get(a.getKey()).folded.length(), entries.get(b.getKey()).folded.length()));
+
+        for (Map.Entry<Integer, int[]> candidate : candidates) {
+            if (ids.size() >= limit) {
+                break;
+            }
+            ids.add(candidate.getKey());
+        }
+    }
+
+    /**
+     * Distinct trigrams of the text with a leading space, so word starts count
+     */
+    private static long[] grams(String folded) {
+        String padded = " " + folded;
+        int count = Math.max(0, padded.length() - 2);
+        long[] grams = new long[count];
+        for (int i = 0; i < count; i++) {
+            grams[i] = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+        }
+        Arrays.sort(grams);
+
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || grams[i] != grams[i - 1]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    private static final class Entry<T> {
+        final String folded;
+        final T value;
+        final long[] grams;
+
+        Entry(String folded, T value) {
+            this.folded = folded;
+            this.value = value;
+            this.grams = grams(folded);
+        }
+    }
+
+    private static final class Node {
+        String label;
+        Node[] children = null;
+        int childCount = 0;
+        int[] ids = null;
+        int idCount = 0;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        Node child(char first) {
+            int index = indexOf(first);
+            return index >= 0 ? children[index] : null;
+        }
+
+        void addChild(Node child) {
+            if (children == null) {
+                children = new Node[2];
+            } else if (childCount == children.length) {
+                children = Arrays.copyOf(children, childCount * 2);
+            }
+            int index = -(indexOf(child.label.charAt(0)) + 1);
+            System.arraycopy(children, index, children, index + 1, childCount - index);
+            children[index] = child;
+            childCount++;
+        }
+
+        void replaceChild(Node child) {
+            children[indexOf(child.label.charAt(0))] = child;
+        }
+
+        void addId(int id) {
+            if (ids == null) {
+                ids = new int[1];
+            } else if (idCount == ids.length) {
+                ids = Arrays.copyOf(ids, idCount * 2);
+            }
+            ids[idCount++] = id;
+        }
+
+        void removeId(int id) {
+            for (int i = 0; i < idCount; i++) {
+                if (ids[i] == id) {
+                    System.arraycopy(ids, i + 1, ids, i, idCount - i - 1);
+                    idCount--;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Whether the key ends exactly at this node (find() can stop inside an edge)
+         */
+        boolean keyEnds(String key, Node root) {
+            int depth = 0;
+            Node node = root;
+            while (node != this && depth < key.length()) {
+                node = node.child(key.charAt(depth));
+                if (node == null) {
+                    return false;
+                }
+                depth += node.label.length();
+            }
+            return node == this && depth == key.length();
+        }
+
+        void clear() {
+            children = null;
+            childCount = 0;
+            ids = null;
+            idCount = 0;
+        }
+
+        private int indexOf(char first) {
+            int low = 0, high = childCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char c = children[mid].label.charAt(0);
+                if (c < first) {
+                    low = mid + 1;
+                } else if (c > first) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+
+    private static final class IntList {
+        int[] values = new int[2];
+        int size = 0;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void remove(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    values[i] = values[--size];
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Suggestion list under a text field, refreshed on every keystroke.
+ *
+ * The suggestion function runs on the EDT, so it must be in-memory only (see
+ * DatabaseHelper.suggestAuthors). Up/Down move through the list, Enter or a click
+ * accepts a suggestion and Escape closes the list.
+ */
+public class TypeaheadPopup<T> {
+    private static final int MAX_SUGGESTIONS = 8;
+
+    private final JTextField field;
+    private final Function<String, List<T>> suggestions;
+    private final Consumer<T> onAccept;
+
+    private final JPopupMenu popup = new JPopupMenu();
+    private final DefaultListModel<T> listModel = new DefaultListModel<>();
+    private final JList<T> list = new JList<>(listModel);
+    private boolean accepting = false;
+
+    public static <T> TypeaheadPopup<T> attach(JTextField field, Function<String, List<T>> suggestions,
+                                               Consumer<T> onAccept) {
+        return new TypeaheadPopup<>(field, suggestions, onAccept);
+    }
+
+    private TypeaheadPopup(JTextField field, Function<String, List<T>> suggestions, Consumer<T> onAccept) {
+        this.field = field;
+        this.suggestions = suggestions;
+        this.onAccept = onAccept;
+
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setFocusable(false);
+        popup.setFocusable(false);
+        popup.add(new JScrollPane(list));
+
+        addListeners();
+    }
+
+    private void addListeners() {
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                refresh();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                refresh();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                refresh();
+            }
+        });
+
+        field.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (!popup.isVisible()) {
+                    return;
+                }
+                int index = list.getSelectedIndex();
+                switch (e.getKeyCode()) {
+                    case KeyEvent.VK_DOWN:
+                        list.setSelectedIndex(Math.min(index + 1, listModel.size() - 1));
+                        e.consume();
+                        break;
+                    case KeyEvent.VK_UP:
+                        list.setSelectedIndex(Math.max(index - 1, 0));
+                        e.consume();
+                        break;
+                    case KeyEvent.VK_ENTER:
+                        if (index >= 0) {
+                            accept(list.getSelectedValue());
+                            e.consume();
+                        }
+                        break;
+                    case KeyEvent.VK_ESCAPE:
+                        popup.setVisible(false);
+                        e.consume();
+                        break;
+                }
+            }
+        });
+
+        field.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusLost(FocusEvent e) {
+                popup.setVisible(false);
+            }
+        });
+
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = list.locationToIndex(e.getPoint());
+                if (index >= 0) {
+                    accept(listModel.get(index));
+                }
+            }
+        });
+    }
+
+    private void refresh() {
+        if (accepting) {
+            return;
+        }
+        // Document events can arrive mid-edit; update after the change is complete
+        SwingUtilities.invokeLater(() -> {
+            // Only typing opens the list, not text set by code (e.g. filling the form)
+            List<T> matches = field.isFocusOwner() ? suggestions.apply(field.getText()) : List.of();
+            listModel.clear();
+            for (T match : matches.subList(0, Math.min(MAX_SUGGESTIONS, matches.size()))) {
+                listModel.addElement(match);
+            }
+
+            if (listModel.isEmpty()) {
+                popup.setVisible(false);
+                return;
+            }
+            list.setVisibleRowCount(listModel.size());
+            popup.pack();
+            if (!popup.isVisible()) {
+                popup.show(field, 0, field.getHeight());
+            }
+        });
+    }
+
+    private void accept(T value) {
+        popup.setVisible(false);
+        accepting = true;
+        try {
+            onAccept.accept(value);
+        } finally {
+            accepting = false;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * The logged-in user a DatabaseHelper call acts for.
+ *
+ * Created by DatabaseHelper.login() and passed explicitly to every user-scoped
+ * read and write, so any number of sessions can use the data layer at once.
+ * Immutable, so a session can be shared freely between threads.
+ */
+public final class UserSession {
+    /**
+     * No user; user-scoped calls with this session do nothing and return empty results
+     */
+    public static final UserSession ANONYMOUS = new UserSession(-1, "", 0);
+
+    private final int userId;
+    private final String username;
+    private final int userType; // 1: admin (Type1MainFrame), 2: user (Type2MainFrame)
+    private final long loginTime;
+
+    public UserSession(int userId, String username, int userType) {
+        this.userId = userId;
+        this.username = username;
+        this.userType = userType;
+        this.loginTime = System.currentTimeMillis();
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public int getUserType() {
+        return userType;
+    }
+
+    public long getLoginTime() {
+        return loginTime;
+    }
+
+    public boolean isLoggedIn() {
+        return userId != -1;
+    }
+
+    @Override
+    public String toString() {
+        return isLoggedIn() ? username + " (user " + userId + ")" : "anonymous";
+    }
+}
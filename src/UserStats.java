@@ -0,0 +1,478 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Per-user statistics counters kept in the user_stats table.
+ *
+ * Writes to user_books apply the difference between a row's state before and
+ * after the write, inside the same transaction. The catalog-wide book and author
+ * counts live in the one-row catalog_stats table, bumped by every insert into books
+ * or authors. rebuild() recomputes the counters from the tables and reports drift.
+ */
+public class UserStats {
+
+    static final String SQL_CREATE_TABLE = "CREATE TABLE IF NOT EXISTS user_stats (" +
+            "userId INT NOT NULL PRIMARY KEY, " +
+            "inLibraryCount INT NOT NULL DEFAULT 0, " +
+            "status0Count INT NOT NULL DEFAULT 0, " +
+            "readCount INT NOT NULL DEFAULT 0, " +
+            "readingCount INT NOT NULL DEFAULT 0, " +
+            "wantToReadCount INT NOT NULL DEFAULT 0, " +
+            "ratingSum BIGINT NOT NULL DEFAULT 0, " +
+            "ratingCount INT NOT NULL DEFAULT 0, " +
+            "favoritesCount INT NOT NULL DEFAULT 0, " +
+            "pagesRead BIGINT NOT NULL DEFAULT 0, " +
+            "updatedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP)";
+
+    static final String SQL_CREATE_CATALOG_TABLE = "CREATE TABLE IF NOT EXISTS catalog_stats (" +
+            "id TINYINT NOT NULL PRIMARY KEY, " +
+            "bookCount BIGINT NOT NULL DEFAULT 0, " +
+            "authorCount BIGINT NOT NULL DEFAULT 0, " +
+            "updatedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP)";
+
+    private static final String SQL_ROW_STATE =
+            "SELECT ub.readStatus, ub.rating, b.numberOfPages " +
+            "FROM user_books ub JOIN books b ON b.bookId = ub.bookId " +
+            "WHERE ub.userId = ? AND ub.bookId = ? FOR UPDATE";
+
+    // Only existing rows are adjusted; a user without a row gets one from rebuild() on first read
+    private static final String SQL_APPLY_DELTA = "UPDATE user_stats SET " +
+            "inLibraryCount = inLibraryCount + ?, " +
+            "status0Count = status0Count + ?, " +
+            "readCount = readCount + ?, " +
+            "readingCount = readingCount + ?, " +
+            "wantToReadCount = wantToReadCount + ?, " +
+            "ratingSum = ratingSum + ?, " +
+            "ratingCount = ratingCount + ?, " +
+            "favoritesCount = favoritesCount + ?, " +
+            "pagesRead = pagesRead + ? " +
+            "WHERE userId = ?";
+
+    private static final String SQL_ADJUST_PAGES_READ = "UPDATE user_stats us " +
+            "JOIN user_books ub ON ub.userId = us.userId " +
+            "SET us.pagesRead = us.pagesRead + ? " +
+            "WHERE ub.bookId = ? AND ub.readStatus = 1";
+
+    // Like SQL_APPLY_DELTA, only adjusts an existing row; rebuild() creates it
+    private static final String SQL_CATALOG_DELTA =
+            "UPDATE catalog_stats SET bookCount = bookCount + ?, authorCount = authorCount + ? WHERE id = 1";
+
+    // Two primary key lookups, no counting
+    private static final String SQL_READ = "SELECT us.*, " +
+            "cs.bookCount as totalBooks, cs.authorCount as totalAuthors " +
+            "FROM user_stats us JOIN catalog_stats cs ON cs.id = 1 " +
+            "WHERE us.userId = ?";
+
+    private static final String SQL_CATALOG_RECOMPUTE =
+            "SELECT (SELECT COUNT(*) FROM books) as bookCount, (SELECT COUNT(*) FROM authors) as authorCount";
+    private static final String SQL_CATALOG_UPSERT = "INSERT INTO catalog_stats (id, bookCount, authorCount) " +
+            "VALUES (1, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE bookCount = VALUES(bookCount), authorCount = VALUES(authorCount)";
+
+    private static final String SQL_RECOMPUTE = "SELECT ub.userId, " +
+            "COUNT(*) as inLibraryCount, " +
+            "SUM(CASE WHEN COALESCE(ub.readStatus, 0) = 0 THEN 1 ELSE 0 END) as status0Count, " +
+            "SUM(CASE WHEN ub.readStatus = 1 THEN 1 ELSE 0 END) as readCount, " +
+            "SUM(CASE WHEN ub.readStatus = 2 THEN 1 ELSE 0 END) as readingCount, " +
+            "SUM(CASE WHEN ub.readStatus = 3 THEN 1 ELSE 0 END) as wantToReadCount, " +
+            "SUM(CASE WHEN ub.rating > 0 THEN ub.rating ELSE 0 END) as ratingSum, " +
+            "SUM(CASE WHEN ub.rating > 0 THEN 1 ELSE 0 END) as ratingCount, " +
+            "SUM(CASE WHEN ub.rating >= 4 THEN 1 ELSE 0 END) as favoritesCount, " +
+            "SUM(CASE WHEN ub.readStatus = 1 THEN b.numberOfPages ELSE 0 END) as pagesRead " +
+            "FROM user_books ub JOIN books b ON b.bookId = ub.bookId ";
+
+    private static final String SQL_UPSERT = "INSERT INTO user_stats (userId, inLibraryCount, status0Count, " +
+            "readCount, readingCount, wantToReadCount, ratingSum, ratingCount, favoritesCount, pagesRead) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "inLibraryCount = VALUES(inLibraryCount), " +
+            "status0Count = VALUES(status0Count), " +
+            "readCount = VALUES(readCount), " +
+            "readingCount = VALUES(readingCount), " +
+            "wantToReadCount = VALUES(wantToReadCount), " +
+            "ratingSum = VALUES(ratingSum), " +
+            "ratingCount = VALUES(ratingCount), " +
+            "favoritesCount = VALUES(favoritesCount), " +
+            "pagesRead = VALUES(pagesRead)";
+
+    /**
+     * Lock and read one user_books row (null if the book is not in the user's library)
+     */
+    public static RowState readRowState(Connection conn, int userId, int bookId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_ROW_STATE)) {
+            stmt.setInt(1, userId);
+            stmt.setInt(2, bookId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new RowState(rs.getInt("readStatus"), rs.getInt("rating"), rs.getInt("numberOfPages"));
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lock and read several user_books rows of one user; books not in the library are absent
+     */
+    public static Map<Integer, RowState> readRowStates(Connection conn, int userId, List<Integer> bookIds)
+            throws SQLException {
+        Map<Integer, RowState> states = new HashMap<>();
+        for (int from = 0; from < bookIds.size(); from += SqlLists.MAX_SIZE) {
+            List<Integer> chunk = SqlLists.padded(bookIds.subList(from, Math.min(bookIds.size(), from + SqlLists.MAX_SIZE)));
+            String query = "SELECT ub.bookId, ub.readStatus, ub.rating, b.numberOfPages " +
+                    "FROM user_books ub JOIN books b ON b.bookId = ub.bookId " +
+                    "WHERE ub.userId = ? AND ub.bookId IN (" + SqlLists.placeholders(chunk.size()) + ") FOR UPDATE";
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setInt(1, userId);
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setInt(i + 2, chunk.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        states.put(rs.getInt("bookId"),
+                                new RowState(rs.getInt("readStatus"), rs.getInt("rating"), rs.getInt("numberOfPages")));
+                    }
+                }
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Apply the combined counter change of many rows going from before to after, in one update
+     */
+    public static void applyChanges(Connection conn, int userId, Collection<Integer> bookIds,
+                                    Map<Integer, RowState> before, Map<Integer, RowState> after) throws SQLException {
+        Counters delta = new Counters();
+        for (int bookId : bookIds) {
+            delta.add(Counters.of(after.get(bookId)));
+            delta.subtract(Counters.of(before.get(bookId)));
+        }
+        if (delta.isZero()) {
+            return;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_APPLY_DELTA)) {
+            delta.bind(stmt, 1);
+            stmt.setInt(10, userId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Apply the counter change caused by a row going from before to after (either may be null)
+     */
+    public static void applyChange(Connection conn, int userId, RowState before, RowState after) throws SQLException {
+        Counters delta = Counters.of(after);
+        delta.subtract(Counters.of(before));
+        if (delta.isZero()) {
+            return;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_APPLY_DELTA)) {
+            delta.bind(stmt, 1);
+            stmt.setInt(10, userId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Books and/or authors were inserted into the catalog, in the caller's transaction
+     */
+    public static void catalogAdded(Connection conn, int books, int authors) throws SQLException {
+        if (books == 0 && authors == 0) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_CATALOG_DELTA)) {
+            stmt.setInt(1, books);
+            stmt.setInt(2, authors);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * A book's page count changed: shift pagesRead for every user who has read it
+     */
+    public static void applyPageCountChange(Connection conn, int bookId, int pageDelta) throws SQLException {
+        if (pageDelta == 0) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_ADJUST_PAGES_READ)) {
+            stmt.setInt(1, pageDelta);
+            stmt.setInt(2, bookId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Read a user's statistics row, building it first if it does not exist yet.
+     * Call inside a transaction, like rebuild().
+     */
+    public static LibraryStatistics read(Connection conn, int userId) throws SQLException {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try (PreparedStatement stmt = conn.prepareStatement(SQL_READ)) {
+                stmt.setInt(1, userId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        Counters counters = Counters.from(rs);
+                        long totalBooks = rs.getLong("totalBooks");
+                        // Catalog books without a user_books row count as status 0 as well
+                        long notInLibrary = totalBooks - counters.inLibraryCount;
+                        return new LibraryStatistics(
+                                totalBooks,
+                                rs.getLong("totalAuthors"),
+                                counters.readCount,
+                                counters.readingCount,
+                                counters.wantToReadCount,
+                                notInLibrary + counters.status0Count,
+                                counters.ratingCount,
+                                counters.ratingCount > 0 ? counters.ratingSum / (double) counters.ratingCount : 0.0,
+                                counters.favoritesCount,
+                                counters.pagesRead);
+                    }
+                }
+            }
+            rebuild(conn, userId);
+        }
+        return null;
+    }
+
+    /**
+     * Recompute counters from user_books for one user (userId > 0) or all users (userId <= 0),
+     * overwrite user_stats and return a line per user whose stored counters had drifted.
+     *
+     * Call inside a transaction. The user_stats rows are locked before user_books is read,
+     * so a concurrent write that has not committed yet waits to apply its delta until the
+     * rebuilt counters (which do not include it) are committed.
+     */
+    public static List<String> rebuild(Connection conn, int userId) throws SQLException {
+        boolean allUsers = userId <= 0;
+        Map<Integer, Counters> stored = new HashMap<>();
+        Map<Integer, Counters> fresh = new HashMap<>();
+
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT * FROM user_stats" + (allUsers ? "" : " WHERE userId = ?") + " FOR UPDATE")) {
+            if (!allUsers) stmt.setInt(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    stored.put(rs.getInt("userId"), Counters.from(rs));
+                }
+            }
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(
+                SQL_RECOMPUTE + (allUsers ? "" : "WHERE ub.userId = ? ") + "GROUP BY ub.userId")) {
+            if (!allUsers) stmt.setInt(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    fresh.put(rs.getInt("userId"), Counters.from(rs));
+                }
+            }
+        }
+
+        Set<Integer> users = new HashSet<>(stored.keySet());
+        users.addAll(fresh.keySet());
+        if (!allUsers) users.add(userId);
+
+        List<String> drift = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_UPSERT)) {
+            for (int user : users) {
+                Counters actual = fresh.getOrDefault(user, new Counters());
+                Counters previous = stored.get(user);
+                if (previous != null && !previous.equals(actual)) {
+                    drift.add("user " + user + ": stored " + previous + " but actual " + actual);
+                }
+                if (previous == null || !previous.equals(actual)) {
+                    stmt.setInt(1, user);
+                    actual.bind(stmt, 2);
+                    stmt.addBatch();
+                }
+            }
+            stmt.executeBatch();
+        }
+
+        rebuildCatalog(conn, allUsers, drift);
+        return drift;
+    }
+
+    /**
+     * Recount catalog_stats; for a single user only when the row does not exist yet
+     */
+    private static void rebuildCatalog(Connection conn, boolean recount, List<String> drift) throws SQLException {
+        long[] stored = null;
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT bookCount, authorCount FROM catalog_stats WHERE id = 1 FOR UPDATE");
+             ResultSet rs = stmt.executeQuery()) {
+            if (rs.next()) {
+                stored = new long[]{rs.getLong("bookCount"), rs.getLong("authorCount")};
+            }
+        }
+        if (stored != null && !recount) {
+            return;
+        }
+
+        long[] actual;
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_CATALOG_RECOMPUTE);
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            actual = new long[]{rs.getLong("bookCount"), rs.getLong("authorCount")};
+        }
+        if (stored != null && Arrays.equals(stored, actual)) {
+            return;
+        }
+        if (stored != null) {
+            drift.add("catalog: stored " + stored[0] + " books, " + stored[1] + " authors but actual "
+                    + actual[0] + " books, " + actual[1] + " authors");
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_CATALOG_UPSERT)) {
+            stmt.setLong(1, actual[0]);
+            stmt.setLong(2, actual[1]);
+            stmt.executeUpdate();
+        }
+    }
+
+    static void createTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(SQL_CREATE_TABLE);
+            stmt.executeUpdate(SQL_CREATE_CATALOG_TABLE);
+        }
+    }
+
+    /**
+     * The parts of a user_books row that feed the counters
+     */
+    public static final class RowState {
+        final int readStatus;
+        final int rating;
+        final int numberOfPages;
+
+        public RowState(int readStatus, int rating, int numberOfPages) {
+            this.readStatus = readStatus;
+            this.rating = rating;
+            this.numberOfPages = numberOfPages;
+        }
+    }
+
+    private static final class Counters {
+        long inLibraryCount;
+        long status0Count;
+        long readCount;
+        long readingCount;
+        long wantToReadCount;
+        long ratingSum;
+        long ratingCount;
+        long favoritesCount;
+        long pagesRead;
+
+        static Counters of(RowState row) {
+            Counters c = new Counters();
+            if (row == null) {
+                return c;
+            }
+            c.inLibraryCount = 1;
+            switch (row.readStatus) {
+                case 0: c.status0Count = 1; break;
+                case 1: c.readCount = 1; c.pagesRead = row.numberOfPages; break;
+                case 2: c.readingCount = 1; break;
+                case 3: c.wantToReadCount = 1; break;
+            }
+            if (row.rating > 0) {
+                c.ratingSum = row.rating;
+                c.ratingCount = 1;
+            }
+            if (row.rating >= 4) {
+                c.favoritesCount = 1;
+            }
+            return c;
+        }
+
+        static Counters from(ResultSet rs) throws SQLException {
+            Counters c = new Counters();
+            c.inLibraryCount = rs.getLong("inLibraryCount");
+            c.status0Count = rs.getLong("status0Count");
+            c.readCount = rs.getLong("readCount");
+            c.readingCount = rs.getLong("readingCount");
+            c.wantToReadCount = rs.getLong("wantToReadCount");
+            c.ratingSum = rs.getLong("ratingSum");
+            c.ratingCount = rs.getLong("ratingCount");
+            c.favoritesCount = rs.getLong("favoritesCount");
+            c.pagesRead = rs.getLong("pagesRead");
+            return c;
+        }
+
+        void add(Counters other) {
+            inLibraryCount += other.inLibraryCount;
+            status0Count += other.status0Count;
+            readCount += other.readCount;
+            readingCount += other.readingCount;
+            wantToReadCount += other.wantToReadCount;
+            ratingSum += other.ratingSum;
+            ratingCount += other.ratingCount;
+            favoritesCount += other.favoritesCount;
+            pagesRead += other.pagesRead;
+        }
+
+        void subtract(Counters other) {
+            inLibraryCount -= other.inLibraryCount;
+            status0Count -= other.status0Count;
+            readCount -= other.readCount;
+            readingCount -= other.readingCount;
+            wantToReadCount -= other.wantToReadCount;
+            ratingSum -= other.ratingSum;
+            ratingCount -= other.ratingCount;
+            favoritesCount -= other.favoritesCount;
+            pagesRead -= other.pagesRead;
+        }
+
+        boolean isZero() {
+            return equals(new Counters());
+        }
+
+        void bind(PreparedStatement stmt, int firstIndex) throws SQLException {
+            stmt.setLong(firstIndex, inLibraryCount);
+            stmt.setLong(firstIndex + 1, status0Count);
+            stmt.setLong(firstIndex + 2, readCount);
+            stmt.setLong(firstIndex + 3, readingCount);
+            stmt.setLong(firstIndex + 4, wantToReadCount);
+            stmt.setLong(firstIndex + 5, ratingSum);
+            stmt.setLong(firstIndex + 6, ratingCount);
+            stmt.setLong(firstIndex + 7, favoritesCount);
+            stmt.setLong(firstIndex + 8, pagesRead);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Counters)) return false;
+            Counters c = (Counters) o;
+            return inLibraryCount == c.inLibraryCount && status0Count == c.status0Count
+                    && readCount == c.readCount && readingCount == c.readingCount
+                    && wantToReadCount == c.wantToReadCount && ratingSum == c.ratingSum
+                    && ratingCount == c.ratingCount && favoritesCount == c.favoritesCount
+                    && pagesRead == c.pagesRead;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(inLibraryCount * 31 + readCount * 17 + ratingSum * 7 + pagesRead);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("{inLibrary=%d, status0=%d, read=%d, reading=%d, wantToRead=%d, " +
+                            "ratingSum=%d, ratingCount=%d, favorites=%d, pagesRead=%d}",
+                    inLibraryCount, status0Count, readCount, readingCount, wantToReadCount,
+                    ratingSum, ratingCount, favoritesCount, pagesRead);
+        }
+    }
+}
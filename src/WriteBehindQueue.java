@@ -0,0 +1,486 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Write-behind buffer for user_books readStatus and rating changes.
+ *
+ * Writes are coalesced per (userId, bookId): marking a book three times before a
+ * flush writes only the last status. Pending writes are flushed as one batch every
+ * flushIntervalMillis, or right away once maxBatchSize rows are waiting. A batch that
+ * fails while the database is unreachable is kept (newer writes still win) and retried
+ * with a growing delay. Any other failure is narrowed down by writing the rows one at
+ * a time, so a single bad row (e.g. a book deleted meanwhile) cannot hold up everyone
+ * else's writes; rows that keep failing are dropped, logged and appended to
+ * <journal>.rejected.
+ *
+ * Pending and in-flight rows are kept in a journal file, rewritten atomically on a
+ * background thread after every change, so they survive a crash or a restart while
+ * MySQL is down and are replayed on start.
+ */
+public class WriteBehindQueue {
+    private static final long MAX_RETRY_DELAY_MILLIS = 60_000;
+    // A row failing on its own this often (for reasons other than the connection) is dropped
+    private static final int MAX_ROW_ATTEMPTS = 5;
+
+    /**
+     * Writes a batch of rows in one transaction (DatabaseHelper.flushUserBookValues)
+     */
+    public interface Writer {
+        void write(List<PendingWrite> writes) throws SQLException;
+    }
+
+    /**
+     * The latest values for one user_books row; a null field is left unchanged
+     */
+    public static final class PendingWrite {
+        private final int userId;
+        private final int bookId;
+        private final Integer readStatus;
+        private final Integer rating;
+        private int failedAttempts = 0; // Guarded by the queue
+
+        PendingWrite(int userId, int bookId, Integer readStatus, Integer rating) {
+            this.userId = userId;
+            this.bookId = bookId;
+            this.readStatus = readStatus;
+            this.rating = rating;
+        }
+
+        public int getUserId() { return userId; }
+        public int getBookId() { return bookId; }
+        public Integer getReadStatus() { return readStatus; }
+        public Integer getRating() { return rating; }
+
+        /**
+         * This write with the fields of a newer one applied on top
+         */
+        PendingWrite then(PendingWrite newer) {
+            return new PendingWrite(userId, bookId,
+                    newer.readStatus != null ? newer.readStatus : readStatus,
+                    newer.rating != null ? newer.rating : rating);
+        }
+
+        @Override
+        public String toString() {
+            return "user " + userId + " book " + bookId + " status=" + readStatus + " rating=" + rating;
+        }
+    }
+
+    private final Writer writer;
+    private final Consumer<PendingWrite> onRejected;
+    private final long flushIntervalMillis;
+    private final int maxBatchSize;
+    private final Path journal;
+    private final ScheduledExecutorService flusher;
+    private final ExecutorService journalWriter;
+
+    // Guarded by "this"; insertion order is flush order
+    private final Map<Long, PendingWrite> pending = new LinkedHashMap<>();
+    // Rows of the batch being written; they stay in the journal until it commits
+    private final Map<Long, PendingWrite> inFlight = new LinkedHashMap<>();
+    private boolean flushScheduled = false;
+    private boolean journalSaveScheduled = false;
+    private long retryDelayMillis = 0;
+    private long flushedRows = 0;
+    private long failedFlushes = 0;
+    private long rejectedRows = 0;
+
+    // Serializes batches, so a flush for one user waits for the batch in flight
+    private final Object flushLock = new Object();
+
+    public WriteBehindQueue(Writer writer, long flushIntervalMillis, int maxBatchSize, Path journal) {
+        this(writer, rejected -> { }, flushIntervalMillis, maxBatchSize, journal);
+    }
+
+    /**
+     * @param onRejected told about each row that was dropped because it kept failing
+     */
+    public WriteBehindQueue(Writer writer, Consumer<PendingWrite> onRejected, long flushIntervalMillis,
+                            int maxBatchSize, Path journal) {
+        this.writer = writer;
+        this.onRejected = onRejected;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.journal = journal;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "write-behind-flusher"));
+        this.journalWriter = Executors.newSingleThreadExecutor(r -> daemon(r, "write-behind-journal"));
+        replayJournal();
+    }
+
+    public void enqueueReadStatus(int userId, int bookId, int readStatus) {
+        enqueue(new PendingWrite(userId, bookId, readStatus, null));
+    }
+
+    public void enqueueRating(int userId, int bookId, int rating) {
+        enqueue(new PendingWrite(userId, bookId, null, rating));
+    }
+
+    /**
+     * Write everything pending now, on the calling thread; true if nothing is left
+     */
+    public boolean flush() {
+        return flushMatching(write -> true);
+    }
+
+    /**
+     * Write one user's pending rows now, on the calling thread, e.g. before reading that
+     * user's data from the database or writing to it directly. Returns at once if the
+     * user has nothing pending; true if nothing of the user's is left.
+     */
+    public boolean flushUser(int userId) {
+        synchronized (this) {
+            if (!hasRows(pending, userId) && !hasRows(inFlight, userId)) {
+                return true;
+            }
+        }
+        return flushMatching(write -> write.userId == userId);
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size() + inFlight.size();
+    }
+
+    public synchronized String getStats() {
+        return String.format("%d pending, %d rows flushed, %d failed flushes, %d rows rejected",
+                pending.size() + inFlight.size(), flushedRows, failedFlushes, rejectedRows);
+    }
+
+    /**
+     * Flush what is pending, stop the background threads and leave the journal current
+     */
+    public void close() {
+        flusher.shutdownNow();
+        flush();
+        journalWriter.shutdown();
+        try {
+            journalWriter.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        saveJournal();
+    }
+
+    private synchronized void enqueue(PendingWrite write) {
+        long key = key(write.userId, write.bookId);
+        PendingWrite previous = pending.get(key);
+        pending.put(key, previous != null ? previous.then(write) : write);
+        scheduleJournalSave();
+
+        if (pending.size() >= maxBatchSize && retryDelayMillis == 0) {
+            flusher.execute(this::flush);
+        } else {
+            scheduleFlush(flushIntervalMillis);
+        }
+    }
+
+    private synchronized void scheduleFlush(long delayMillis) {
+        if (flushScheduled || flusher.isShutdown()) {
+            return;
+        }
+        flushScheduled = true;
+        flusher.schedule(() -> {
+            synchronized (this) {
+                flushScheduled = false;
+            }
+            flush();
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private boolean flushMatching(Predicate<PendingWrite> filter) {
+        synchronized (flushLock) {
+            while (true) {
+                List<PendingWrite> batch = new ArrayList<>();
+                synchronized (this) {
+                    for (PendingWrite write : pending.values()) {
+                        if (filter.test(write)) {
+                            batch.add(write);
+                            if (batch.size() == maxBatchSize) {
+                                break;
+                            }
+                        }
+                    }
+                    if (batch.isEmpty()) {
+                        return true;
+                    }
+                    for (PendingWrite write : batch) {
+                        long key = key(write.userId, write.bookId);
+                        pending.remove(key);
+                        inFlight.put(key, write);
+                    }
+                }
+
+                if (!writeBatch(batch)) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Write a batch; false if some rows were put back for a later retry
+     */
+    private boolean writeBatch(List<PendingWrite> batch) {
+        try {
+            writer.write(batch);
+            committed(batch);
+            return true;
+        } catch (SQLException | RuntimeException e) {
+            if (isTransient(e)) {
+                requeue(batch);
+                System.err.println("⚠️ Write-behind flush of " + batch.size() + " rows failed, retrying in "
+                        + retryDelayMillis + " ms: " + e.getMessage());
+                return false;
+            }
+            if (batch.size() > 1) {
+                System.err.println("⚠️ Write-behind flush of " + batch.size() + " rows failed (" + e.getMessage()
+                        + "), writing them one at a time");
+            }
+        }
+
+        // Narrow the failure down to the rows causing it
+        List<PendingWrite> retry = new ArrayList<>();
+        for (PendingWrite write : batch) {
+            try {
+                writer.write(List.of(write));
+                committed(List.of(write));
+            } catch (SQLException | RuntimeException e) {
+                if (!isTransient(e) && (isPermanent(e) || failedAgain(write) >= MAX_ROW_ATTEMPTS)) {
+                    reject(write, e);
+                } else {
+                    retry.add(write);
+                }
+            }
+        }
+        if (retry.isEmpty()) {
+            return true;
+        }
+        requeue(retry);
+        System.err.println("⚠️ Write-behind: " + retry.size() + " rows failed, retrying in " + retryDelayMillis + " ms");
+        return false;
+    }
+
+    private synchronized void committed(List<PendingWrite> batch) {
+        for (PendingWrite write : batch) {
+            inFlight.remove(key(write.userId, write.bookId));
+        }
+        flushedRows += batch.size();
+        retryDelayMillis = 0;
+        scheduleJournalSave();
+    }
+
+    private synchronized int failedAgain(PendingWrite write) {
+        return ++write.failedAttempts;
+    }
+
+    /**
+     * Drop a row that keeps failing: log it, keep it in the dead-letter file and tell the owner
+     */
+    private void reject(PendingWrite write, Exception e) {
+        synchronized (this) {
+            inFlight.remove(key(write.userId, write.bookId));
+            rejectedRows++;
+            scheduleJournalSave();
+        }
+        System.err.println("🗑️ Dropping write-behind row " + write + ": " + e.getMessage());
+        if (journal != null) {
+            Path deadLetters = Paths.get(journal + ".rejected");
+            String line = write.userId + "." + write.bookId + "=" + format(write) + " # " + e.getMessage() + "\n";
+            try {
+                Files.write(deadLetters, line.getBytes(StandardCharsets.UTF_8),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException io) {
+                System.err.println("⚠️ Could not record rejected write-behind row: " + io.getMessage());
+            }
+        }
+        try {
+            onRejected.accept(write);
+        } catch (RuntimeException listenerError) {
+            System.err.println("⚠️ Write-behind rejection handler failed: " + listenerError.getMessage());
+        }
+    }
+
+    /**
+     * Put failed rows back under any newer writes and schedule a retry with backoff
+     */
+    private synchronized void requeue(List<PendingWrite> rows) {
+        Map<Long, PendingWrite> merged = new LinkedHashMap<>();
+        for (PendingWrite write : rows) {
+            long key = key(write.userId, write.bookId);
+            inFlight.remove(key);
+            PendingWrite newer = pending.remove(key);
+            merged.put(key, newer != null ? write.then(newer) : write);
+        }
+        merged.putAll(pending);
+        pending.clear();
+        pending.putAll(merged);
+        scheduleJournalSave();
+
+        failedFlushes++;
+        retryDelayMillis = retryDelayMillis == 0 ? flushIntervalMillis
+                : Math.min(MAX_RETRY_DELAY_MILLIS, retryDelayMillis * 2);
+        scheduleFlush(retryDelayMillis);
+    }
+
+    private synchronized void scheduleJournalSave() {
+        if (journal == null || journalSaveScheduled || journalWriter.isShutdown()) {
+            return;
+        }
+        journalSaveScheduled = true;
+        journalWriter.execute(this::saveJournal);
+    }
+
+    /**
+     * Rewrite the journal with the in-flight and pending rows (deleted when there are none).
+     * Runs on the journal thread, or on the caller of close() once that has stopped.
+     */
+    private void saveJournal() {
+        if (journal == null) {
+            return;
+        }
+        Properties rows = new Properties();
+        synchronized (this) {
+            journalSaveScheduled = false;
+            for (Map.Entry<Long, PendingWrite> entry : inFlight.entrySet()) {
+                PendingWrite newer = pending.get(entry.getKey());
+                PendingWrite write = newer != null ? entry.getValue().then(newer) : entry.getValue();
+                rows.setProperty(write.userId + "." + write.bookId, format(write));
+            }
+            for (PendingWrite write : pending.values()) {
+                rows.putIfAbsent(write.userId + "." + write.bookId, format(write));
+            }
+        }
+
+        try {
+            if (rows.isEmpty()) {
+                Files.deleteIfExists(journal);
+                return;
+            }
+            Path dir = journal.toAbsolutePath().getParent();
+            Path temp = Files.createTempFile(dir, "writebehind", ".tmp");
+            try {
+                try (OutputStream out = Files.newOutputStream(temp)) {
+                    rows.store(out, "Pending user_books writes: userId.bookId = readStatus,rating");
+                }
+                try {
+                    Files.move(temp, journal, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, journal, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Could not write the write-behind journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Load rows left over from a previous run and flush them soon
+     */
+    private synchronized void replayJournal() {
+        if (journal == null || !Files.isRegularFile(journal)) {
+            return;
+        }
+        Properties rows = new Properties();
+        try (InputStream in = Files.newInputStream(journal)) {
+            rows.load(in);
+        } catch (IOException e) {
+            System.err.println("⚠️ Could not read the write-behind journal: " + e.getMessage());
+            return;
+        }
+        for (String key : rows.stringPropertyNames()) {
+            try {
+                String[] ids = key.split("\\.");
+                String[] values = rows.getProperty(key).split(",", -1);
+                PendingWrite write = new PendingWrite(Integer.parseInt(ids[0]), Integer.parseInt(ids[1]),
+                        values[0].isEmpty() ? null : Integer.valueOf(values[0]),
+                        values[1].isEmpty() ? null : Integer.valueOf(values[1]));
+                pending.put(key(write.userId, write.bookId), write);
+            } catch (RuntimeException e) {
+                System.err.println("⚠️ Skipping bad write-behind journal entry " + key);
+            }
+        }
+        if (!pending.isEmpty()) {
+            System.out.println("📝 Replaying " + pending.size() + " pending writes from " + journal);
+            scheduleFlush(0);
+        }
+    }
+
+    /**
+     * The database could not be reached (no SQLState, class 08) or the transaction lost a
+     * deadlock or lock wait (class 40): every row would fail, so nothing is dropped
+     */
+    private static boolean isTransient(Exception e) {
+        SQLException sql = sqlCause(e);
+        if (sql == null) {
+            return false;
+        }
+        String state = sql.getSQLState();
+        return state == null || state.startsWith("08") || state.startsWith("40")
+                || sql instanceof SQLTransientException || sql instanceof SQLRecoverableException;
+    }
+
+    /**
+     * Data exceptions (class 22, e.g. out of range) and integrity violations (class 23,
+     * e.g. a deleted book) fail the same way every time
+     */
+    private static boolean isPermanent(Exception e) {
+        SQLException sql = sqlCause(e);
+        String state = sql != null ? sql.getSQLState() : null;
+        return state != null && (state.startsWith("22") || state.startsWith("23"));
+    }
+
+    private static SQLException sqlCause(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                return (SQLException) cause;
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasRows(Map<Long, PendingWrite> rows, int userId) {
+        for (PendingWrite write : rows.values()) {
+            if (write.userId == userId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String format(PendingWrite write) {
+        return (write.readStatus != null ? write.readStatus : "") + "," + (write.rating != null ? write.rating : "");
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+
+    private static long key(int userId, int bookId) {
+        return ((long) userId << 32) | (bookId & 0xFFFFFFFFL);
+    }
+}